@@ -0,0 +1,79 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.bazylicyran.funcanalyzer.math.FunctionDiscretizer;
+import pl.bazylicyran.funcanalyzer.math.SampledFunction;
+
+/**
+ * Measures discretization of a function without cache.
+ * 
+ * @author Bazyli Cyran
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscretizerBenchmark {
+
+	/** Expression complexity. */
+	@Param({ "simple", "medium", "complex" })
+	public String complexity;
+
+	/** Number of discretized points. */
+	@Param({ "1000", "100000" })
+	public int samples;
+
+	/** Whether function is discretized in parallel. */
+	@Param({ "false", "true" })
+	public boolean parallel;
+
+	/** Whether function is sampled adaptively. */
+	@Param({ "false", "true" })
+	public boolean adaptive;
+
+	/** Discretizer. */
+	private FunctionDiscretizer disc;
+
+	/** Alternating interval start, so every invocation discretizes again. */
+	private double start = 0;
+
+	/**
+	 * Creates discretizer.
+	 */
+	@Setup
+	public void setup() {
+		disc = new FunctionDiscretizer();
+		disc.setFunction(Expressions.get(complexity));
+		disc.setResolution(0.01);
+		disc.setParallel(parallel);
+		disc.setAdaptive(adaptive);
+	}
+
+	/**
+	 * Discretizes function.
+	 * 
+	 * @return Discretized function.
+	 */
+	@Benchmark
+	public SampledFunction discretize() {
+		start = start == 0 ? 0.005 : 0;
+		disc.setInterval(start - samples * 0.005, start + samples * 0.005);
+		return disc.getSamples();
+	}
+
+}
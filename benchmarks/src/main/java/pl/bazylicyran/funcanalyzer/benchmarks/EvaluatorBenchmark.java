@@ -0,0 +1,129 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.bazylicyran.funcanalyzer.math.EvaluationContext;
+import pl.bazylicyran.funcanalyzer.math.FunctionExpression;
+
+/**
+ * Measures evaluation of compiled expression in a single point, interpreted
+ * tree and bytecode.
+ * 
+ * @author Bazyli Cyran
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+	/** Number of points evaluated in one invocation. */
+	private static final int points = 1024;
+
+	/** Expression complexity. */
+	@Param({ "simple", "medium", "complex", "polynomial" })
+	public String complexity;
+
+	/** Whether expression is compiled to bytecode. */
+	@Param({ "false", "true" })
+	public boolean bytecode;
+
+	/** Whether expression tree is simplified. */
+	@Param({ "true", "false" })
+	public boolean optimize;
+
+	/** Evaluated expression. */
+	private FunctionExpression function;
+
+	/** Evaluated points. */
+	private final double[] xs = new double[points];
+
+	/** Values of expression. */
+	private final double[] ys = new double[points];
+
+	/** Derivatives of expression. */
+	private final double[] derivatives = new double[points];
+
+	/** Context evaluating values with derivatives. */
+	private EvaluationContext context;
+
+	/**
+	 * Compiles expression.
+	 */
+	@Setup
+	public void setup() {
+		function = new FunctionExpression(Expressions.get(complexity));
+		function.setBytecode(bytecode);
+		function.setOptimize(optimize);
+		function.getValue(1);
+		context = function.compile().newContext();
+
+		for (int i = 0; i < points; i++) {
+			xs[i] = 0.01 * i + 0.005;
+		}
+	}
+
+	/**
+	 * Evaluates expression in consecutive points.
+	 * 
+	 * @return Sum of values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(points)
+	public double evaluate() {
+		double sum = 0;
+
+		for (int i = 0; i < points; i++) {
+			try {
+				sum += function.getValue(0.01 * i + 0.005);
+			} catch (ArithmeticException e) {
+				// undefined point
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Evaluates expression in consecutive points in blocks.
+	 * 
+	 * @return Values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(points)
+	public double[] evaluateBlock() {
+		function.getValues(xs, ys, 0, points);
+
+		return ys;
+	}
+
+	/**
+	 * Evaluates expression with its derivative in consecutive points in
+	 * blocks.
+	 * 
+	 * @return Derivatives.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(points)
+	public double[] evaluateDual() {
+		context.getDuals(xs, ys, derivatives, 0, points);
+
+		return derivatives;
+	}
+
+}
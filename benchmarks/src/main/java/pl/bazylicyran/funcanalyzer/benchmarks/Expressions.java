@@ -0,0 +1,71 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+/**
+ * Expressions of different complexity used by benchmarks.
+ * 
+ * @author Bazyli Cyran
+ */
+public final class Expressions {
+
+	/** Linear function. */
+	public static final String simple = "2*x+1";
+
+	/** Few elementary functions. */
+	public static final String medium = "sin(x)^2+cos(x)/2-ln(abs(x)+1)";
+
+	/** Nested logarithms, powers and trigonometric functions. */
+	public static final String complex = "log(2, abs(sin(x)*x^3-3*x^2+2)+1)*sqrt(abs(tan(x/3)))"
+			+ "+ln(x^2+1)^2/(1+x^2)-2*pi*e";
+
+	/** Number of terms of generated polynomial. */
+	private static final int polynomialTerms = 200;
+
+	/**
+	 * Not instantiable.
+	 */
+	private Expressions() {
+
+	}
+
+	/**
+	 * Returns expression with given complexity name.
+	 * 
+	 * @param complexity One of simple, medium, complex, polynomial.
+	 * @return Expression.
+	 */
+	public static String get(String complexity) {
+		switch (complexity) {
+		case "simple":
+			return simple;
+		case "medium":
+			return medium;
+		case "complex":
+			return complex;
+		case "polynomial":
+			return polynomial(polynomialTerms);
+		default:
+			throw new IllegalArgumentException("Unknown complexity: " + complexity);
+		}
+	}
+
+	/**
+	 * Generates polynomial with given number of terms.
+	 * 
+	 * @param terms Number of terms.
+	 * @return Polynomial of x.
+	 */
+	public static String polynomial(int terms) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < terms; i++) {
+			if (i > 0) {
+				sb.append(i % 2 == 0 ? " + " : " - ");
+			}
+
+			sb.append(i + 1).append(".5*x^").append(i % 7);
+		}
+
+		return sb.toString();
+	}
+
+}
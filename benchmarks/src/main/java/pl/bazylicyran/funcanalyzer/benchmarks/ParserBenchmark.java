@@ -0,0 +1,63 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpNode;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionParser;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokenizer;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokens;
+
+/**
+ * Measures compilation of tokens into expression tree, including parser
+ * creation.
+ * 
+ * @author Bazyli Cyran
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	/** Expression complexity. */
+	@Param({ "simple", "medium", "complex", "polynomial" })
+	public String complexity;
+
+	/** Tokens of expression. */
+	private ExpressionTokens tokens;
+
+	/**
+	 * Tokenizes expression.
+	 */
+	@Setup
+	public void setup() {
+		tokens = new ExpressionTokenizer(Expressions.get(complexity)).getTypedTokens();
+	}
+
+	/**
+	 * Compiles tokens.
+	 * 
+	 * @return Expression tree.
+	 */
+	@Benchmark
+	public ExpNode compile() {
+		ExpressionParser parser = new ExpressionParser(tokens);
+		parser.addVariable("x", 0);
+		return parser.compile();
+	}
+
+}
@@ -0,0 +1,78 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.bazylicyran.funcanalyzer.graphics.CoordinateSystem;
+
+/**
+ * Measures headless rendering of coordinate system with functions.
+ * 
+ * @author Bazyli Cyran
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+	/** Functions drawn when more than one is requested. */
+	private static final String[] functions = { Expressions.medium, "x^2-3", "1/x", "sqrt(4-x^2)",
+			Expressions.complex };
+
+	/** Viewport size, width x height. */
+	@Param({ "400x300", "1600x1200" })
+	public String viewport;
+
+	/** Number of drawn functions. */
+	@Param({ "1", "5" })
+	public int functionCount;
+
+	/** Whether functions are sampled adaptively. */
+	@Param({ "false", "true" })
+	public boolean adaptive;
+
+	/** Rendered coordinate system. */
+	private CoordinateSystem system;
+
+	/**
+	 * Creates coordinate system with functions.
+	 */
+	@Setup
+	public void setup() {
+		String[] size = viewport.split("x");
+		system = new CoordinateSystem(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+		system.setGrid(true);
+		system.setAdaptive(adaptive);
+
+		for (int i = 0; i < functionCount; i++) {
+			system.addFunction(functions[i]);
+		}
+	}
+
+	/**
+	 * Renders current view.
+	 * 
+	 * @return Rendered image.
+	 * @throws InterruptedException If interrupted.
+	 */
+	@Benchmark
+	public BufferedImage render() throws InterruptedException {
+		return system.renderImage();
+	}
+
+}
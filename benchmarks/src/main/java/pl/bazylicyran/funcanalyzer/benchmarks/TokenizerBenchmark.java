@@ -0,0 +1,58 @@
+package pl.bazylicyran.funcanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokenizer;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokens;
+
+/**
+ * Measures tokenization of expressions.
+ * 
+ * @author Bazyli Cyran
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+	/** Expression complexity. */
+	@Param({ "simple", "medium", "complex", "polynomial" })
+	public String complexity;
+
+	/** Expression to tokenize. */
+	private String expression;
+
+	/**
+	 * Prepares expression.
+	 */
+	@Setup
+	public void setup() {
+		expression = Expressions.get(complexity);
+	}
+
+	/**
+	 * Tokenizes expression.
+	 * 
+	 * @return Tokens.
+	 */
+	@Benchmark
+	public ExpressionTokens tokenize() {
+		return new ExpressionTokenizer(expression).getTypedTokens();
+	}
+
+}
@@ -24,11 +24,18 @@ public class FunctionAnalyzer extends JFrame {
 	public final static Dimension appDimension = new Dimension(1000, 600);
 
 	/**
-	 * Entry point for program.
+	 * Entry point for program. Without arguments starts GUI, otherwise runs
+	 * command line mode.
 	 * 
-	 * @param args Unused.
+	 * @param args Arguments of command line mode.
+	 * @see FunctionAnalyzerCli
 	 */
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			FunctionAnalyzerCli.main(args);
+			return;
+		}
+
 		javax.swing.SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				JFrame window = new JFrame(appName);
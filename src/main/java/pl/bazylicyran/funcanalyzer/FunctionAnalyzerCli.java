@@ -0,0 +1,232 @@
+package pl.bazylicyran.funcanalyzer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StreamTokenizer;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import pl.bazylicyran.funcanalyzer.math.BatchEvaluator;
+import pl.bazylicyran.funcanalyzer.math.SampleExporter;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
+
+/**
+ * Command line mode evaluating function without GUI.
+ * 
+ * Usage:
+ * 
+ * <pre>
+ * FunctionAnalyzerCli &lt;function&gt; [file]
+ * FunctionAnalyzerCli &lt;function&gt; --range &lt;start&gt; &lt;end&gt; &lt;step&gt;
+ * FunctionAnalyzerCli &lt;function&gt; --export &lt;file&gt; &lt;start&gt; &lt;end&gt; &lt;resolution&gt;
+ * </pre>
+ * 
+ * Values of x are read from file (or standard input if not given) separated
+ * by whitespace, or generated from range. For every x line "x y" is written
+ * to standard output, y is NaN if function is undefined. Values are processed
+ * in blocks, so input of any size is handled in constant memory.
+ * 
+ * Export writes samples from grid of resolution multiples to file with
+ * SampleExporter, as CSV if file name ends with ".csv" and in binary format
+ * otherwise.
+ * 
+ * @author Bazyli Cyran
+ */
+public class FunctionAnalyzerCli {
+
+	/** Number of values evaluated at once. */
+	private static final int blockSize = 8192;
+
+	/** Evaluator of the function. */
+	private final BatchEvaluator evaluator;
+
+	/** Output of results. */
+	private final Writer out;
+
+	/** Values of x in current block. */
+	private final double[] xs = new double[blockSize];
+
+	/** Values of function in current block. */
+	private final double[] ys = new double[blockSize];
+
+	/**
+	 * Creates command line mode for given function.
+	 * 
+	 * @param expression Function of x.
+	 * @param out Output of results.
+	 */
+	public FunctionAnalyzerCli(String expression, Writer out) {
+		this.evaluator = new BatchEvaluator(expression);
+		this.out = out;
+	}
+
+	/**
+	 * Entry point for command line mode.
+	 * 
+	 * @param args Function and source of x values.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		System.exit(run(args));
+	}
+
+	/**
+	 * Runs command line mode.
+	 * 
+	 * @param args Function and source of x values.
+	 * @return Exit code.
+	 */
+	public static int run(String[] args) {
+		boolean export = args.length == 6 && args[1].equals("--export");
+
+		if (args.length != 1 && args.length != 2 && !(args.length == 5 && args[1].equals("--range"))
+				&& export == false) {
+			System.err.println("Usage: <function> [file]");
+			System.err.println("       <function> --range <start> <end> <step>");
+			System.err.println("       <function> --export <file> <start> <end> <resolution>");
+			return 2;
+		}
+
+		if (export == true) {
+			return export(args);
+		}
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+
+		try {
+			FunctionAnalyzerCli cli = new FunctionAnalyzerCli(args[0], out);
+
+			if (args.length == 5) {
+				cli.evaluateRange(Double.parseDouble(args[2]), Double.parseDouble(args[3]),
+						Double.parseDouble(args[4]));
+			} else if (args.length == 2) {
+				try (InputStream in = new FileInputStream(args[1])) {
+					cli.evaluateStream(in);
+				}
+			} else {
+				cli.evaluateStream(System.in);
+			}
+
+			out.flush();
+		} catch (ExpressionException e) {
+			System.err.println("Expression error: " + e.getMessage()
+					+ (e.getToken() != null ? " Current token: " + e.getToken() : ""));
+			return 1;
+		} catch (NumberFormatException | IOException e) {
+			System.err.println("Error: " + e.getMessage());
+			return 1;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Exports samples of function to file.
+	 * 
+	 * @param args Function, option, file, interval and resolution.
+	 * @return Exit code.
+	 */
+	private static int export(String[] args) {
+		try {
+			SampleExporter exporter = new SampleExporter(args[0], Double.parseDouble(args[3]),
+					Double.parseDouble(args[4]), Double.parseDouble(args[5]));
+			Path path = Paths.get(args[2]);
+
+			if (args[2].toLowerCase(Locale.ROOT).endsWith(".csv")) {
+				exporter.exportCsv(path);
+			} else {
+				exporter.exportBinary(path);
+			}
+		} catch (ExpressionException e) {
+			System.err.println("Expression error: " + e.getMessage()
+					+ (e.getToken() != null ? " Current token: " + e.getToken() : ""));
+			return 1;
+		} catch (NumberFormatException | ArithmeticException | IOException e) {
+			System.err.println("Error: " + e.getMessage());
+			return 1;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Evaluates function for x from start to end (inclusive) with given step.
+	 * 
+	 * @param start First value of x.
+	 * @param end Last value of x.
+	 * @param step Distance between values.
+	 * @throws IOException If output fails.
+	 */
+	public void evaluateRange(double start, double end, double step) throws IOException {
+		if (!(step > 0)) {
+			throw new NumberFormatException("Step must be positive.");
+		}
+
+		long count = end < start ? 0 : (long) Math.floor((end - start) / step + 1e-9) + 1;
+
+		for (long first = 0; first < count; first += blockSize) {
+			int size = (int) Math.min(blockSize, count - first);
+
+			for (int i = 0; i < size; i++) {
+				xs[i] = start + (first + i) * step;
+			}
+
+			evaluator.evaluate(xs, ys, 0, size);
+			write(size);
+		}
+	}
+
+	/**
+	 * Evaluates function for whitespace separated values of x read from
+	 * stream.
+	 * 
+	 * @param in Input stream.
+	 * @throws IOException If reading or output fails.
+	 */
+	public void evaluateStream(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII), 1 << 16);
+		StreamTokenizer tokens = new StreamTokenizer(reader);
+		int size = 0;
+
+		tokens.resetSyntax();
+		tokens.wordChars(33, 126);
+		tokens.whitespaceChars(0, 32);
+
+		while (tokens.nextToken() != StreamTokenizer.TT_EOF) {
+			xs[size++] = Double.parseDouble(tokens.sval);
+
+			if (size == blockSize) {
+				evaluator.evaluate(xs, ys, 0, size);
+				write(size);
+				size = 0;
+			}
+		}
+
+		evaluator.evaluate(xs, ys, 0, size);
+		write(size);
+	}
+
+	/**
+	 * Writes results from current block.
+	 * 
+	 * @param size Number of results.
+	 * @throws IOException If output fails.
+	 */
+	private void write(int size) throws IOException {
+		for (int i = 0; i < size; i++) {
+			out.write(Double.toString(xs[i]));
+			out.write(' ');
+			out.write(Double.toString(ys[i]));
+			out.write('\n');
+		}
+	}
+
+}
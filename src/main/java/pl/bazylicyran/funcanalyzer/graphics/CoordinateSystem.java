@@ -7,16 +7,53 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JPanel;
 
+import pl.bazylicyran.funcanalyzer.math.AnalysisPoint;
 import pl.bazylicyran.funcanalyzer.math.CSPoint;
+import pl.bazylicyran.funcanalyzer.math.CompiledExpression;
+import pl.bazylicyran.funcanalyzer.math.CompiledExpressionCache;
+import pl.bazylicyran.funcanalyzer.math.FunctionAnalysis;
 import pl.bazylicyran.funcanalyzer.math.FunctionDiscretizer;
+import pl.bazylicyran.funcanalyzer.math.FunctionExpression;
+import pl.bazylicyran.funcanalyzer.math.FunctionGroupDiscretizer;
+import pl.bazylicyran.funcanalyzer.math.FunctionIntegrator;
+import pl.bazylicyran.funcanalyzer.math.ImplicitPlotter;
+import pl.bazylicyran.funcanalyzer.math.IntegrationResult;
+import pl.bazylicyran.funcanalyzer.math.IntervalSampler;
+import pl.bazylicyran.funcanalyzer.math.SampleCache;
+import pl.bazylicyran.funcanalyzer.math.SampleStore;
+import pl.bazylicyran.funcanalyzer.math.SampledFunction;
+import pl.bazylicyran.funcanalyzer.parsing.ExpFunctionRegistry;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
 
 /**
  * Draws Cartesian coordinate system.
  * 
+ * Plane is split into square tiles of fixed size in pixels, separately for
+ * every zoom level. Tiles are rendered independently and in parallel on a
+ * background thread and cached in TileCache, the displayed frame is composed
+ * of them. Panning renders only newly revealed tiles and returning to
+ * previous zoom level is immediate. Until all tiles of the current view are
+ * rendered, the last complete frame is displayed. Requesting new frame
+ * cancels the one being rendered, so the UI stays responsive even for
+ * expensive functions. State of the system is changed only on the calling
+ * (event dispatch) thread, renderer gets its snapshot.
+ * 
+ * Besides functions of x, implicit relations of x and y like x^2 + y^2 = 4
+ * can be drawn, they are recognized by equals sign.
+ * 
  * @author Bazyli Cyran
  */
 public class CoordinateSystem extends JPanel {
@@ -46,8 +83,26 @@ public class CoordinateSystem extends JPanel {
 	/** Point to show in the middle of drawing area. */
 	private final CSPoint center = new CSPoint(0.0, 0.0);
 
-	/** Function discretizer. */
-	private final FunctionDiscretizer disc = new FunctionDiscretizer();
+	/** Size of a tile in pixels. */
+	private static final int tileSize = 256;
+
+	/** Distance in pixels scale labels can reach beyond their point. */
+	private static final int labelMargin = 40;
+
+	/** Minimal number of cached tiles. */
+	private static final int minCachedTiles = 128;
+
+	/**
+	 * Tiles rendered in previous views, at least two views of them, so all
+	 * tiles of a view stay cached until it is composed.
+	 */
+	private final TileCache tiles;
+
+	/** Values of functions discretized in previous tiles. */
+	private final SampleCache cache = new SampleCache(1 << 22);
+
+	/** Stores of precomputed values by normalized function. */
+	private final Map<String, SampleStore> stores = new ConcurrentHashMap<>();
 
 	/** Width of distance between two neighboring points. */
 	private int unitLength = 50;
@@ -55,21 +110,41 @@ public class CoordinateSystem extends JPanel {
 	/** Function to draw. */
 	private List<String> functions = new ArrayList<>();
 
-	/** Image to draw everything on. */
-	private BufferedImage canvas;
+	/** Image with last complete frame, displayed until tiles are rendered. */
+	private volatile BufferedImage canvas;
+
+	/** Last requested view. */
+	private View current;
+
+	/** Thread rendering frames. */
+	private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "CoordinateSystem renderer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** Frame being rendered. */
+	private Future<?> rendering;
 
-	/** Current graph color. */
-	private Color currentColor = graphColors.get(0);
+	/** Number of the last requested frame. */
+	private final AtomicLong lastFrame = new AtomicLong();
 
 	/** Flag whether grid should be drawn or not. */
 	private boolean grid = false;
 
+	/** Flag whether functions should be sampled adaptively or not. */
+	private boolean adaptive = false;
+
+	/** Flag whether functions should be plotted using interval arithmetic. */
+	private boolean interval = false;
+
 	/**
 	 * Initializes coordinate system and creates canvas.
 	 */
 	public CoordinateSystem(int width, int height) {
 		this.width = width;
 		this.height = height;
+		this.tiles = new TileCache(Math.max(minCachedTiles, 2 * visibleTiles(width, height)));
 
 		canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
@@ -80,47 +155,146 @@ public class CoordinateSystem extends JPanel {
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
 
-		g.drawImage(canvas, 0, 0, null);
+		if (drawTiles(g, current) == false) {
+			g.drawImage(canvas, 0, 0, null);
+		}
 	}
 
 	/**
 	 * Draws all current functions.
 	 */
 	public void drawFunctions() {
-		clearDrawingArea();
+		render(new ArrayList<>(functions));
+	}
 
-		if (functions.isEmpty()) {
-			return;
+	/**
+	 * Renders current view with all current functions and waits for the
+	 * result. Displayed frame is not changed.
+	 * 
+	 * @return Rendered image.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public BufferedImage renderImage() throws InterruptedException {
+		View view = new View(center.getX(), center.getY(), unitLength, grid, adaptive, interval,
+				new ArrayList<>(functions));
+
+		try {
+			return renderer.submit(() -> {
+				renderTiles(view, -1);
+				return compose(view);
+			}).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Rendering failed.", e.getCause());
 		}
+	}
 
-		for (int i = 0; i < functions.size(); i++) {
-			setColor(graphColors.get(i % graphColors.size()));
-			drawFunction(functions.get(i));
-		}
+	/**
+	 * Returns task finding zeros, extrema, inflection points and
+	 * intersections of current functions in visible interval, reusing values
+	 * computed for drawing. Functions and interval are captured on the
+	 * calling thread, so the task may run on any thread.
+	 * 
+	 * @return Task returning found points, functions are identified by their
+	 *         indexes in getFunctions().
+	 */
+	public Callable<List<AnalysisPoint>> analysis() {
+		View view = new View(center.getX(), center.getY(), unitLength, grid, adaptive, interval, functions);
+		FunctionAnalysis analysis = new FunctionAnalysis(new ArrayList<>(functions),
+				(double) view.originX() / unitLength, (double) (view.originX() + width) / unitLength,
+				(double) 1 / unitLength);
+		analysis.setCache(cache);
+
+		return analysis::analyze;
+	}
+
+	/**
+	 * Returns task integrating current function with given index in visible
+	 * interval. Function and interval are captured on the calling thread, so
+	 * the task may run on any thread.
+	 * 
+	 * @param index Index of function in getFunctions().
+	 * @return Task returning integral with its error estimate, null if
+	 *         function is a relation or is invalid.
+	 */
+	public Callable<IntegrationResult> integration(int index) {
+		String function = functions.get(index);
+		View view = new View(center.getX(), center.getY(), unitLength, grid, adaptive, interval, functions);
+		double start = (double) view.originX() / unitLength;
+		double end = (double) (view.originX() + width) / unitLength;
+
+		return () -> {
+			if (ImplicitPlotter.isRelation(function)) {
+				return null;
+			}
+
+			try {
+				return FunctionIntegrator.integrate(function, start, end);
+			} catch (ExpressionException e) {
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns current functions.
+	 * 
+	 * @return Unmodifiable list of functions.
+	 */
+	public List<String> getFunctions() {
+		return Collections.unmodifiableList(functions);
 	}
 
 	/**
 	 * Clears all previously drawn functions and draws axes.
 	 */
 	public void clearDrawingArea() {
-		Graphics g = canvas.getGraphics();
-		g.clearRect(0, 0, width, height);
-		g.setColor(backgroundColor);
-		g.drawRect(0, 0, width, height);
-		g.fillRect(0, 0, width, height);
-		drawAxes();
+		render(Collections.<String>emptyList());
 	}
 
 	/**
 	 * Adds function to coordinate system.
 	 * 
-	 * @param function Function to draw.
+	 * @param function Function or relation to draw.
+	 * @throws ExpressionException If function is not a valid expression.
 	 */
 	public void addFunction(String function) {
 		this.functions.add(function);
+		validate(function);
 		drawFunctions();
 	}
 
+	/**
+	 * Adds function with values precomputed in store to coordinate system.
+	 * Values are read from the store wherever resolution of drawing is a
+	 * multiple of its resolution, elsewhere they are computed.
+	 * 
+	 * @param store Store of the function.
+	 * @throws ExpressionException If function is not a valid expression.
+	 */
+	public void addStore(SampleStore store) {
+		stores.put(CompiledExpressionCache.normalize(store.getFunction()), store);
+
+		if (inFunctions(store.getFunction()) == false) {
+			addFunction(store.getFunction());
+		}
+	}
+
+	/**
+	 * Adds derivative of given function to coordinate system.
+	 * 
+	 * @param function Function to differentiate.
+	 * @return Added derivative.
+	 * @throws ExpressionException If function is not a valid expression or
+	 *         can't be differentiated.
+	 * @see CompiledExpression#derivative()
+	 */
+	public String addDerivative(String function) {
+		String derivative = CompiledExpressionCache.getDefault().get(function).derivative().getExpression();
+		addFunction(derivative);
+
+		return derivative;
+	}
+
 	/**
 	 * Removes all saved functions.
 	 */
@@ -204,6 +378,28 @@ public class CoordinateSystem extends JPanel {
 		grid = value;
 	}
 
+	/**
+	 * Sets whether functions should be sampled adaptively, which is more
+	 * accurate near discontinuities.
+	 * 
+	 * @param value True if functions should be sampled adaptively.
+	 */
+	public void setAdaptive(boolean value) {
+		adaptive = value;
+	}
+
+	/**
+	 * Sets whether functions should be plotted using interval arithmetic,
+	 * which marks every pixel the function passes through and draws no lines
+	 * across poles. Takes precedence over adaptive sampling.
+	 * 
+	 * @param value True if interval arithmetic should be used.
+	 * @see IntervalSampler
+	 */
+	public void setIntervalArithmetic(boolean value) {
+		interval = value;
+	}
+
 	/**
 	 * Initializes drawing area.
 	 */
@@ -213,20 +409,320 @@ public class CoordinateSystem extends JPanel {
 	}
 
 	/**
-	 * Draws X and Y axes.
+	 * Checks if function can be parsed, so errors are reported before the
+	 * function is rendered in background.
+	 * 
+	 * @param function Function to check.
+	 * @throws ExpressionException If function is not a valid expression.
+	 */
+	private void validate(String function) {
+		if (ImplicitPlotter.isRelation(function)) {
+			ImplicitPlotter.compile(function);
+			return;
+		}
+
+		try {
+			new FunctionExpression(function).getValue(0);
+		} catch (ArithmeticException e) {
+			// function is valid, just undefined in 0
+		}
+	}
+
+	/**
+	 * Starts rendering frame with given functions in current view, cancels the
+	 * frame being rendered. Tiles cached for the view are displayed at once.
+	 * 
+	 * @param functions Functions to draw.
+	 */
+	private void render(List<String> functions) {
+		View view = new View(center.getX(), center.getY(), unitLength, grid, adaptive, interval, functions);
+		long frame = lastFrame.incrementAndGet();
+
+		if (rendering != null) {
+			rendering.cancel(true);
+		}
+
+		current = view;
+		repaint();
+		rendering = renderer.submit(() -> renderFrame(view, frame));
+	}
+
+	/**
+	 * Renders missing tiles of the frame and displays it unless newer frame
+	 * was requested in the meantime.
+	 * 
+	 * @param view View to render.
+	 * @param frame Number of the frame.
+	 */
+	private void renderFrame(View view, long frame) {
+		renderTiles(view, frame);
+
+		if (superseded(frame)) {
+			return;
+		}
+
+		BufferedImage image = compose(view);
+
+		if (image != null) {
+			canvas = image;
+			repaint();
+		}
+	}
+
+	/**
+	 * Renders tiles of the view which are not cached. Columns are rendered in
+	 * parallel, tiles of one column one by one: they share range of x, so
+	 * functions are discretized once per column.
+	 * 
+	 * @param view View to render.
+	 * @param frame Number of the frame, negative if it can't be superseded.
+	 */
+	private void renderTiles(View view, long frame) {
+		String layer = view.layer();
+		List<List<long[]>> columns = new ArrayList<>();
+
+		for (long column = firstTile(view.originX()); column <= lastTile(view.originX(), width); column++) {
+			List<long[]> missing = new ArrayList<>();
+
+			for (long row = firstTile(view.originY()); row <= lastTile(view.originY(), height); row++) {
+				if (tiles.get(layer, column, row) == null) {
+					missing.add(new long[] { column, row });
+				}
+			}
+
+			if (!missing.isEmpty()) {
+				columns.add(missing);
+			}
+		}
+
+		columns.parallelStream().forEach(missing -> {
+			SampledFunction[] samples = superseded(frame) ? null : discretize(view, missing.get(0)[0], frame);
+
+			for (long[] tile : missing) {
+				BufferedImage image = samples == null || superseded(frame) ? null
+						: renderTile(view, tile[0], tile[1], samples, frame);
+
+				if (image != null) {
+					tiles.put(layer, tile[0], tile[1], image);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Composes image of the view from cached tiles.
+	 * 
+	 * @param view View to compose.
+	 * @return Image or null if some tile is not cached.
+	 */
+	private BufferedImage compose(View view) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		boolean complete = drawTiles(g, view);
+		g.dispose();
+
+		return complete == true ? image : null;
+	}
+
+	/**
+	 * Draws cached tiles of the view. Nothing is drawn unless all of them are
+	 * cached.
+	 * 
+	 * @param g Graphics to draw on.
+	 * @param view View to draw.
+	 * @return True if tiles were drawn.
+	 */
+	private boolean drawTiles(Graphics g, View view) {
+		String layer = view.layer();
+		long originX = view.originX();
+		long originY = view.originY();
+		List<BufferedImage> images = new ArrayList<>();
+
+		for (long column = firstTile(originX); column <= lastTile(originX, width); column++) {
+			for (long row = firstTile(originY); row <= lastTile(originY, height); row++) {
+				BufferedImage image = tiles.get(layer, column, row);
+
+				if (image == null) {
+					return false;
+				}
+
+				images.add(image);
+			}
+		}
+
+		int i = 0;
+
+		for (long column = firstTile(originX); column <= lastTile(originX, width); column++) {
+			for (long row = firstTile(originY); row <= lastTile(originY, height); row++) {
+				g.drawImage(images.get(i++), (int) (column * tileSize - originX), (int) (row * tileSize - originY),
+						null);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns maximal number of tiles covering view of given size.
+	 * 
+	 * @param width Width of the view.
+	 * @param height Height of the view.
+	 * @return Number of tiles.
+	 */
+	private static int visibleTiles(int width, int height) {
+		return (width / tileSize + 2) * (height / tileSize + 2);
+	}
+
+	/**
+	 * Returns first tile covering range of pixels starting at given origin.
+	 * 
+	 * @param origin First pixel of the range.
+	 * @return Index of tile.
+	 */
+	private static long firstTile(long origin) {
+		return Math.floorDiv(origin, tileSize);
+	}
+
+	/**
+	 * Returns last tile covering range of pixels starting at given origin.
+	 * 
+	 * @param origin First pixel of the range.
+	 * @param length Length of the range.
+	 * @return Index of tile.
+	 */
+	private static long lastTile(long origin, int length) {
+		return Math.floorDiv(origin + length - 1, tileSize);
+	}
+
+	/**
+	 * Discretizes functions of the view drawn from samples in range of x of
+	 * given tile column.
+	 * 
+	 * @param view Rendered view.
+	 * @param column Column of tiles.
+	 * @param frame Number of the frame, negative if it can't be superseded.
+	 * @return Samples by function index, null for relations, functions drawn
+	 *         using interval arithmetic and invalid functions, or null if
+	 *         frame was superseded.
+	 */
+	private SampledFunction[] discretize(View view, long column, long frame) {
+		Tile tile = new Tile(view, column * tileSize, 0);
+		SampledFunction[] samples = new SampledFunction[view.functions.size()];
+
+		if (view.interval == true) {
+			return samples;
+		}
+
+		// many functions are discretized together, computing common parts once
+		boolean group = view.adaptive == false && view.functions.size() > 1
+				&& view.functions.stream().noneMatch(ImplicitPlotter::isRelation)
+				&& view.functions.stream().noneMatch(f -> stores.containsKey(CompiledExpressionCache.normalize(f)));
+		FunctionGroupDiscretizer groupDisc = null;
+
+		if (group == true) {
+			groupDisc = new FunctionGroupDiscretizer();
+			groupDisc.setCache(cache);
+			groupDisc.setFunctions(view.functions);
+			groupDisc.setInterval(tile.left(), tile.right());
+			groupDisc.setResolution((double) 1 / view.unitLength);
+		}
+
+		for (int i = 0; i < samples.length; i++) {
+			if (superseded(frame)) {
+				return null;
+			}
+
+			if (ImplicitPlotter.isRelation(view.functions.get(i))) {
+				continue;
+			}
+
+			try {
+				samples[i] = group == true ? groupDisc.getSamples(i) : discretize(tile, view.functions.get(i));
+			} catch (ExpressionException e) {
+				// reported when function was added
+			}
+		}
+
+		return samples;
+	}
+
+	/**
+	 * Renders single tile.
+	 * 
+	 * @param view Rendered view.
+	 * @param column Column of the tile.
+	 * @param row Row of the tile.
+	 * @param samples Samples of functions in the column of the tile.
+	 * @param frame Number of the frame, negative if it can't be superseded.
+	 * @return Tile or null if frame was superseded.
 	 */
-	private void drawAxes() {
-		Graphics g = canvas.getGraphics();
+	private BufferedImage renderTile(View view, long column, long row, SampledFunction[] samples, long frame) {
+		Tile tile = new Tile(view, column * tileSize, row * tileSize);
+		BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+
+		g.setColor(backgroundColor);
+		g.fillRect(0, 0, tileSize, tileSize);
+		drawAxes(g, tile);
 
+		for (int i = 0; i < view.functions.size(); i++) {
+			if (superseded(frame)) {
+				g.dispose();
+				return null;
+			}
+
+			g.setColor(graphColors.get(i % graphColors.size()));
+
+			try {
+				if (ImplicitPlotter.isRelation(view.functions.get(i))) {
+					drawRelation(g, tile, view.functions.get(i));
+				} else if (view.interval == true) {
+					drawIntervals(g, tile, view.functions.get(i));
+				} else if (samples[i] != null) {
+					drawSamples(g, tile, samples[i]);
+				}
+			} catch (ExpressionException e) {
+				// reported when function was added
+			}
+		}
+
+		g.dispose();
+
+		return image;
+	}
+
+	/**
+	 * Checks if rendering of given frame should be abandoned.
+	 * 
+	 * @param frame Number of the frame, negative if it can't be superseded.
+	 * @return True if newer frame was requested.
+	 */
+	private boolean superseded(long frame) {
+		return frame >= 0 && (Thread.currentThread().isInterrupted() || frame != lastFrame.get());
+	}
+
+	/**
+	 * Draws X and Y axes, their scales and the grid.
+	 * 
+	 * @param g Graphics to draw on.
+	 * @param tile Rendered tile.
+	 */
+	private void drawAxes(Graphics g, Tile tile) {
 		g.setColor(axesColor);
 		Font font = g.getFont().deriveFont(15.0f);
 		g.setFont(font);
 
+		int unitLength = tile.view.unitLength;
+		int axisRow = tile.row(0);
+		int axisColumn = tile.column(0);
+		boolean xAxis = axisRow >= -labelMargin && axisRow <= tileSize + labelMargin;
+		boolean yAxis = axisColumn >= -labelMargin && axisColumn <= tileSize + labelMargin;
+
 		// X axis
-		g.drawLine(0, yToPix(0), width, yToPix(0));
+		g.drawLine(0, axisRow, tileSize, axisRow);
 
 		// Y axis
-		g.drawLine(xToPix(0), 0, xToPix(0), height);
+		g.drawLine(axisColumn, 0, axisColumn, tileSize);
 
 		// Length of line indicating point on axis
 		int scaleLength = 10;
@@ -234,154 +730,362 @@ public class CoordinateSystem extends JPanel {
 		// How frequent points should be marked on axis
 		int scaleValueInterval = 50 / unitLength;
 
-		// First visible point from the left and from the bottom
-		double visibleLeft = (double) Math.round(pixToX(0)) + center.getX();
-		double visibleBottom = (double) Math.round(pixToY(0)) + center.getY();
+		// Points which can be drawn or labeled in the tile
+		long first = Math.floorDiv(tile.x0 - labelMargin, unitLength);
+		long last = Math.floorDiv(tile.x0 + tileSize + labelMargin, unitLength);
 
 		// X axis scale
-		CSPoint leftmost = new CSPoint(visibleLeft, 0.0);
-		int scaleYpix1 = yToPix(0) + scaleLength / 2;
-		int scaleYpix2 = yToPix(0) - scaleLength / 2;
-		int scaleXpix;
-
-		while (xToPix(leftmost.getX()) < width) {
-			scaleXpix = xToPix(leftmost.getX());
+		for (long k = first; k <= last; k++) {
+			if (k != 0 && (scaleValueInterval == 0 || k % scaleValueInterval == 0)) {
+				int scaleXpix = tile.column(k);
 
-			if (leftmost.getX() != 0 && ((leftmost.getX() % scaleValueInterval) == 0 || scaleValueInterval == 0)) {
-				if (grid == true) {
+				if (tile.view.grid == true) {
 					g.setColor(gridColor);
-					g.drawLine(scaleXpix, 0, scaleXpix, height);
+					g.drawLine(scaleXpix, 0, scaleXpix, tileSize);
 				}
 
-				g.setColor(axesColor);
-				g.drawLine(scaleXpix, scaleYpix1, scaleXpix, scaleYpix2);
-				g.drawString(String.valueOf((int) (double) leftmost.getX()), scaleXpix - 3, scaleYpix1 + 17);
+				if (xAxis == true) {
+					g.setColor(axesColor);
+					g.drawLine(scaleXpix, axisRow + scaleLength / 2, scaleXpix, axisRow - scaleLength / 2);
+					g.drawString(String.valueOf(k), scaleXpix - 3, axisRow + scaleLength / 2 + 17);
+				}
 			}
-
-			leftmost.move(1.0, 0.0);
 		}
 
-		// Y axis scale
-		CSPoint upmost = new CSPoint(0.0, visibleBottom);
-		int scaleXpix1 = xToPix(0) + scaleLength / 2;
-		int scaleXpix2 = xToPix(0) - scaleLength / 2;
-		int scaleYpix;
+		first = Math.floorDiv(-(tile.y0 + tileSize + labelMargin), unitLength);
+		last = Math.floorDiv(-(tile.y0 - labelMargin), unitLength);
 
-		while (yToPix(upmost.getY()) > 0) {
-			scaleYpix = yToPix(upmost.getY());
+		// Y axis scale
+		for (long k = first; k <= last; k++) {
+			if (k != 0 && (scaleValueInterval == 0 || k % scaleValueInterval == 0)) {
+				int scaleYpix = tile.row(k);
 
-			if (upmost.getY() != 0 && ((upmost.getY() % scaleValueInterval) == 0 || scaleValueInterval == 0)) {
-				if (grid == true) {
+				if (tile.view.grid == true) {
 					g.setColor(gridColor);
-					g.drawLine(0, scaleYpix, width, scaleYpix);
+					g.drawLine(0, scaleYpix, tileSize, scaleYpix);
 				}
 
-				g.setColor(axesColor);
-				g.drawLine(scaleXpix1, scaleYpix, scaleXpix2, scaleYpix);
-				g.drawString(String.valueOf((int) (double) upmost.getY()), scaleXpix1 + 7, scaleYpix + 5);
+				if (yAxis == true) {
+					g.setColor(axesColor);
+					g.drawLine(axisColumn + scaleLength / 2, scaleYpix, axisColumn - scaleLength / 2, scaleYpix);
+					g.drawString(String.valueOf(k), axisColumn + scaleLength / 2 + 7, scaleYpix + 5);
+				}
 			}
-
-			upmost.move(0.0, 1.0);
 		}
-
-		g.dispose();
-		repaint();
 	}
 
 	/**
-	 * Draws given function.
+	 * Discretizes given function in the tile.
 	 * 
-	 * @param function Function to draw.
+	 * @param tile Rendered tile.
+	 * @param function Function to discretize.
+	 * @return Discretized points.
 	 */
-	private void drawFunction(String function) {
-		Graphics g = canvas.getGraphics();
+	private SampledFunction discretize(Tile tile, String function) {
+		FunctionDiscretizer disc = new FunctionDiscretizer();
+		disc.setCache(cache);
+		disc.setStore(stores.get(CompiledExpressionCache.normalize(function)));
+		disc.setFunction(function);
+		disc.setAdaptive(tile.view.adaptive);
+		disc.setInterval(tile.left(), tile.right());
+		disc.setResolution((double) 1 / tile.view.unitLength);
 
-		g.setColor(currentColor);
+		return disc.getSamples();
+	}
 
-		double visibleLeft = (double) Math.floor(pixToX(0)) + center.getX();
-		double visibleRight = (double) Math.ceil(pixToX(width)) + center.getX();
+	/**
+	 * Draws discretized function. Lines reaching further than neighboring
+	 * tiles are not drawn, as they connect sides of discontinuities.
+	 * 
+	 * @param g Graphics to draw on.
+	 * @param tile Rendered tile.
+	 * @param samples Points of function.
+	 */
+	private void drawSamples(Graphics g, Tile tile, SampledFunction samples) {
+		double[] xs = samples.getXs();
+		double[] ys = samples.getYs();
 
-		disc.setFunction(function);
-		disc.setInterval(visibleLeft, visibleRight);
-		disc.setResolution((double) 1 / (unitLength));
-		List<CSPoint> points = disc.getPoints();
+		if (samples.size() == 0) {
+			return;
+		}
 
-		CSPoint point = points.get(0);
-		int lastX = xToPix(point.getX());
-		int lastY = point.getY() != null ? yToPix(point.getY()) : 0;
+		boolean lastDefined = samples.isDefined(0);
+		int lastX = tile.column(xs[0]);
+		int lastY = lastDefined ? tile.row(ys[0]) : 0;
 		int currentX;
 		int currentY;
-		boolean lastNull;
-		boolean currentNull;
+		boolean currentDefined;
 
-		for (int i = 1; i < points.size(); i++) {
-			lastNull = point.getY() != null ? true : false;
-			point = points.get(i);
-			currentNull = point.getY() != null ? true : false;
-			currentX = xToPix(point.getX());
-			currentY = point.getY() != null ? yToPix(point.getY()) : 0;
+		for (int i = 1; i < samples.size(); i++) {
+			currentDefined = samples.isDefined(i);
+			currentX = tile.column(xs[i]);
+			currentY = currentDefined ? tile.row(ys[i]) : 0;
 
-			if (lastNull && currentNull && ((lastY >= 0 && lastY <= height) || (currentY >= 0 && currentY <= height))) {
+			if (lastDefined && currentDefined && Math.min(lastY, currentY) <= tileSize
+					&& Math.max(lastY, currentY) >= 0
+					&& ((lastY >= -tileSize && lastY <= 2 * tileSize)
+							|| (currentY >= -tileSize && currentY <= 2 * tileSize))) {
 				g.drawLine(lastX, lastY, currentX, currentY);
 			}
 
 			lastX = currentX;
 			lastY = currentY;
+			lastDefined = currentDefined;
 		}
-
-		g.dispose();
-		repaint();
 	}
 
 	/**
-	 * Sets given color as current graph color.
+	 * Draws function using interval arithmetic. Functions with operators or
+	 * functions other than built-ins are discretized instead.
 	 * 
-	 * @param color Color to set.
+	 * @param g Graphics to draw on.
+	 * @param tile Rendered tile.
+	 * @param function Function to draw.
 	 */
-	private void setColor(Color color) {
-		currentColor = color;
+	private void drawIntervals(Graphics g, Tile tile, String function) {
+		CompiledExpression compiled = CompiledExpressionCache.getDefault().get(function);
+
+		if (compiled.isBuiltIn() == false) {
+			drawSamples(g, tile, discretize(tile, function));
+			return;
+		}
+
+		boolean[] pixels = new boolean[tileSize * tileSize];
+		new IntervalSampler(compiled).sample(tile.x(0), tile.y(tileSize), (double) 1 / tile.view.unitLength,
+				tileSize, tileSize, pixels);
+		drawPixels(g, pixels);
 	}
 
 	/**
-	 * Calculates pixel value of given X coordinate.
+	 * Draws implicit relation of x and y.
 	 * 
-	 * @param x X coordinate.
-	 * @return Pixels.
+	 * @param g Graphics to draw on.
+	 * @param tile Rendered tile.
+	 * @param relation Relation to draw.
 	 */
-	private int xToPix(double x) {
-		return (width / 2) + (int) ((double) unitLength * (x - center.getX()));
+	private void drawRelation(Graphics g, Tile tile, String relation) {
+		boolean[] pixels = new boolean[tileSize * tileSize];
+		new ImplicitPlotter(ImplicitPlotter.compile(relation)).sample(tile.x(0), tile.y(tileSize),
+				(double) 1 / tile.view.unitLength, tileSize, tileSize, pixels);
+		drawPixels(g, pixels);
 	}
 
 	/**
-	 * Calculates pixel value of given Y coordinate.
+	 * Draws marked pixels of a tile, runs of pixels in a column are drawn as
+	 * lines.
 	 * 
-	 * @param y Y coordinate.
-	 * @return Pixels.
+	 * @param g Graphics to draw on.
+	 * @param pixels Marked pixels, index column * tileSize + row, row 0 at the
+	 *        bottom.
 	 */
-	private int yToPix(double y) {
-		return (height / 2) - (int) ((double) unitLength * (y - center.getY()));
+	private void drawPixels(Graphics g, boolean[] pixels) {
+		for (int column = 0; column < tileSize; column++) {
+			int offset = column * tileSize;
+
+			for (int row = 0; row < tileSize; row++) {
+				if (pixels[offset + row] == false) {
+					continue;
+				}
+
+				int last = row;
+
+				while (last + 1 < tileSize && pixels[offset + last + 1] == true) {
+					last++;
+				}
+
+				g.drawLine(column, tileSize - 1 - row, column, tileSize - 1 - last);
+				row = last;
+			}
+		}
 	}
 
 	/**
-	 * Calculates X coordinate from pixel value.
+	 * Snapshot of coordinate system state used to render a frame.
 	 * 
-	 * @param pix Pixels.
-	 * @return X Coordinate.
+	 * Pixels of the plane are numbered independently of the view, point (x, y)
+	 * lies in pixel column round(x * unitLength) and row round(-y *
+	 * unitLength). View shows pixels starting at its origin.
 	 */
-	private double pixToX(int pix) {
-		double half = width / 2;
-		return half <= pix ? (double) (pix - half) / unitLength : (double) -(half - pix) / unitLength;
+	private class View {
+
+		/** X coordinate of center point. */
+		private final double centerX;
+
+		/** Y coordinate of center point. */
+		private final double centerY;
+
+		/** Width of distance between two neighboring points. */
+		private final int unitLength;
+
+		/** Whether grid should be drawn or not. */
+		private final boolean grid;
+
+		/** Whether functions should be sampled adaptively or not. */
+		private final boolean adaptive;
+
+		/** Whether functions should be plotted using interval arithmetic. */
+		private final boolean interval;
+
+		/** Functions to draw. */
+		private final List<String> functions;
+
+		/** Version of function registry when view was created. */
+		private final long version = ExpFunctionRegistry.getDefault().getVersion();
+
+		/**
+		 * Initializes view.
+		 * 
+		 * @param centerX X coordinate of center point.
+		 * @param centerY Y coordinate of center point.
+		 * @param unitLength Width of distance between two neighboring points.
+		 * @param grid Whether grid should be drawn.
+		 * @param adaptive Whether functions should be sampled adaptively.
+		 * @param interval Whether functions should be plotted using interval
+		 *        arithmetic.
+		 * @param functions Functions to draw.
+		 */
+		View(double centerX, double centerY, int unitLength, boolean grid, boolean adaptive, boolean interval,
+				List<String> functions) {
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.unitLength = unitLength;
+			this.grid = grid;
+			this.adaptive = adaptive;
+			this.interval = interval;
+			this.functions = functions;
+		}
+
+		/**
+		 * Returns column of the pixel shown at the left edge.
+		 * 
+		 * @return Column of pixel.
+		 */
+		private long originX() {
+			return Math.round(unitLength * centerX) - width / 2;
+		}
+
+		/**
+		 * Returns row of the pixel shown at the top edge.
+		 * 
+		 * @return Row of pixel.
+		 */
+		private long originY() {
+			return -Math.round(unitLength * centerY) - height / 2;
+		}
+
+		/**
+		 * Returns key of the view's layer, tiles of views with equal layers
+		 * are identical.
+		 * 
+		 * @return Key of layer.
+		 */
+		private String layer() {
+			return version + "|" + unitLength + "|" + grid + "|" + adaptive + "|" + interval + "|"
+					+ String.join("\n", functions);
+		}
+
 	}
 
 	/**
-	 * Calculates Y coordinate from pixel value.
-	 * 
-	 * @param pix Pixels.
-	 * @return Y Coordinate.
+	 * Tile being rendered, converts coordinates to pixels of the tile.
 	 */
-	private double pixToY(int pix) {
-		double half = height / 2;
-		return half < pix ? (double) (pix - half) / unitLength : (double) -(half - pix) / unitLength;
+	private static class Tile {
+
+		/** Maximal distance of drawn pixel from the tile. */
+		private static final double maxDistance = 1 << 20;
+
+		/** Rendered view. */
+		private final View view;
+
+		/** Column of the left pixel of the tile. */
+		private final long x0;
+
+		/** Row of the top pixel of the tile. */
+		private final long y0;
+
+		/**
+		 * Initializes tile.
+		 * 
+		 * @param view Rendered view.
+		 * @param x0 Column of the left pixel of the tile.
+		 * @param y0 Row of the top pixel of the tile.
+		 */
+		Tile(View view, long x0, long y0) {
+			this.view = view;
+			this.x0 = x0;
+			this.y0 = y0;
+		}
+
+		/**
+		 * Calculates column in the tile of given X coordinate.
+		 * 
+		 * @param x X coordinate.
+		 * @return Column, may lie outside of the tile.
+		 */
+		private int column(double x) {
+			return clamp(Math.floor(view.unitLength * x + 0.5) - x0);
+		}
+
+		/**
+		 * Calculates row in the tile of given Y coordinate.
+		 * 
+		 * @param y Y coordinate.
+		 * @return Row, may lie outside of the tile.
+		 */
+		private int row(double y) {
+			return clamp(Math.floor(-view.unitLength * y + 0.5) - y0);
+		}
+
+		/**
+		 * Calculates X coordinate of given column.
+		 * 
+		 * @param column Column in the tile.
+		 * @return X coordinate.
+		 */
+		private double x(int column) {
+			return (double) (x0 + column) / view.unitLength;
+		}
+
+		/**
+		 * Calculates Y coordinate of given row.
+		 * 
+		 * @param row Row in the tile.
+		 * @return Y coordinate.
+		 */
+		private double y(int row) {
+			return (double) -(y0 + row) / view.unitLength;
+		}
+
+		/**
+		 * Returns X coordinate of the left end of discretized interval, which
+		 * reaches one pixel into the neighboring tile.
+		 * 
+		 * @return X coordinate.
+		 */
+		private double left() {
+			return x(-1);
+		}
+
+		/**
+		 * Returns X coordinate of the right end of discretized interval, which
+		 * reaches one pixel into the neighboring tile.
+		 * 
+		 * @return X coordinate.
+		 */
+		private double right() {
+			return x(tileSize);
+		}
+
+		/**
+		 * Clamps pixel to range which can be drawn.
+		 * 
+		 * @param pixel Pixel relative to the tile.
+		 * @return Clamped pixel.
+		 */
+		private static int clamp(double pixel) {
+			return (int) Math.max(-maxDistance, Math.min(maxDistance, pixel));
+		}
+
 	}
 
 }
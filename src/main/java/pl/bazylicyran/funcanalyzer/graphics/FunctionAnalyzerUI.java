@@ -12,6 +12,10 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -19,10 +23,15 @@ import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 
 import pl.bazylicyran.funcanalyzer.FunctionAnalyzer;
+import pl.bazylicyran.funcanalyzer.math.AnalysisPoint;
 import pl.bazylicyran.funcanalyzer.math.FunctionTransformer;
+import pl.bazylicyran.funcanalyzer.math.IntegrationResult;
 import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
 
 /**
@@ -89,11 +98,15 @@ public class FunctionAnalyzerUI extends JPanel {
 		JLabel expressionLabel = new JLabel("Functions");
 		addElement(leftPane, expressionLabel, 0, 0, 4, 1, 0, 0, anchor, fill, insets);
 
-		// Expression text field and button
+		// Expression text field and buttons
 		JTextField expressionField = new JTextField();
 		addElement(leftPane, expressionField, 0, 1, 4, 1, 0, 0, anchor, fill, insets);
 		JButton expressionButton = new JButton("Draw");
-		addElement(leftPane, expressionButton, 0, 2, 4, 1, 0, 0, anchor, fill, insets);
+		insets = new Insets(borderWidth / 2, 0, borderWidth / 2, 5);
+		addElement(leftPane, expressionButton, 0, 2, 2, 1, 0, 0, anchor, fill, insets);
+		JButton derivativeButton = new JButton("Derivative");
+		insets = new Insets(borderWidth / 2, 5, borderWidth / 2, 0);
+		addElement(leftPane, derivativeButton, 2, 2, 2, 1, 0, 0, anchor, fill, insets);
 		expressionField.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				drawFunction(expressionField.getText());
@@ -104,6 +117,11 @@ public class FunctionAnalyzerUI extends JPanel {
 				drawFunction(expressionField.getText());
 			}
 		});
+		derivativeButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				addDerivative(expressionField.getText());
+			}
+		});
 
 		// Add button
 		JButton addButton = new JButton("Add");
@@ -186,14 +204,24 @@ public class FunctionAnalyzerUI extends JPanel {
 
 		// Reset button
 		JButton resetButton = new JButton("Reset");
-		insets = new Insets(borderWidth / 2, 0, borderWidth / 2, 0);
-		addElement(leftPane, resetButton, 0, 7, 4, 1, 0, 0, anchor, fill, insets);
+		insets = new Insets(borderWidth / 2, 0, borderWidth / 2, 5);
+		addElement(leftPane, resetButton, 0, 7, 2, 1, 0, 0, anchor, fill, insets);
 		resetButton.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				resetMovement();
 			}
 		});
 
+		// Analyze button
+		JButton analyzeButton = new JButton("Analyze");
+		insets = new Insets(borderWidth / 2, 5, borderWidth / 2, 0);
+		addElement(leftPane, analyzeButton, 2, 7, 2, 1, 0, 0, anchor, fill, insets);
+		analyzeButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				analyze(analyzeButton);
+			}
+		});
+
 		// Toggle grid
 		insets = new Insets(borderWidth / 4, 0, 0, 0);
 		JCheckBox gridCheck = new JCheckBox("Show grid");
@@ -206,21 +234,43 @@ public class FunctionAnalyzerUI extends JPanel {
 			}
 		});
 
+		// Toggle adaptive sampling
+		JCheckBox adaptiveCheck = new JCheckBox("Adaptive sampling");
+		addElement(leftPane, adaptiveCheck, 0, 9, 4, 1, 0, 0, anchor, fill, insets);
+		adaptiveCheck.addItemListener(new ItemListener() {
+			@Override
+			public void itemStateChanged(ItemEvent e) {
+				coordinateSystem.setAdaptive(adaptiveCheck.isSelected());
+				coordinateSystem.drawFunctions();
+			}
+		});
+
+		// Toggle interval arithmetic
+		JCheckBox intervalCheck = new JCheckBox("Interval arithmetic");
+		addElement(leftPane, intervalCheck, 0, 10, 4, 1, 0, 0, anchor, fill, insets);
+		intervalCheck.addItemListener(new ItemListener() {
+			@Override
+			public void itemStateChanged(ItemEvent e) {
+				coordinateSystem.setIntervalArithmetic(intervalCheck.isSelected());
+				coordinateSystem.drawFunctions();
+			}
+		});
+
 		// Function transformations label
 		JLabel transLabel = new JLabel("Function transformations");
 		insets = new Insets(borderWidth, 0, borderWidth / 2, 0);
-		addElement(leftPane, transLabel, 0, 9, 4, 1, 0, 0, anchor, fill, insets);
+		addElement(leftPane, transLabel, 0, 11, 4, 1, 0, 0, anchor, fill, insets);
 
 		// Function transformations checkboxes
 		insets = new Insets(borderWidth / 4, 0, 0, 0);
 		JCheckBox symmetryXcheck = new JCheckBox("X axis symmetry");
-		addElement(leftPane, symmetryXcheck, 0, 10, 4, 1, 0, 0, anchor, fill, insets);
+		addElement(leftPane, symmetryXcheck, 0, 12, 4, 1, 0, 0, anchor, fill, insets);
 		JCheckBox symmetryYcheck = new JCheckBox("Y axis symmetry");
-		addElement(leftPane, symmetryYcheck, 0, 11, 4, 1, 0, 0, anchor, fill, insets);
+		addElement(leftPane, symmetryYcheck, 0, 13, 4, 1, 0, 0, anchor, fill, insets);
 		JCheckBox absXcheck = new JCheckBox("Absolute value of x");
-		addElement(leftPane, absXcheck, 0, 12, 4, 1, 0, 0, anchor, fill, insets);
+		addElement(leftPane, absXcheck, 0, 14, 4, 1, 0, 0, anchor, fill, insets);
 		JCheckBox absYcheck = new JCheckBox("Absolute value of y");
-		addElement(leftPane, absYcheck, 0, 13, 4, 1, 0, 1, anchor, fill, insets);
+		addElement(leftPane, absYcheck, 0, 15, 4, 1, 0, 1, anchor, fill, insets);
 
 		ItemListener checkboxListener = new ItemListener() {
 			@Override
@@ -320,6 +370,21 @@ public class FunctionAnalyzerUI extends JPanel {
 		}
 	}
 
+	/**
+	 * Draws derivative of function on CoordinateSystem without clearing.
+	 * 
+	 * @param function Function to differentiate.
+	 */
+	private void addDerivative(String function) {
+		if (function != null && !function.isEmpty()) {
+			try {
+				coordinateSystem.addDerivative(transform(function));
+			} catch (ExpressionException e) {
+				JOptionPane.showMessageDialog(this, e.getMessage(), "Expression error", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+	}
+
 	/**
 	 * Clears CoordinateSystem.
 	 */
@@ -378,6 +443,73 @@ public class FunctionAnalyzerUI extends JPanel {
 		coordinateSystem.resetMovement();
 	}
 
+	/**
+	 * Show characteristic points of functions in visible interval. Points are
+	 * found in background, so the UI stays responsive, and the button is
+	 * disabled until they are shown.
+	 * 
+	 * @param button Button starting analysis.
+	 */
+	private void analyze(JButton button) {
+		List<String> functions = new ArrayList<>(coordinateSystem.getFunctions());
+		List<Callable<IntegrationResult>> integrals = new ArrayList<>();
+
+		for (int i = 0; i < functions.size(); i++) {
+			integrals.add(coordinateSystem.integration(i));
+		}
+
+		Callable<List<AnalysisPoint>> analysis = coordinateSystem.analysis();
+		button.setEnabled(false);
+
+		new SwingWorker<String, Void>() {
+
+			@Override
+			protected String doInBackground() throws Exception {
+				StringBuilder message = new StringBuilder();
+
+				for (int i = 0; i < functions.size(); i++) {
+					IntegrationResult integral = integrals.get(i).call();
+
+					if (integral != null) {
+						message.append(functions.get(i)).append(": integral ").append(integral).append('\n');
+					}
+				}
+
+				for (AnalysisPoint point : analysis.call()) {
+					message.append(functions.get(point.getFunction()));
+
+					if (point.getOther() >= 0) {
+						message.append(" and ").append(functions.get(point.getOther()));
+					}
+
+					message.append(": ").append(point).append('\n');
+				}
+
+				if (message.length() == 0) {
+					message.append("No points found in visible interval.");
+				}
+
+				return message.toString();
+			}
+
+			@Override
+			protected void done() {
+				button.setEnabled(true);
+
+				try {
+					JTextArea text = new JTextArea(get(), 20, 50);
+					text.setEditable(false);
+					JOptionPane.showMessageDialog(FunctionAnalyzerUI.this, new JScrollPane(text), "Analysis",
+							JOptionPane.INFORMATION_MESSAGE);
+				} catch (InterruptedException | ExecutionException e) {
+					JOptionPane.showMessageDialog(FunctionAnalyzerUI.this, "Analysis failed: " + e.getMessage(),
+							"Analysis error", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+
+		}.execute();
+	}
+
 	/**
 	 * Apply set transformations to function.
 	 * 
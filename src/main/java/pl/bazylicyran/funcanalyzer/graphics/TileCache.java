@@ -0,0 +1,95 @@
+package pl.bazylicyran.funcanalyzer.graphics;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches rendered tiles of coordinate system, so panning renders only newly
+ * revealed tiles and returning to previous zoom level doesn't render
+ * anything.
+ * 
+ * Tiles are keyed by the rendered layer, i.e. zoom level, drawing options
+ * and functions, and by their position in the plane. Number of cached tiles
+ * is bounded, least recently used tiles are evicted first.
+ * 
+ * @author Bazyli Cyran
+ */
+public class TileCache {
+
+	/** Maximal number of tiles held by the cache. */
+	private final int capacity;
+
+	/** Tiles in access order, the least recently used first. */
+	private final Map<String, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Creates cache holding at most given number of tiles.
+	 * 
+	 * @param capacity Maximal number of tiles.
+	 */
+	public TileCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns cached tile.
+	 * 
+	 * @param layer Key of rendered layer.
+	 * @param column Column of the tile.
+	 * @param row Row of the tile.
+	 * @return Tile or null if there is none.
+	 */
+	public synchronized BufferedImage get(String layer, long column, long row) {
+		return tiles.get(key(layer, column, row));
+	}
+
+	/**
+	 * Saves tile, evicting least recently used tiles if capacity is exceeded.
+	 * 
+	 * @param layer Key of rendered layer.
+	 * @param column Column of the tile.
+	 * @param row Row of the tile.
+	 * @param tile Rendered tile.
+	 */
+	public synchronized void put(String layer, long column, long row, BufferedImage tile) {
+		tiles.put(key(layer, column, row), tile);
+
+		Iterator<BufferedImage> it = tiles.values().iterator();
+
+		while (tiles.size() > capacity && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Returns number of cached tiles.
+	 * 
+	 * @return Number of tiles.
+	 */
+	public synchronized int size() {
+		return tiles.size();
+	}
+
+	/**
+	 * Removes all tiles.
+	 */
+	public synchronized void clear() {
+		tiles.clear();
+	}
+
+	/**
+	 * Creates key from layer and position of a tile.
+	 * 
+	 * @param layer Key of rendered layer.
+	 * @param column Column of the tile.
+	 * @param row Row of the tile.
+	 * @return Key.
+	 */
+	private static String key(String layer, long column, long row) {
+		return layer + "@" + column + "," + row;
+	}
+
+}
@@ -0,0 +1,221 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Samples function with density adapted to its shape.
+ * 
+ * Interval is first sampled coarsely, then every segment is recursively halved
+ * while the function bends more than tolerance (midpoint deviates from the
+ * straight line between segment ends), changes sign or becomes undefined.
+ * Segments are never narrower than pixel divided by budget, so at most budget
+ * points are taken per pixel. Segments which are still not resolved at that
+ * width and whose midpoint lies outside of the values at their ends are
+ * treated as discontinuities, so no line is drawn across poles.
+ * 
+ * @author Bazyli Cyran
+ */
+public class AdaptiveSampler {
+
+	/** Function to sample. */
+	private final DoubleUnaryOperator function;
+
+	/** Width of initial segments in pixels. */
+	private int initialStep = 8;
+
+	/** Maximal number of points per pixel. */
+	private int budget = 16;
+
+	/** Allowed deviation from straight line in pixels. */
+	private double tolerance = 0.5;
+
+	/** Allowed deviation in function units, computed for current pixel size. */
+	private double unitTolerance;
+
+	/** Minimal segment width in function units. */
+	private double minWidth;
+
+	/** Number of function evaluations in last sampling. */
+	private int evaluations;
+
+	/**
+	 * Creates sampler of given function.
+	 * 
+	 * @param function Function to sample.
+	 */
+	public AdaptiveSampler(FunctionExpression function) {
+		this.function = function::getValue;
+	}
+
+	/**
+	 * Creates sampler of compiled function evaluated in given context.
+	 * 
+	 * @param context Context of function to sample.
+	 */
+	public AdaptiveSampler(EvaluationContext context) {
+		this.function = context::getValue;
+	}
+
+	/**
+	 * Sets width of initial segments.
+	 * 
+	 * @param initialStep Width in pixels.
+	 */
+	public void setInitialStep(int initialStep) {
+		this.initialStep = initialStep;
+	}
+
+	/**
+	 * Sets maximal number of points per pixel.
+	 * 
+	 * @param budget Number of points.
+	 */
+	public void setBudget(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Sets allowed deviation of the function from straight line between
+	 * points.
+	 * 
+	 * @param tolerance Deviation in pixels.
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Returns number of function evaluations made by last sampling.
+	 * 
+	 * @return Number of evaluations.
+	 */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Samples function in given interval.
+	 * 
+	 * @param start Start of interval.
+	 * @param end End of interval.
+	 * @param pixel Size of a pixel in function units, same for both axes.
+	 * @param samples Object to save points in, its previous points are removed.
+	 */
+	public void sample(double start, double end, double pixel, SampledFunction samples) {
+		samples.clear();
+		evaluations = 0;
+		unitTolerance = tolerance * pixel;
+		minWidth = pixel / budget;
+
+		if (end < start) {
+			return;
+		}
+
+		double step = initialStep * pixel;
+		int count = (int) Math.ceil((end - start) / step);
+		double x0 = start;
+		double y0 = eval(x0);
+
+		samples.add(x0, y0);
+
+		for (int i = 1; i <= count; i++) {
+			double x1 = Math.min(start + i * step, end);
+			double y1 = eval(x1);
+
+			refine(x0, y0, x1, y1, samples);
+			samples.add(x1, y1);
+
+			x0 = x1;
+			y0 = y1;
+		}
+	}
+
+	/**
+	 * Adds points between ends of given segment, halving it as long as needed.
+	 * 
+	 * @param a Segment start.
+	 * @param fa Value at segment start.
+	 * @param b Segment end.
+	 * @param fb Value at segment end.
+	 * @param samples Object to save points in.
+	 */
+	private void refine(double a, double fa, double b, double fb, SampledFunction samples) {
+		double m = (a + b) / 2;
+		double fm = eval(m);
+
+		if (!needsRefinement(fa, fm, fb)) {
+			samples.add(m, fm);
+		} else if (b - a <= 2 * minWidth) {
+			samples.add(m, discontinuous(fa, fm, fb) ? Double.NaN : fm);
+		} else {
+			refine(a, fa, m, fm, samples);
+			samples.add(m, fm);
+			refine(m, fm, b, fb, samples);
+		}
+	}
+
+	/**
+	 * Checks if segment should be split.
+	 * 
+	 * @param fa Value at segment start.
+	 * @param fm Value at segment middle.
+	 * @param fb Value at segment end.
+	 * @return True if segment is not resolved yet.
+	 */
+	private boolean needsRefinement(double fa, double fm, double fb) {
+		boolean da = !Double.isNaN(fa);
+		boolean dm = !Double.isNaN(fm);
+		boolean db = !Double.isNaN(fb);
+
+		// definedness changes
+		if (da != dm || dm != db) {
+			return true;
+		}
+
+		// undefined everywhere
+		if (!dm) {
+			return false;
+		}
+
+		// sign changes
+		if ((fa < 0 && fb > 0) || (fa > 0 && fb < 0)) {
+			return true;
+		}
+
+		// curvature, deviation of the middle from straight line
+		return Math.abs(fm - (fa + fb) / 2) > unitTolerance;
+	}
+
+	/**
+	 * Checks if unresolved segment of minimal width is a discontinuity, i.e. its
+	 * middle is not between values at its ends.
+	 * 
+	 * @param fa Value at segment start.
+	 * @param fm Value at segment middle.
+	 * @param fb Value at segment end.
+	 * @return True if line should not be drawn across the segment.
+	 */
+	private boolean discontinuous(double fa, double fm, double fb) {
+		double low = Math.min(fa, fb) - unitTolerance;
+		double high = Math.max(fa, fb) + unitTolerance;
+
+		return fm < low || fm > high;
+	}
+
+	/**
+	 * Evaluates function.
+	 * 
+	 * @param x Argument.
+	 * @return Value of function or NaN if it is undefined.
+	 */
+	private double eval(double x) {
+		evaluations++;
+
+		try {
+			return function.applyAsDouble(x);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Locale;
+
+/**
+ * Characteristic point of a function found by FunctionAnalysis.
+ * 
+ * @author Bazyli Cyran
+ */
+public class AnalysisPoint {
+
+	/**
+	 * Kinds of characteristic points.
+	 */
+	public enum Kind {
+
+		/** Zero of a function. */
+		ZERO,
+
+		/** Local minimum. */
+		MINIMUM,
+
+		/** Local maximum. */
+		MAXIMUM,
+
+		/** Point where function changes its convexity. */
+		INFLECTION,
+
+		/** Intersection of two functions. */
+		INTERSECTION
+
+	}
+
+	/** Kind of the point. */
+	private final Kind kind;
+
+	/** X coordinate of the point. */
+	private final double x;
+
+	/** Y coordinate of the point. */
+	private final double y;
+
+	/** Index of the function. */
+	private final int function;
+
+	/** Index of the other function of intersection, -1 for other kinds. */
+	private final int other;
+
+	/**
+	 * Creates point of given function.
+	 * 
+	 * @param kind Kind of the point.
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @param function Index of the function.
+	 * @param other Index of the other function of intersection, -1 for other
+	 *        kinds.
+	 */
+	public AnalysisPoint(Kind kind, double x, double y, int function, int other) {
+		this.kind = kind;
+		this.x = x;
+		this.y = y;
+		this.function = function;
+		this.other = other;
+	}
+
+	/**
+	 * Returns kind of the point.
+	 * 
+	 * @return Kind.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns X coordinate of the point.
+	 * 
+	 * @return X coordinate.
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Returns Y coordinate of the point.
+	 * 
+	 * @return Y coordinate.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Returns index of the function in analyzed list.
+	 * 
+	 * @return Index of the function.
+	 */
+	public int getFunction() {
+		return function;
+	}
+
+	/**
+	 * Returns index of the other function of intersection.
+	 * 
+	 * @return Index of the function, -1 if point is not an intersection.
+	 */
+	public int getOther() {
+		return other;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s (%.6g, %.6g)", kind.name().toLowerCase(Locale.ROOT), x, y);
+	}
+
+}
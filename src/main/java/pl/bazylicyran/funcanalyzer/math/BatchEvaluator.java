@@ -0,0 +1,98 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+/**
+ * Evaluates function for many values of x at once without GUI.
+ * 
+ * Expression is compiled once (to bytecode if possible) and then evaluated
+ * into primitive arrays, bigger ones in blocks of points. Points where
+ * function is undefined get NaN. Single instance must not be used by multiple
+ * threads at the same time.
+ * 
+ * @author Bazyli Cyran
+ */
+public class BatchEvaluator {
+
+	/** Compiled function. */
+	private final FunctionExpression function;
+
+	/**
+	 * Compiles given function.
+	 * 
+	 * @param expression Function of x.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid.
+	 */
+	public BatchEvaluator(String expression) {
+		function = new FunctionExpression(expression);
+		function.setBytecode(true);
+
+		// compile now, so invalid expressions fail here
+		eval(0);
+	}
+
+	/**
+	 * Evaluates function of x for every given value.
+	 * 
+	 * @param expression Function of x.
+	 * @param xs Values of x.
+	 * @param out Array to save values of function in, at least as long as xs.
+	 */
+	public static void evaluate(String expression, double[] xs, double[] out) {
+		new BatchEvaluator(expression).evaluate(xs, out);
+	}
+
+	/**
+	 * Evaluates function for every given value of x.
+	 * 
+	 * @param xs Values of x.
+	 * @param out Array to save values of function in, at least as long as xs.
+	 */
+	public void evaluate(double[] xs, double[] out) {
+		evaluate(xs, out, 0, xs.length);
+	}
+
+	/**
+	 * Evaluates function for values of x with indexes from given range.
+	 * 
+	 * @param xs Values of x.
+	 * @param out Array to save values of function in, under the same indexes.
+	 * @param from Index of first value.
+	 * @param to Index after last value.
+	 */
+	public void evaluate(double[] xs, double[] out, int from, int to) {
+		function.getValues(xs, out, from, to);
+	}
+
+	/**
+	 * Evaluates function for consecutive points of a grid, x = start + i *
+	 * step.
+	 * 
+	 * @param start Value of x at grid index 0.
+	 * @param step Distance between points.
+	 * @param first Grid index of first point.
+	 * @param out Array to save values of function in, starting at index 0.
+	 * @param count Number of points.
+	 */
+	public void evaluate(double start, double step, long first, double[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			out[i] = start + (first + i) * step;
+		}
+
+		function.getValues(out, out, 0, count);
+	}
+
+	/**
+	 * Evaluates function in single point.
+	 * 
+	 * @param x Value of x.
+	 * @return Value of function or NaN if it is undefined.
+	 */
+	public double eval(double x) {
+		try {
+			return function.getValue(x);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+}
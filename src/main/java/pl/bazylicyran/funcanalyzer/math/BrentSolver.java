@@ -0,0 +1,293 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Brent's methods refining roots and minima of functions in brackets.
+ * 
+ * Root finding combines bisection with secant and inverse quadratic
+ * interpolation, minimization combines golden section search with parabolic
+ * interpolation. Both converge superlinearly for smooth functions and never
+ * slower than bisection (golden section), so they are safe for any function
+ * continuous in the bracket.
+ * 
+ * When derivative of the function is known, roots are found by Newton's
+ * method, which converges quadratically. Steps leaving the bracket or not
+ * shrinking it fast enough are replaced by bisection.
+ * 
+ * @author Bazyli Cyran
+ */
+public final class BrentSolver {
+
+	/** Maximal number of iterations. */
+	private static final int maxIterations = 100;
+
+	/** Ratio of golden section. */
+	private static final double goldenRatio = (3 - Math.sqrt(5)) / 2;
+
+	/** Square root of machine epsilon, relative precision of a minimum. */
+	private static final double sqrtEpsilon = Math.sqrt(Math.ulp(1.0));
+
+	/**
+	 * Class contains only static methods.
+	 */
+	private BrentSolver() {
+
+	}
+
+	/**
+	 * Finds root of function in bracket with values of opposite signs at its
+	 * ends.
+	 * 
+	 * @param f Function, NaN if undefined.
+	 * @param a Start of bracket.
+	 * @param b End of bracket.
+	 * @param fa Value of function at start.
+	 * @param fb Value of function at end.
+	 * @param tolerance Absolute tolerance of the root.
+	 * @return Root, NaN if function is undefined in the bracket.
+	 */
+	public static double findRoot(DoubleUnaryOperator f, double a, double b, double fa, double fb,
+			double tolerance) {
+		double c = a;
+		double fc = fa;
+		double d = b - a;
+		double e = d;
+
+		for (int i = 0; i < maxIterations; i++) {
+			if ((fb > 0) == (fc > 0)) {
+				c = a;
+				fc = fa;
+				d = b - a;
+				e = d;
+			}
+
+			// b is the best approximation, c the other end of bracket
+			if (Math.abs(fc) < Math.abs(fb)) {
+				a = b;
+				b = c;
+				c = a;
+				fa = fb;
+				fb = fc;
+				fc = fa;
+			}
+
+			double tol = 2 * Math.ulp(b) + tolerance / 2;
+			double middle = (c - b) / 2;
+
+			if (Math.abs(middle) <= tol || fb == 0) {
+				return b;
+			}
+
+			if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)) {
+				double s = fb / fa;
+				double p;
+				double q;
+
+				if (a == c) {
+					// secant
+					p = 2 * middle * s;
+					q = 1 - s;
+				} else {
+					// inverse quadratic interpolation
+					double r = fb / fc;
+					q = fa / fc;
+					p = s * (2 * middle * q * (q - r) - (b - a) * (r - 1));
+					q = (q - 1) * (r - 1) * (s - 1);
+				}
+
+				if (p > 0) {
+					q = -q;
+				} else {
+					p = -p;
+				}
+
+				if (2 * p < Math.min(3 * middle * q - Math.abs(tol * q), Math.abs(e * q))) {
+					e = d;
+					d = p / q;
+				} else {
+					d = middle;
+					e = d;
+				}
+			} else {
+				d = middle;
+				e = d;
+			}
+
+			a = b;
+			fa = fb;
+			b += Math.abs(d) > tol ? d : Math.copySign(tol, middle);
+			fb = f.applyAsDouble(b);
+
+			if (Double.isNaN(fb)) {
+				return Double.NaN;
+			}
+		}
+
+		return b;
+	}
+
+	/**
+	 * Finds root of function in bracket with values of opposite signs at its
+	 * ends using Newton's method safeguarded by bisection.
+	 * 
+	 * @param f Function, NaN if undefined.
+	 * @param derivative Derivative of the function, NaN if undefined.
+	 * @param a Start of bracket.
+	 * @param b End of bracket.
+	 * @param fa Value of function at start.
+	 * @param fb Value of function at end.
+	 * @param tolerance Absolute tolerance of the root.
+	 * @return Root, NaN if function is undefined in the bracket.
+	 */
+	public static double findRoot(DoubleUnaryOperator f, DoubleUnaryOperator derivative, double a, double b,
+			double fa, double fb, double tolerance) {
+		// function is negative at low end and positive at high end
+		double low = fa < 0 ? a : b;
+		double high = fa < 0 ? b : a;
+		double x = (a + b) / 2;
+		double step = Math.abs(b - a);
+		double lastStep = step;
+		double fx = f.applyAsDouble(x);
+		double dfx = derivative.applyAsDouble(x);
+
+		for (int i = 0; i < maxIterations; i++) {
+			if (Double.isNaN(fx)) {
+				return Double.NaN;
+			}
+
+			if (fx == 0) {
+				return x;
+			}
+
+			boolean outside = ((x - high) * dfx - fx) * ((x - low) * dfx - fx) > 0;
+
+			if (outside == true || Double.isNaN(dfx) || Math.abs(2 * fx) > Math.abs(lastStep * dfx)) {
+				lastStep = step;
+				step = (high - low) / 2;
+				x = low + step;
+			} else {
+				lastStep = step;
+				step = fx / dfx;
+				x -= step;
+			}
+
+			if (Math.abs(step) <= 2 * Math.ulp(x) + tolerance / 2) {
+				return x;
+			}
+
+			fx = f.applyAsDouble(x);
+			dfx = derivative.applyAsDouble(x);
+
+			if (fx < 0) {
+				low = x;
+			} else {
+				high = x;
+			}
+		}
+
+		return x;
+	}
+
+	/**
+	 * Finds local minimum of function in bracket.
+	 * 
+	 * @param f Function, NaN if undefined.
+	 * @param a Start of bracket.
+	 * @param b End of bracket.
+	 * @param tolerance Absolute tolerance of the minimum.
+	 * @return Point of minimum, NaN if function is undefined in the bracket.
+	 */
+	public static double findMinimum(DoubleUnaryOperator f, double a, double b, double tolerance) {
+		double x = a + goldenRatio * (b - a);
+		double w = x;
+		double v = x;
+		double fx = f.applyAsDouble(x);
+		double fw = fx;
+		double fv = fx;
+		double d = 0;
+		double e = 0;
+
+		for (int i = 0; i < maxIterations; i++) {
+			if (Double.isNaN(fx)) {
+				return Double.NaN;
+			}
+
+			double middle = (a + b) / 2;
+			double tol = sqrtEpsilon * Math.abs(x) + tolerance / 3;
+
+			if (Math.abs(x - middle) <= 2 * tol - (b - a) / 2) {
+				return x;
+			}
+
+			boolean goldenStep = true;
+
+			if (Math.abs(e) > tol) {
+				// parabola through x, w and v
+				double r = (x - w) * (fx - fv);
+				double q = (x - v) * (fx - fw);
+				double p = (x - v) * q - (x - w) * r;
+				q = 2 * (q - r);
+
+				if (q > 0) {
+					p = -p;
+				} else {
+					q = -q;
+				}
+
+				if (Math.abs(p) < Math.abs(q * e / 2) && p > q * (a - x) && p < q * (b - x)) {
+					e = d;
+					d = p / q;
+					goldenStep = false;
+
+					// not too close to the ends of bracket
+					if (x + d - a < 2 * tol || b - x - d < 2 * tol) {
+						d = Math.copySign(tol, middle - x);
+					}
+				}
+			}
+
+			if (goldenStep == true) {
+				e = x < middle ? b - x : a - x;
+				d = goldenRatio * e;
+			}
+
+			double u = x + (Math.abs(d) >= tol ? d : Math.copySign(tol, d));
+			double fu = f.applyAsDouble(u);
+
+			if (fu <= fx) {
+				if (u < x) {
+					b = x;
+				} else {
+					a = x;
+				}
+
+				v = w;
+				fv = fw;
+				w = x;
+				fw = fx;
+				x = u;
+				fx = fu;
+			} else {
+				if (u < x) {
+					a = u;
+				} else {
+					b = u;
+				}
+
+				if (fu <= fw || w == x) {
+					v = w;
+					fv = fw;
+					w = u;
+					fw = fu;
+				} else if (fu <= fv || v == x || v == w) {
+					v = u;
+					fv = fu;
+				}
+			}
+		}
+
+		return x;
+	}
+
+}
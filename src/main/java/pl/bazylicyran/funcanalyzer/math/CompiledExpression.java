@@ -0,0 +1,284 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpNode;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionBytecodeCompiler;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionDifferentiator;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionGraph;
+import pl.bazylicyran.funcanalyzer.parsing.Interval;
+
+/**
+ * Immutable compiled function of x.
+ * 
+ * Holds expression tree, values of variables at the time of compilation and,
+ * if enabled, bytecode, but no evaluation state. Compiled expression can be
+ * shared by any number of threads, each of them evaluates it in its own
+ * EvaluationContext, which is cheap to create.
+ * 
+ * @author Bazyli Cyran
+ */
+public final class CompiledExpression {
+
+	/** Expression given by user. */
+	private final String expression;
+
+	/** Root of expression tree. */
+	private final ExpNode root;
+
+	/** Names of variables, ordered by slot. */
+	private final List<String> variables;
+
+	/** Values of variables at the time of compilation, ordered by slot. */
+	private final double[] values;
+
+	/** Slot of x, -1 if expression doesn't use x. */
+	private final int argumentSlot;
+
+	/** Bytecode compiled expression, null if not compiled. */
+	private final DoubleUnaryOperator bytecode;
+
+	/** Graph of expression used for evaluation in blocks. */
+	private final ExpressionGraph graph = new ExpressionGraph();
+
+	/** Derivative of the expression, created when first needed. */
+	private volatile CompiledExpression derivative;
+
+	/**
+	 * Initializes compiled expression. Created by FunctionExpression.
+	 * 
+	 * @param expression Expression given by user.
+	 * @param root Root of expression tree.
+	 * @param variables Names of variables, ordered by slot.
+	 * @param values Values of variables, ordered by slot.
+	 * @param argumentSlot Slot of x.
+	 * @param bytecode Bytecode compiled expression or null.
+	 */
+	CompiledExpression(String expression, ExpNode root, List<String> variables, double[] values, int argumentSlot,
+			DoubleUnaryOperator bytecode) {
+		this.expression = expression;
+		this.root = root;
+		this.variables = Collections.unmodifiableList(variables);
+		this.values = values.clone();
+		this.argumentSlot = argumentSlot;
+		this.bytecode = bytecode;
+
+		graph.add(root, argumentSlot, this.values);
+	}
+
+	/**
+	 * Compiles given function of x. Other variables used by the function have
+	 * to be named, their values are 0 until set in EvaluationContext.
+	 * 
+	 * @param expression Function of x.
+	 * @param variables Names of other variables.
+	 * @return Compiled expression.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid.
+	 */
+	public static CompiledExpression compile(String expression, String... variables) {
+		FunctionExpression function = new FunctionExpression(expression);
+
+		for (String name : variables) {
+			function.setVar(name, 0);
+		}
+
+		return function.compile();
+	}
+
+	/**
+	 * Creates new context for evaluation of the expression by one thread.
+	 * 
+	 * @return New context.
+	 */
+	public EvaluationContext newContext() {
+		return new EvaluationContext(this);
+	}
+
+	/**
+	 * Evaluates expression for given value of x with variable values from
+	 * the time of compilation.
+	 * 
+	 * This is a convenience method: unless expression is compiled to bytecode
+	 * or doesn't use x, every call copies values of variables, since compiled
+	 * expression may be evaluated by many threads at once. Code evaluating
+	 * expression in many points should use EvaluationContext.getValue,
+	 * which doesn't allocate anything.
+	 * 
+	 * @param x Value of x.
+	 * @return Value of expression.
+	 */
+	public double eval(double x) {
+		if (bytecode != null) {
+			return bytecode.applyAsDouble(x);
+		}
+
+		// values are only read, so they can be shared
+		if (argumentSlot < 0) {
+			return root.eval(values);
+		}
+
+		return root.eval(values(x));
+	}
+
+	/**
+	 * Evaluates expression for interval of x with variable values from the
+	 * time of compilation.
+	 * 
+	 * @param x Interval of x.
+	 * @return Interval containing all values of expression.
+	 * @see Interval
+	 */
+	public Interval evalInterval(Interval x) {
+		Interval[] vars = new Interval[values.length];
+
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = i == argumentSlot ? x : Interval.of(values[i]);
+		}
+
+		return root.evalInterval(vars);
+	}
+
+	/**
+	 * Checks if expression is built only of built-in operators and functions,
+	 * which all can be evaluated for intervals.
+	 * 
+	 * @return True if expression uses only built-ins.
+	 */
+	public boolean isBuiltIn() {
+		return ExpressionBytecodeCompiler.canCompile(root);
+	}
+
+	/**
+	 * Returns derivative of the expression with respect to x, differentiated
+	 * symbolically and simplified. Its expression is fully parenthesized and
+	 * can be parsed again, e.g. to be drawn. Derivative is compiled to
+	 * bytecode if the expression is.
+	 * 
+	 * @return Compiled derivative.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression contains operators or functions other than built-ins.
+	 * @see ExpressionDifferentiator
+	 */
+	public CompiledExpression derivative() {
+		CompiledExpression result = derivative;
+
+		if (result == null) {
+			ExpNode node = new ExpressionDifferentiator(argumentSlot).differentiate(root);
+			DoubleUnaryOperator code = bytecode != null
+					? new ExpressionBytecodeCompiler(node, argumentSlot, values).compile()
+					: null;
+
+			result = new CompiledExpression(node.toString(), node, variables, values, argumentSlot, code);
+			derivative = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns initial expression.
+	 * 
+	 * @return Expression.
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Returns names of variables used by expression.
+	 * 
+	 * @return Unmodifiable list of names.
+	 */
+	public List<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Returns number of distinct nodes of compiled expression.
+	 * 
+	 * @return Number of nodes.
+	 */
+	public int getNodeCount() {
+		return graph.getNodeCount();
+	}
+
+	/**
+	 * Adds expression to given graph, x is graph argument and other variables
+	 * are added with values from the time of compilation.
+	 * 
+	 * @param graph Graph to add expression to.
+	 * @return Index of expression output in graph.
+	 */
+	public int addTo(ExpressionGraph graph) {
+		return graph.add(root, argumentSlot, values);
+	}
+
+	/**
+	 * Returns root of expression tree.
+	 * 
+	 * @return Root node.
+	 */
+	ExpNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns slot of x.
+	 * 
+	 * @return Slot index or -1 if expression doesn't use x.
+	 */
+	int getArgumentSlot() {
+		return argumentSlot;
+	}
+
+	/**
+	 * Returns slot of given variable.
+	 * 
+	 * @param name Variable name.
+	 * @return Slot index or -1 if expression doesn't use the variable.
+	 */
+	int getSlot(String name) {
+		return variables.indexOf(name);
+	}
+
+	/**
+	 * Returns values of variables from the time of compilation with given
+	 * value of x.
+	 * 
+	 * @param x Value of x.
+	 * @return New array of values, ordered by slot.
+	 */
+	double[] values(double x) {
+		double[] result = Arrays.copyOf(values, values.length);
+
+		if (argumentSlot >= 0) {
+			result[argumentSlot] = x;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns bytecode compiled expression.
+	 * 
+	 * @return Compiled expression or null.
+	 */
+	DoubleUnaryOperator getBytecode() {
+		return bytecode;
+	}
+
+	/**
+	 * Returns graph of expression with variable values from the time of
+	 * compilation.
+	 * 
+	 * @return Graph with single output.
+	 */
+	ExpressionGraph getGraph() {
+		return graph;
+	}
+
+}
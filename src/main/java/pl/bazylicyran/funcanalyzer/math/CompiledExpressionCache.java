@@ -0,0 +1,372 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpFunctionRegistry;
+
+/**
+ * Caches compiled expressions, so the same function isn't tokenized and
+ * parsed again every time it is drawn or evaluated.
+ * 
+ * Expressions are keyed by normalized text (see FunctionTransformer.normalize)
+ * without whitespace, so e.g. "2x + 1" and "2*x+1" share one compiled
+ * expression. Expressions are compiled from the normalized text.
+ * 
+ * Cache is safe to use from many threads, lookups of cached expressions don't
+ * lock. Total weight of cached expressions, i.e. number of their nodes, is
+ * bounded, approximately least recently used expressions are evicted first:
+ * expressions wait for eviction in a queue in order of compilation, and
+ * expression used since it was queued is queued again instead of evicted. So
+ * eviction costs constant amortized time per expression, however big the
+ * cache is. Compiled expressions are immutable, so one cached expression can
+ * be evaluated by many threads at once, each in its own EvaluationContext.
+ * 
+ * Expressions compiled before functions of the default ExpFunctionRegistry
+ * were changed are compiled again, so they always call registered functions.
+ * 
+ * @author Bazyli Cyran
+ */
+public class CompiledExpressionCache {
+
+	/** Default maximal weight of the shared cache. */
+	private static final int defaultCapacity = Integer.getInteger("funcanalyzer.expressionCache", 100000);
+
+	/** Cache shared by the application. */
+	private static final CompiledExpressionCache shared = new CompiledExpressionCache(defaultCapacity);
+
+	/** Maximal total weight of cached expressions. */
+	private final long capacity;
+
+	/** Total weight of cached expressions. */
+	private final AtomicLong weight = new AtomicLong();
+
+	/** Counter of accesses, used to order entries by last use. */
+	private final AtomicLong clock = new AtomicLong();
+
+	/** Cached expressions by key. */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/** Cached expressions in order of queuing, candidates for eviction first. */
+	private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+
+	/** Number of lookups which found compiled expression. */
+	private final LongAdder hits = new LongAdder();
+
+	/** Number of lookups which had to compile expression. */
+	private final LongAdder misses = new LongAdder();
+
+	/** Number of evicted expressions. */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates cache holding expressions of at most given total weight.
+	 * 
+	 * @param capacity Maximal total number of nodes of cached expressions.
+	 */
+	public CompiledExpressionCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns cache shared by the application. Its capacity can be set by
+	 * funcanalyzer.expressionCache system property.
+	 * 
+	 * @return Shared cache.
+	 */
+	public static CompiledExpressionCache getDefault() {
+		return shared;
+	}
+
+	/**
+	 * Returns compiled function of x, compiling and caching it if needed.
+	 * Other variables used by the function have to be named, their values are
+	 * 0 until set in EvaluationContext.
+	 * 
+	 * @param expression Function of x.
+	 * @param variables Names of other variables.
+	 * @return Compiled expression.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid, invalid expressions aren't cached.
+	 */
+	public CompiledExpression get(String expression, String... variables) {
+		String normalized = normalize(expression);
+		String key = key(normalized, variables);
+		long version = ExpFunctionRegistry.getDefault().getVersion();
+		Entry entry = entries.get(key);
+
+		// compiled with previous functions
+		if (entry != null && entry.version != version) {
+			if (remove(entry) == true) {
+				queue.remove(entry);
+			}
+
+			entry = null;
+		}
+
+		if (entry != null) {
+			hits.increment();
+			entry.lastUse = clock.incrementAndGet();
+		} else {
+			misses.increment();
+			entry = new Entry(key, CompiledExpression.compile(normalized, variables), version,
+					clock.incrementAndGet());
+			Entry previous = entries.putIfAbsent(key, entry);
+
+			// other thread compiled the same expression meanwhile
+			if (previous != null) {
+				entry = previous;
+				entry.lastUse = clock.incrementAndGet();
+			} else {
+				queue.add(entry);
+
+				if (weight.addAndGet(entry.weight) > capacity) {
+					evict(entry);
+				}
+			}
+		}
+
+		return entry.expression;
+	}
+
+	/**
+	 * Removes all expressions. Statistics are not reset.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			remove(entry);
+		}
+
+		queue.removeIf(entry -> entries.get(entry.key) != entry);
+	}
+
+	/**
+	 * Returns number of cached expressions.
+	 * 
+	 * @return Number of expressions.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns total weight of cached expressions.
+	 * 
+	 * @return Number of nodes of cached expressions.
+	 */
+	public long getWeight() {
+		return weight.get();
+	}
+
+	/**
+	 * Returns maximal total weight of cached expressions.
+	 * 
+	 * @return Maximal number of nodes.
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns number of lookups which found compiled expression.
+	 * 
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns number of lookups which had to compile expression.
+	 * 
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns number of expressions evicted because capacity was exceeded.
+	 * 
+	 * @return Number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns fraction of lookups which found compiled expression.
+	 * 
+	 * @return Hit rate or 0 if there were no lookups.
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+
+		return total > 0 ? (double) h / total : 0;
+	}
+
+	/**
+	 * Evicts expressions from the head of the queue until weight doesn't
+	 * exceed capacity. Expressions used since they were queued are queued
+	 * again, expression heavier than the whole cache is evicted at once.
+	 * 
+	 * @param added Entry which was just added.
+	 */
+	private synchronized void evict(Entry added) {
+		if (added.weight > capacity && remove(added) == true) {
+			queue.remove(added);
+			evictions.increment();
+			return;
+		}
+
+		boolean requeueAdded = false;
+
+		while (weight.get() > capacity) {
+			Entry oldest = queue.poll();
+
+			if (oldest == null) {
+				break;
+			}
+
+			// removed because of new functions
+			if (entries.get(oldest.key) != oldest) {
+				continue;
+			}
+
+			if (oldest == added) {
+				requeueAdded = true;
+			} else if (oldest.lastUse != oldest.queued) {
+				oldest.queued = oldest.lastUse;
+				queue.add(oldest);
+			} else if (remove(oldest) == true) {
+				evictions.increment();
+			}
+		}
+
+		if (requeueAdded == true) {
+			queue.add(added);
+		}
+	}
+
+	/**
+	 * Removes given entry if it is still cached.
+	 * 
+	 * @param entry Entry to remove.
+	 * @return True if entry was removed.
+	 */
+	private boolean remove(Entry entry) {
+		if (entries.remove(entry.key, entry) == false) {
+			return false;
+		}
+
+		weight.addAndGet(-entry.weight);
+
+		return true;
+	}
+
+	/**
+	 * Normalizes expression, so equivalent texts of the same function are
+	 * equal. Whitespace is removed and expression is normalized by
+	 * FunctionTransformer.normalize.
+	 * 
+	 * @param expression Expression.
+	 * @return Normalized expression.
+	 */
+	public static String normalize(String expression) {
+		return FunctionTransformer.normalize(removeWhitespace(expression));
+	}
+
+	/**
+	 * Removes whitespace from expression, it doesn't change the expression.
+	 * 
+	 * @param expression Expression.
+	 * @return Expression without whitespace, the same string if it had none.
+	 */
+	private static String removeWhitespace(String expression) {
+		StringBuilder sb = null;
+
+		for (int i = 0; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+
+			if (Character.isWhitespace(c)) {
+				if (sb == null) {
+					sb = new StringBuilder(expression.length());
+					sb.append(expression, 0, i);
+				}
+			} else if (sb != null) {
+				sb.append(c);
+			}
+		}
+
+		return sb == null ? expression : sb.toString();
+	}
+
+	/**
+	 * Creates key from normalized expression and names of variables.
+	 * 
+	 * @param expression Normalized expression.
+	 * @param variables Names of variables.
+	 * @return Key.
+	 */
+	private static String key(String expression, String[] variables) {
+		if (variables.length == 0) {
+			return expression;
+		}
+
+		StringBuilder sb = new StringBuilder(expression);
+
+		for (String name : variables) {
+			sb.append(';').append(name);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Cached compiled expression.
+	 */
+	private static class Entry {
+
+		/** Key of the expression. */
+		private final String key;
+
+		/** Compiled expression. */
+		private final CompiledExpression expression;
+
+		/** Weight of the expression. */
+		private final int weight;
+
+		/** Version of function registry the expression was compiled with. */
+		private final long version;
+
+		/** Value of the clock at last use. */
+		private volatile long lastUse;
+
+		/** Value of the clock at last use when the entry was queued. */
+		private long queued;
+
+		/**
+		 * Initializes entry.
+		 * 
+		 * @param key Key of the expression.
+		 * @param expression Compiled expression.
+		 * @param version Version of function registry.
+		 * @param lastUse Value of the clock at compilation.
+		 */
+		Entry(String key, CompiledExpression expression, long version, long lastUse) {
+			this.key = key;
+			this.expression = expression;
+			this.weight = expression.getNodeCount();
+			this.version = version;
+			this.lastUse = lastUse;
+			this.queued = lastUse;
+		}
+
+	}
+
+}
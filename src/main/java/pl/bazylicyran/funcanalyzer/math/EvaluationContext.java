@@ -0,0 +1,219 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionGraph;
+
+/**
+ * Evaluation state of CompiledExpression used by one thread: values of
+ * variables and registers for evaluation in blocks.
+ * 
+ * Besides values, context evaluates derivatives with respect to x in dual
+ * mode of ExpressionGraph: value and derivative of every node are computed in
+ * one pass into preallocated registers, so nothing is allocated per point.
+ * 
+ * Context is not thread-safe, every thread should create its own one with
+ * CompiledExpression.newContext().
+ * 
+ * @author Bazyli Cyran
+ */
+public class EvaluationContext {
+
+	/** Minimal number of points evaluated in blocks instead of one by one. */
+	private static final int minBlockPoints = 32;
+
+	/** Number of points evaluated at once in a block. */
+	private static final int blockSize = 256;
+
+	/** Evaluated expression. */
+	private final CompiledExpression expression;
+
+	/** Values of variables, ordered by slot. */
+	private final double[] vars;
+
+	/** Slot of x. */
+	private final int argumentSlot;
+
+	/** Whether variables other than x have values from compilation. */
+	private boolean defaults = true;
+
+	/** Graph used for evaluation in blocks, null if not created. */
+	private ExpressionGraph graph;
+
+	/** Registers of graph evaluated in blocks. */
+	private ExpressionGraph.Block block;
+
+	/** Registers of graph evaluated in single points, null if not created. */
+	private ExpressionGraph.Registers registers;
+
+	/**
+	 * Initializes context with variable values from compilation.
+	 * 
+	 * @param expression Evaluated expression.
+	 */
+	EvaluationContext(CompiledExpression expression) {
+		this.expression = expression;
+		this.vars = expression.values(0);
+		this.argumentSlot = expression.getArgumentSlot();
+	}
+
+	/**
+	 * Returns evaluated expression.
+	 * 
+	 * @return Compiled expression.
+	 */
+	public CompiledExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Sets value of variable other than x. Variables which are not used by
+	 * expression are ignored.
+	 * 
+	 * @param name Variable name.
+	 * @param value Variable value.
+	 */
+	public void setVar(String name, double value) {
+		int slot = expression.getSlot(name);
+
+		if (slot < 0 || slot == argumentSlot) {
+			return;
+		}
+
+		vars[slot] = value;
+		defaults = false;
+		graph = null;
+	}
+
+	/**
+	 * Evaluates expression for given value of x.
+	 * 
+	 * @param x Value of x.
+	 * @return Value of expression.
+	 */
+	public double getValue(double x) {
+		if (defaults == true && expression.getBytecode() != null) {
+			return expression.getBytecode().applyAsDouble(x);
+		}
+
+		if (argumentSlot >= 0) {
+			vars[argumentSlot] = x;
+		}
+
+		return expression.getRoot().eval(vars);
+	}
+
+	/**
+	 * Evaluates expression for many values of x, undefined values are NaN.
+	 * Bigger ranges are evaluated in blocks of points, every node of the
+	 * expression is computed for the whole block at once.
+	 * 
+	 * Arrays of arguments and values may be the same array.
+	 * 
+	 * @param xs Values of x.
+	 * @param ys Array to save values in, at the same indexes as arguments.
+	 * @param from Index of first value.
+	 * @param to Index after last value.
+	 */
+	public void getValues(double[] xs, double[] ys, int from, int to) {
+		if (to - from < minBlockPoints) {
+			for (int i = from; i < to; i++) {
+				try {
+					ys[i] = getValue(xs[i]);
+				} catch (ArithmeticException e) {
+					ys[i] = Double.NaN;
+				}
+			}
+
+			return;
+		}
+
+		getGraph();
+
+		for (int i = from; i < to; i += blockSize) {
+			int count = Math.min(blockSize, to - i);
+			graph.eval(xs, i, count, block);
+			block.copyOutput(0, ys, i, count);
+		}
+	}
+
+	/**
+	 * Evaluates expression and its derivative with respect to x for given
+	 * value of x. Undefined value or derivative is NaN, derivative is also
+	 * NaN if expression uses functions without known derivatives.
+	 * 
+	 * @param x Value of x.
+	 * @param dual Array to save value at index 0 and derivative at index 1.
+	 */
+	public void getDual(double x, double[] dual) {
+		getGraph();
+
+		if (registers == null) {
+			registers = graph.newRegisters();
+		}
+
+		graph.evalDual(x, registers);
+		dual[0] = registers.getOutput(0);
+		dual[1] = registers.getDerivative(0);
+	}
+
+	/**
+	 * Evaluates expression and its derivative with respect to x for many
+	 * values of x, undefined values and derivatives are NaN. Bigger ranges
+	 * are evaluated in blocks of points.
+	 * 
+	 * Array of arguments may be the same as array of values or derivatives.
+	 * 
+	 * @param xs Values of x.
+	 * @param ys Array to save values in, at the same indexes as arguments.
+	 * @param derivatives Array to save derivatives in, at the same indexes as
+	 *        arguments.
+	 * @param from Index of first value.
+	 * @param to Index after last value.
+	 */
+	public void getDuals(double[] xs, double[] ys, double[] derivatives, int from, int to) {
+		getGraph();
+
+		if (to - from < minBlockPoints) {
+			if (registers == null) {
+				registers = graph.newRegisters();
+			}
+
+			for (int i = from; i < to; i++) {
+				graph.evalDual(xs[i], registers);
+				ys[i] = registers.getOutput(0);
+				derivatives[i] = registers.getDerivative(0);
+			}
+
+			return;
+		}
+
+		for (int i = from; i < to; i += blockSize) {
+			int count = Math.min(blockSize, to - i);
+			graph.evalDual(xs, i, count, block);
+			block.copyOutput(0, ys, i, count);
+			block.copyDerivative(0, 0, derivatives, i, count);
+		}
+	}
+
+	/**
+	 * Returns graph of expression with current values of variables, creating
+	 * it and its block when first needed.
+	 * 
+	 * @return Expression graph.
+	 */
+	private ExpressionGraph getGraph() {
+		if (graph == null) {
+			if (defaults == true) {
+				graph = expression.getGraph();
+			} else {
+				graph = new ExpressionGraph();
+				graph.add(expression.getRoot(), argumentSlot, vars);
+			}
+
+			block = graph.newBlock(blockSize);
+			registers = null;
+		}
+
+		return graph;
+	}
+
+}
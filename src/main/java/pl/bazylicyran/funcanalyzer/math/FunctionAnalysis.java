@@ -0,0 +1,471 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
+
+/**
+ * Finds zeros, local extrema, inflection points and intersections of
+ * functions in given interval.
+ * 
+ * Functions are discretized on the same grid as in the coordinate system, so
+ * values already computed for drawing are reused from SampleCache. Points are
+ * bracketed by sign changes of sampled values, their differences and second
+ * differences, then refined. Functions built of built-ins are differentiated
+ * symbolically, their zeros and extrema are refined by Newton's method on
+ * exact derivatives and inflection points by Brent's method on exact second
+ * derivatives. Other functions are refined with Brent's methods on their
+ * values and finite differences. Brackets at poles, where
+ * values grow instead of vanishing, are rejected. Every function and every
+ * pair of functions is analyzed as a separate task, in parallel if enabled.
+ * 
+ * Relations and invalid functions are skipped, points keep indexes of
+ * functions in the analyzed list.
+ * 
+ * @author Bazyli Cyran
+ */
+public class FunctionAnalysis {
+
+	/** Analyzed functions. */
+	private final List<String> functions;
+
+	/** Start of analyzed interval. */
+	private final double intervalStart;
+
+	/** End of analyzed interval. */
+	private final double intervalEnd;
+
+	/** Distance between sampled points. */
+	private final double resolution;
+
+	/** Cache of previously discretized values, null if not used. */
+	private SampleCache cache;
+
+	/** Whether or not functions should be analyzed in parallel. */
+	private boolean parallel = true;
+
+	/** Relative size of differences treated as rounding errors. */
+	private static final double noise = 1e-10;
+
+	/** Tolerance of refined points relative to resolution. */
+	private static final double tolerance = 1e-9;
+
+	/**
+	 * Creates analysis of given functions.
+	 * 
+	 * @param functions Functions of x.
+	 * @param intervalStart Start of analyzed interval.
+	 * @param intervalEnd End of analyzed interval.
+	 * @param resolution Distance between sampled points.
+	 */
+	public FunctionAnalysis(List<String> functions, double intervalStart, double intervalEnd, double resolution) {
+		this.functions = functions;
+		this.intervalStart = intervalStart;
+		this.intervalEnd = intervalEnd;
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Sets cache of discretized values shared with discretizers.
+	 * 
+	 * @param cache Cache to use, null to disable caching.
+	 */
+	public void setCache(SampleCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Sets whether functions should be analyzed on multiple threads.
+	 * 
+	 * @param parallel True if functions should be analyzed in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Finds characteristic points of all functions and intersections of every
+	 * pair of them.
+	 * 
+	 * @return Points ordered by function, kind and X coordinate.
+	 */
+	public List<AnalysisPoint> analyze() {
+		List<Curve> curves = stream(functions.size()).mapToObj(this::curve).collect(Collectors.toList());
+
+		Stream<List<AnalysisPoint>> points = stream(curves.size() * curves.size()).mapToObj(task -> {
+			Curve first = curves.get(task / curves.size());
+			Curve second = curves.get(task % curves.size());
+
+			if (first == null || second == null || first.index > second.index) {
+				return Collections.<AnalysisPoint>emptyList();
+			}
+
+			// contexts of curves are not thread-safe, so every task has its own
+			return first == second ? analyze(first.newTask()) : intersections(first.newTask(), second.newTask());
+		});
+
+		List<AnalysisPoint> result = points.flatMap(List::stream).collect(Collectors.toList());
+		result.sort(Comparator.comparingInt(AnalysisPoint::getFunction).thenComparing(AnalysisPoint::getKind)
+				.thenComparingDouble(AnalysisPoint::getX));
+
+		return result;
+	}
+
+	/**
+	 * Returns stream of task numbers, parallel if enabled.
+	 * 
+	 * @param count Number of tasks.
+	 * @return Stream of numbers from 0 to count.
+	 */
+	private IntStream stream(int count) {
+		IntStream tasks = IntStream.range(0, count);
+
+		return parallel == true ? tasks.parallel() : tasks;
+	}
+
+	/**
+	 * Compiles and discretizes function with given index.
+	 * 
+	 * @param index Index of function.
+	 * @return Discretized function, null if it is a relation or is invalid.
+	 */
+	private Curve curve(int index) {
+		String function = functions.get(index);
+
+		if (ImplicitPlotter.isRelation(function)) {
+			return null;
+		}
+
+		try {
+			FunctionDiscretizer disc = new FunctionDiscretizer(function, intervalStart, intervalEnd, resolution);
+			disc.setCache(cache);
+
+			return new Curve(index, CompiledExpressionCache.getDefault().get(function), disc.getSamples());
+		} catch (ExpressionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds zeros, extrema and inflection points of function.
+	 * 
+	 * @param curve Discretized function.
+	 * @return Found points.
+	 */
+	private List<AnalysisPoint> analyze(Curve curve) {
+		List<AnalysisPoint> points = new ArrayList<>();
+
+		roots(curve.ys, curve.compiled, curve.derivative, x -> 0, AnalysisPoint.Kind.ZERO, curve, -1, points);
+		extrema(curve, points);
+		inflections(curve, points);
+
+		return points;
+	}
+
+	/**
+	 * Finds intersections of two functions.
+	 * 
+	 * @param first First function.
+	 * @param second Second function.
+	 * @return Found points.
+	 */
+	private List<AnalysisPoint> intersections(Curve first, Curve second) {
+		List<AnalysisPoint> points = new ArrayList<>();
+		double[] differences = new double[first.xs.length];
+
+		for (int i = 0; i < differences.length; i++) {
+			differences[i] = first.ys[i] - second.ys[i];
+		}
+
+		DoubleUnaryOperator derivative = first.derivative == null || second.derivative == null ? null
+				: x -> first.derivative.applyAsDouble(x) - second.derivative.applyAsDouble(x);
+
+		roots(differences, x -> first.compiled.applyAsDouble(x) - second.compiled.applyAsDouble(x), derivative,
+				first.compiled, AnalysisPoint.Kind.INTERSECTION, first, second.index, points);
+
+		return points;
+	}
+
+	/**
+	 * Finds roots of function bracketed by sign changes of its sampled values.
+	 * Isolated sampled zeros are roots too.
+	 * 
+	 * @param values Sampled values of function.
+	 * @param f Function.
+	 * @param derivative Derivative of the function, null if not known.
+	 * @param y Y coordinate of point at root.
+	 * @param kind Kind of points.
+	 * @param curve Function the points belong to.
+	 * @param other Index of the other function of intersection, -1 for zeros.
+	 * @param points List to add points to.
+	 */
+	private void roots(double[] values, DoubleUnaryOperator f, DoubleUnaryOperator derivative, DoubleUnaryOperator y,
+			AnalysisPoint.Kind kind, Curve curve, int other, List<AnalysisPoint> points) {
+		double[] xs = curve.xs;
+
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == 0 && (i == 0 || values[i - 1] != 0) && (i == values.length - 1 || values[i + 1] != 0)) {
+				points.add(new AnalysisPoint(kind, xs[i], y.applyAsDouble(xs[i]), curve.index, other));
+			}
+
+			if (i == values.length - 1 || !defined(values[i]) || !defined(values[i + 1])
+					|| values[i] == 0 || values[i + 1] == 0 || (values[i] > 0) == (values[i + 1] > 0)) {
+				continue;
+			}
+
+			double root = derivative != null
+					? BrentSolver.findRoot(f, derivative, xs[i], xs[i + 1], values[i], values[i + 1],
+							tolerance * resolution)
+					: BrentSolver.findRoot(f, xs[i], xs[i + 1], values[i], values[i + 1], tolerance * resolution);
+			double value = Math.abs(f.applyAsDouble(root));
+
+			// at poles values grow in the bracket
+			if (value <= Math.min(Math.abs(values[i]), Math.abs(values[i + 1]))) {
+				points.add(new AnalysisPoint(kind, root, y.applyAsDouble(root), curve.index, other));
+			}
+		}
+	}
+
+	/**
+	 * Finds local extrema bracketed by sign changes of differences of sampled
+	 * values.
+	 * 
+	 * @param curve Discretized function.
+	 * @param points List to add points to.
+	 */
+	private void extrema(Curve curve, List<AnalysisPoint> points) {
+		double[] xs = curve.xs;
+		double[] ys = curve.ys;
+		int last = -1;
+		double lastDifference = 0;
+
+		for (int i = 0; i + 1 < ys.length; i++) {
+			if (!defined(ys[i]) || !defined(ys[i + 1])) {
+				last = -1;
+				continue;
+			}
+
+			double difference = ys[i + 1] - ys[i];
+
+			if (difference == 0) {
+				continue;
+			}
+
+			if (last >= 0 && (lastDifference > 0) != (difference > 0)) {
+				extremum(curve, last, i + 1, lastDifference > 0, points);
+			}
+
+			last = i;
+			lastDifference = difference;
+		}
+	}
+
+	/**
+	 * Refines extremum between given samples, samples between them are
+	 * equal.
+	 * 
+	 * @param curve Discretized function.
+	 * @param from Index of sample before extremum.
+	 * @param to Index of sample after extremum.
+	 * @param maximum True if extremum is a maximum.
+	 * @param points List to add points to.
+	 */
+	private void extremum(Curve curve, int from, int to, boolean maximum, List<AnalysisPoint> points) {
+		double[] xs = curve.xs;
+		double[] ys = curve.ys;
+		double sign = maximum == true ? -1 : 1;
+		double best = ys[from + 1];
+		double x;
+
+		if (curve.derivative != null && sign * curve.derivative.applyAsDouble(xs[from]) < 0
+				&& sign * curve.derivative.applyAsDouble(xs[to]) > 0) {
+			x = BrentSolver.findRoot(curve.derivative, curve.second, xs[from], xs[to],
+					curve.derivative.applyAsDouble(xs[from]), curve.derivative.applyAsDouble(xs[to]),
+					tolerance * resolution);
+		} else {
+			x = BrentSolver.findMinimum(t -> sign * curve.compiled.applyAsDouble(t), xs[from], xs[to],
+					tolerance * resolution);
+		}
+
+		double y = curve.compiled.applyAsDouble(x);
+
+		if (!defined(y) || sign * y > sign * best) {
+			x = xs[from + 1];
+			y = best;
+		}
+
+		// at poles values grow far beyond the sampled ones
+		if (Math.abs(y - best) <= Math.abs(ys[from] - best) + Math.abs(ys[to] - best)) {
+			points.add(new AnalysisPoint(maximum == true ? AnalysisPoint.Kind.MAXIMUM : AnalysisPoint.Kind.MINIMUM,
+					x, y, curve.index, -1));
+		}
+	}
+
+	/**
+	 * Finds inflection points bracketed by sign changes of second differences
+	 * of sampled values. Second differences smaller than rounding errors are
+	 * ignored, so straight parts of functions have no inflection points.
+	 * 
+	 * @param curve Discretized function.
+	 * @param points List to add points to.
+	 */
+	private void inflections(Curve curve, List<AnalysisPoint> points) {
+		double[] xs = curve.xs;
+		double[] ys = curve.ys;
+		double scale = resolution * resolution;
+		DoubleUnaryOperator differences = x -> (curve.compiled.applyAsDouble(x + resolution)
+				- 2 * curve.compiled.applyAsDouble(x) + curve.compiled.applyAsDouble(x - resolution)) / scale;
+		int last = -1;
+		double lastValue = 0;
+
+		for (int i = 1; i + 1 < ys.length; i++) {
+			if (!defined(ys[i - 1]) || !defined(ys[i]) || !defined(ys[i + 1])) {
+				last = -1;
+				continue;
+			}
+
+			double value = ys[i + 1] - 2 * ys[i] + ys[i - 1];
+
+			if (Math.abs(value) <= noise * (Math.abs(ys[i + 1]) + 2 * Math.abs(ys[i]) + Math.abs(ys[i - 1]))) {
+				continue;
+			}
+
+			if (last >= 0 && (value > 0) != (lastValue > 0)) {
+				DoubleUnaryOperator secondDerivative = differences;
+				double start = lastValue / scale;
+				double end = value / scale;
+
+				// exact second derivative if its signs match the differences
+				if (curve.second != null && (curve.second.applyAsDouble(xs[last]) > 0) == (start > 0)
+						&& (curve.second.applyAsDouble(xs[i]) > 0) == (end > 0)) {
+					secondDerivative = curve.second;
+					start = secondDerivative.applyAsDouble(xs[last]);
+					end = secondDerivative.applyAsDouble(xs[i]);
+				}
+
+				double x = BrentSolver.findRoot(secondDerivative, xs[last], xs[i], start, end,
+						tolerance * resolution);
+				double y = curve.compiled.applyAsDouble(x);
+
+				// at poles second derivative grows in the bracket
+				if (defined(y) && Math.abs(secondDerivative.applyAsDouble(x)) <= Math.min(Math.abs(start),
+						Math.abs(end))) {
+					points.add(new AnalysisPoint(AnalysisPoint.Kind.INFLECTION, x, y, curve.index, -1));
+				}
+			}
+
+			last = i;
+			lastValue = value;
+		}
+	}
+
+	/**
+	 * Checks if value is finite.
+	 * 
+	 * @param value Value of function.
+	 * @return True if function is defined.
+	 */
+	private static boolean defined(double value) {
+		return !Double.isNaN(value) && !Double.isInfinite(value);
+	}
+
+	/**
+	 * Discretized function being analyzed.
+	 */
+	private static class Curve {
+
+		/** Index of the function. */
+		private final int index;
+
+		/** Compiled expression of the function. */
+		private final CompiledExpression function;
+
+		/** Compiled function, NaN where it is undefined. */
+		private final DoubleUnaryOperator compiled;
+
+		/** Derivative of the function, null if it can't be differentiated. */
+		private final DoubleUnaryOperator derivative;
+
+		/** Second derivative of the function, null if derivative is. */
+		private final DoubleUnaryOperator second;
+
+		/** X coordinates of samples. */
+		private final double[] xs;
+
+		/** Y coordinates of samples, NaN where function is undefined. */
+		private final double[] ys;
+
+		/**
+		 * Copies samples of the function.
+		 * 
+		 * @param index Index of the function.
+		 * @param function Compiled function.
+		 * @param samples Discretized function.
+		 */
+		Curve(int index, CompiledExpression function, SampledFunction samples) {
+			this(index, function, Arrays.copyOf(samples.getXs(), samples.size()),
+					Arrays.copyOf(samples.getYs(), samples.size()));
+		}
+
+		/**
+		 * Initializes the function with new evaluation contexts.
+		 * 
+		 * @param index Index of the function.
+		 * @param function Compiled function.
+		 * @param xs X coordinates of samples.
+		 * @param ys Y coordinates of samples.
+		 */
+		private Curve(int index, CompiledExpression function, double[] xs, double[] ys) {
+			this.index = index;
+			this.function = function;
+			this.xs = xs;
+			this.ys = ys;
+
+			this.compiled = evaluator(function.newContext());
+
+			if (function.isBuiltIn() == true) {
+				derivative = evaluator(function.derivative().newContext());
+				second = evaluator(function.derivative().derivative().newContext());
+			} else {
+				derivative = null;
+				second = null;
+			}
+		}
+
+		/**
+		 * Returns copy of the function for one task. Samples are shared,
+		 * evaluation contexts are not.
+		 * 
+		 * @return Copy of the function.
+		 */
+		Curve newTask() {
+			return new Curve(index, function, xs, ys);
+		}
+
+		/**
+		 * Returns function evaluating expression in given context.
+		 * 
+		 * @param context Evaluation context used by one thread.
+		 * @return Function, NaN where expression is undefined.
+		 */
+		private static DoubleUnaryOperator evaluator(EvaluationContext context) {
+			return x -> {
+				try {
+					return context.getValue(x);
+				} catch (ArithmeticException e) {
+					return Double.NaN;
+				}
+			};
+		}
+
+	}
+
+}
@@ -1,11 +1,23 @@
 package pl.bazylicyran.funcanalyzer.math;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Discretizes function in given interval and with given resolution.
  * 
+ * Points lie on a grid of resolution multiples, so overlapping intervals share
+ * their points and they can be reused from SampleCache.
+ * 
+ * In parallel mode interval is split into chunks discretized on a ForkJoinPool.
+ * Function is compiled once and shared by all chunks, every chunk evaluates it
+ * in its own EvaluationContext and writes points directly to its indexes in
+ * the shared result.
+ * 
+ * Optionally derivatives are computed together with values in dual mode of
+ * the expression. Cache stores only values, so it isn't used then.
+ * 
+ * Values of points found in SampleStore of the function are read from it
+ * instead of being computed, if resolution is a multiple of the resolution
+ * of the store.
+ * 
  * @author Bazyli Cyran
  */
 public class FunctionDiscretizer {
@@ -13,7 +25,11 @@ public class FunctionDiscretizer {
 	/** String with function to discretize. */
 	private String input;
 
-	private FunctionExpression function;
+	/** Compiled current function, created when first needed. */
+	private CompiledExpression function;
+
+	/** Context used for sequential evaluation of current function. */
+	private EvaluationContext context;
 
 	/** Start of interval in which function will be discretized. */
 	private double intervalStart;
@@ -24,12 +40,33 @@ public class FunctionDiscretizer {
 	/** Discretization resolution. */
 	private double resolution;
 
-	/** Discretized function. */
-	private List<CSPoint> points = new ArrayList<>();
+	/** Discretized function, reused between discretizations. */
+	private final SampledFunction samples = new SampledFunction();
 
 	/** Whether or not function was discretized. */
 	private boolean discretized = false;
 
+	/** Whether or not function should be discretized in parallel. */
+	private boolean parallel = false;
+
+	/** Whether or not function should be sampled adaptively. */
+	private boolean adaptive = false;
+
+	/** Whether or not derivatives should be computed with values. */
+	private boolean derivatives = false;
+
+	/** Cache of previously discretized values, null if not used. */
+	private SampleCache cache;
+
+	/** Store of precomputed values, null if not used. */
+	private SampleStore store;
+
+	/** Tolerance of rounding interval ends and resolutions to grid points. */
+	static final double gridTolerance = 1e-9;
+
+	/** Number of points passed to the expression at once. */
+	private static final int blockPoints = 1024;
+
 	/**
 	 * Creates empty FunctionDiscretizer.
 	 */
@@ -58,6 +95,11 @@ public class FunctionDiscretizer {
 	 * @param function Function to discretize.
 	 */
 	public void setFunction(String function) {
+		if (!function.equals(input)) {
+			this.function = null;
+			context = null;
+		}
+
 		input = function;
 		discretized = false;
 	}
@@ -71,6 +113,7 @@ public class FunctionDiscretizer {
 	public void setInterval(double intervalStart, double intervalEnd) {
 		this.intervalStart = intervalStart;
 		this.intervalEnd = intervalEnd;
+		discretized = false;
 	}
 
 	/**
@@ -80,45 +123,266 @@ public class FunctionDiscretizer {
 	 */
 	public void setResolution(double resolution) {
 		this.resolution = resolution;
+		discretized = false;
+	}
+
+	/**
+	 * Sets whether function should be discretized on multiple threads.
+	 * Intervals with less than two chunks of points are always discretized
+	 * sequentially.
+	 * 
+	 * @param parallel True if function should be discretized in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Sets whether function should be sampled adaptively instead of at every
+	 * grid point. Resolution is then used as a size of a pixel, adaptive
+	 * sampling doesn't use cache nor multiple threads.
+	 * 
+	 * @param adaptive True if function should be sampled adaptively.
+	 * @see AdaptiveSampler
+	 */
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+		discretized = false;
 	}
 
 	/**
-	 * Returns list of discretized points.
+	 * Sets whether derivatives of function should be computed together with
+	 * its values, they are then available in discretized function.
+	 * 
+	 * @param derivatives True if derivatives should be computed.
+	 * @see SampledFunction#getDerivatives()
+	 */
+	public void setDerivatives(boolean derivatives) {
+		this.derivatives = derivatives;
+		discretized = false;
+	}
+
+	/**
+	 * Sets cache of discretized values shared by discretizers.
+	 * 
+	 * @param cache Cache to use, null to disable caching.
+	 */
+	public void setCache(SampleCache cache) {
+		this.cache = cache;
+		discretized = false;
+	}
+
+	/**
+	 * Sets store of precomputed values of the function.
+	 * 
+	 * @param store Store to read values from, null to compute all values.
+	 */
+	public void setStore(SampleStore store) {
+		this.store = store;
+		discretized = false;
+	}
+
+	/**
+	 * Returns discretized function. Returned object is reused and overwritten
+	 * by next discretization.
 	 * 
 	 * @return Discretized points.
 	 */
-	public List<CSPoint> getPoints() {
+	public SampledFunction getSamples() {
 
 		if (discretized == false) {
 			discretize();
 		}
 
-		return points;
+		return samples;
+	}
+
+	/**
+	 * Returns grid points in interval, points lie at multiples of resolution.
+	 * Interval ends closer to grid points than tolerance are rounded to them,
+	 * so all discretizers and stores sample the same points.
+	 * 
+	 * @param intervalStart Start of interval.
+	 * @param intervalEnd End of interval.
+	 * @param resolution Distance between points.
+	 * @return Grid index of first point and number of points.
+	 */
+	static long[] gridRange(double intervalStart, double intervalEnd, double resolution) {
+		long first = (long) Math.ceil(intervalStart / resolution - gridTolerance);
+		long last = (long) Math.floor(intervalEnd / resolution + gridTolerance);
+
+		return new long[] { first, last < first ? 0 : last - first + 1 };
 	}
 
 	/**
 	 * Discretizes current function.
 	 */
 	private void discretize() {
-		points.clear();
+		if (adaptive == true) {
+			new AdaptiveSampler(getContext()).sample(intervalStart, intervalEnd, resolution, samples);
+
+			if (derivatives == true) {
+				getContext().getDuals(samples.getXs(), samples.getYs(), samples.getDerivatives(), 0, samples.size());
+			}
 
-		function = new FunctionExpression(input);
-		Double value;
+			discretized = true;
+			return;
+		}
 
-		for (double x = intervalStart; x <= intervalEnd; x += resolution) {
-			function.setVar("x", x);
+		long[] grid = gridRange(intervalStart, intervalEnd, resolution);
+		long first = grid[0];
+		int count = (int) grid[1];
+		samples.resize(count);
 
-			try {
-				value = function.getValue();
-			} catch (ArithmeticException e) {
-				value = null;
-			}
+		if (derivatives == true) {
+			discretize(samples.getYs(), samples.getDerivatives(), first, 0, count);
+		} else if (store != null && count > 0 && discretizeStored(first, count) == true) {
+			// read from store
+		} else if (cache != null && count > 0) {
+			discretizeCached(first, count);
+		} else {
+			discretize(samples.getYs(), null, first, 0, count);
+		}
+
+		double[] xs = samples.getXs();
 
-			CSPoint point = new CSPoint(x, value);
-			points.add(point);
+		for (int i = 0; i < count; i++) {
+			xs[i] = (first + i) * resolution;
 		}
 
 		discretized = true;
 	}
 
+	/**
+	 * Reads values of current function from store, points outside of the
+	 * store are computed.
+	 * 
+	 * @param first Grid index of first point.
+	 * @param count Number of points.
+	 * @return False if store doesn't contain any of the points.
+	 */
+	private boolean discretizeStored(long first, int count) {
+		long stride = store.getStride(input, resolution);
+
+		if (stride == 0) {
+			return false;
+		}
+
+		// grid indexes of stored points
+		long from = Math.max(first, -Math.floorDiv(-store.getFirst(), stride));
+		long to = Math.min(first + count, Math.floorDiv(store.getFirst() + store.getCount() - 1, stride) + 1);
+
+		if (from >= to) {
+			return false;
+		}
+
+		double[] values = samples.getYs();
+		store.read(from * stride - store.getFirst(), stride, values, (int) (from - first), (int) (to - from));
+		discretize(values, null, first, 0, (int) (from - first));
+		discretize(values, null, first, (int) (to - first), count);
+
+		return true;
+	}
+
+	/**
+	 * Discretizes current function reusing values from cache. Only points
+	 * missing in cached segment are computed, then segment is extended with
+	 * them.
+	 * 
+	 * @param first Grid index of first point.
+	 * @param count Number of points.
+	 */
+	private void discretizeCached(long first, int count) {
+		SampleCache.Plan plan = cache.plan(input, resolution, first, first + count - 1);
+
+		if (plan.isComplete() == false) {
+			discretize(plan.getValues(), null, plan.getFirst(), 0, plan.getReusedFrom());
+			discretize(plan.getValues(), null, plan.getFirst(), plan.getReusedTo(), plan.size());
+			cache.put(input, resolution, plan.toSegment());
+		}
+
+		plan.copy(first, samples.getYs(), count);
+	}
+
+	/**
+	 * Computes values of current function in given range of grid points,
+	 * in parallel if enabled and range is big enough.
+	 * 
+	 * @param values Array to save values in.
+	 * @param slopes Array to save derivatives in, null if not needed.
+	 * @param firstIndex Grid index of point saved at index 0.
+	 * @param from Index of first value to compute.
+	 * @param to Index after last value to compute.
+	 */
+	private void discretize(double[] values, double[] slopes, long firstIndex, int from, int to) {
+		if (parallel == true && RangeTask.isSplit(to - from) == true) {
+			CompiledExpression function = getFunction();
+			RangeTask.invoke(from, to,
+					(a, b) -> discretize(function.newContext(), values, slopes, firstIndex, (int) a, (int) b));
+		} else if (to > from) {
+			discretize(getContext(), values, slopes, firstIndex, from, to);
+		}
+	}
+
+	/**
+	 * Returns compiled current function, taking it from the shared
+	 * CompiledExpressionCache if needed.
+	 * 
+	 * @return Compiled function.
+	 */
+	private CompiledExpression getFunction() {
+		if (function == null) {
+			function = CompiledExpressionCache.getDefault().get(input);
+		}
+
+		return function;
+	}
+
+	/**
+	 * Returns context for sequential evaluation of current function.
+	 * 
+	 * @return Evaluation context.
+	 */
+	private EvaluationContext getContext() {
+		if (context == null) {
+			context = getFunction().newContext();
+		}
+
+		return context;
+	}
+
+	/**
+	 * Computes values of function in given range of grid points, passing
+	 * points to the expression in blocks.
+	 * 
+	 * @param context Evaluation context used by the calling thread.
+	 * @param values Array to save values in.
+	 * @param slopes Array to save derivatives in, null if not needed.
+	 * @param firstIndex Grid index of point saved at index 0.
+	 * @param from Index of first value to compute.
+	 * @param to Index after last value to compute.
+	 */
+	private void discretize(EvaluationContext context, double[] values, double[] slopes, long firstIndex, int from,
+			int to) {
+		double[] xs = new double[Math.min(blockPoints, to - from)];
+		double[] ds = slopes != null ? new double[xs.length] : null;
+
+		for (int i = from; i < to; i += xs.length) {
+			int count = Math.min(xs.length, to - i);
+
+			for (int j = 0; j < count; j++) {
+				xs[j] = (firstIndex + i + j) * resolution;
+			}
+
+			if (slopes != null) {
+				context.getDuals(xs, xs, ds, 0, count);
+				System.arraycopy(ds, 0, slopes, i, count);
+			} else {
+				context.getValues(xs, xs, 0, count);
+			}
+
+			System.arraycopy(xs, 0, values, i, count);
+		}
+	}
+
 }
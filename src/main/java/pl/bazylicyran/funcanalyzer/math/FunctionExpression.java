@@ -1,15 +1,53 @@
 package pl.bazylicyran.funcanalyzer.math;
 
+import java.util.function.DoubleUnaryOperator;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpNode;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionBytecodeCompiler;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionGraph;
+
 /**
  * Represents mathematical expression with possibility of using variables.
  * 
+ * Expression is compiled into a tree on first evaluation, after that only
+ * variable values change and the tree is evaluated directly.
+ * 
+ * Optionally the tree is further compiled to bytecode taking x as its only
+ * argument. Interpreted tree is used when bytecode is disabled or the
+ * expression can't be compiled.
+ * 
  * @author Bazyli Cyran
  */
 public class FunctionExpression extends MathExpression {
 
+	/** Name of variable passed to bytecode compiled expression. */
+	private static final String argument = "x";
+
+	/** Whether new expressions use bytecode compilation by default. */
+	private static boolean defaultBytecode = Boolean.getBoolean("funcanalyzer.bytecode");
+
 	/** Whether vars changed since last eval or not */
 	private boolean varsChanged = false;
 
+	/** Root of compiled expression tree. */
+	private ExpNode root;
+
+	/** Values of variables used in compiled expression, ordered by slot. */
+	private double[] vars;
+
+	/** Whether expression should be compiled to bytecode. */
+	private boolean bytecode = defaultBytecode;
+
+	/** Bytecode compiled expression, null if not compiled. */
+	private DoubleUnaryOperator compiled;
+
+	/** Slot of x in compiled expression. */
+	private int argumentSlot = -1;
+
+	/** Context of the last compiled snapshot, null if not created. */
+	private EvaluationContext context;
+
 	/**
 	 * Calls MathExpression constructor
 	 * 
@@ -19,6 +57,51 @@ public class FunctionExpression extends MathExpression {
 		super(expression);
 	}
 
+	/**
+	 * Sets whether newly created expressions should be compiled to bytecode.
+	 * 
+	 * @param value True if bytecode should be used.
+	 */
+	public static void setDefaultBytecode(boolean value) {
+		defaultBytecode = value;
+	}
+
+	/**
+	 * Sets whether this expression should be compiled to bytecode or evaluated
+	 * as a tree.
+	 * 
+	 * @param value True if bytecode should be used.
+	 */
+	public void setBytecode(boolean value) {
+		bytecode = value;
+		compiled = null;
+		context = null;
+		evaluated = false;
+	}
+
+	/**
+	 * Sets whether expression tree should be simplified before evaluation.
+	 * 
+	 * @param value True if tree should be simplified.
+	 * @see pl.bazylicyran.funcanalyzer.parsing.ExpressionOptimizer
+	 */
+	public void setOptimize(boolean value) {
+		parser.setOptimize(value);
+		root = null;
+		compiled = null;
+		context = null;
+		evaluated = false;
+	}
+
+	/**
+	 * Returns whether expression is currently evaluated by bytecode.
+	 * 
+	 * @return True if bytecode compiled expression is used.
+	 */
+	public boolean isBytecode() {
+		return compiled != null;
+	}
+
 	/**
 	 * Adds new variable (its name and value).
 	 * 
@@ -26,7 +109,29 @@ public class FunctionExpression extends MathExpression {
 	 * @param value Variable value.
 	 */
 	public void setVar(String name, double value) {
+		// constants are compiled as values, so tree has to be compiled again
+		if (parser.isConstant(name)) {
+			root = null;
+			compiled = null;
+			context = null;
+		}
+
 		parser.addVariable(name, value);
+
+		if (root != null) {
+			int slot = parser.getSlot(name);
+
+			if (slot >= 0) {
+				vars[slot] = value;
+			}
+
+			// other variables are compiled as constants
+			if (slot >= 0 && slot != argumentSlot) {
+				compiled = null;
+				context = null;
+			}
+		}
+
 		varsChanged = true;
 	}
 
@@ -40,13 +145,128 @@ public class FunctionExpression extends MathExpression {
 		return value;
 	}
 
+	/**
+	 * Evaluates expression for given value of x. Unlike setVar and getValue
+	 * does not box any values, so it is suitable for sampling the function.
+	 * 
+	 * @param x Value of x.
+	 * @return Value of expression.
+	 */
+	public double getValue(double x) {
+		if (root == null) {
+			parser.addVariable(argument, x);
+		}
+
+		prepare();
+
+		if (argumentSlot >= 0) {
+			vars[argumentSlot] = x;
+		}
+
+		varsChanged = true;
+
+		return compiled != null ? compiled.applyAsDouble(x) : root.eval(vars);
+	}
+
+	/**
+	 * Evaluates expression for many values of x, undefined values are NaN.
+	 * Bigger ranges are evaluated in blocks of points, every node of the
+	 * expression is computed for the whole block at once.
+	 * 
+	 * Arrays of arguments and values may be the same array.
+	 * 
+	 * @param xs Values of x.
+	 * @param ys Array to save values in, at the same indexes as arguments.
+	 * @param from Index of first value.
+	 * @param to Index after last value.
+	 */
+	public void getValues(double[] xs, double[] ys, int from, int to) {
+		if (context == null) {
+			context = compile().newContext();
+		}
+
+		context.getValues(xs, ys, from, to);
+	}
+
+	/**
+	 * Compiles expression with current values of variables into an immutable
+	 * snapshot, which can be shared by many threads. Later changes of this
+	 * expression don't affect the snapshot.
+	 * 
+	 * @return Compiled expression.
+	 * @throws ExpressionException If expression is invalid.
+	 */
+	public CompiledExpression compile() {
+		if (root == null) {
+			parser.addVariable(argument, 0);
+		}
+
+		prepare();
+
+		return new CompiledExpression(getExpression(), root, parser.getSlotNames(), vars, argumentSlot, compiled);
+	}
+
+	/**
+	 * Adds compiled expression to given graph, x is graph argument and other
+	 * variables are added with current values.
+	 * 
+	 * @param graph Graph to add expression to.
+	 * @return Index of expression output in graph.
+	 */
+	public int addTo(ExpressionGraph graph) {
+		if (root == null) {
+			parser.addVariable(argument, 0);
+		}
+
+		prepare();
+
+		return graph.add(root, argumentSlot, vars);
+	}
+
 	@Override
 	protected void eval() {
-		parser.parse();
+		prepare();
 
-		value = parser.getValue();
+		if (compiled != null) {
+			value = compiled.applyAsDouble(argumentSlot >= 0 ? vars[argumentSlot] : 0);
+		} else {
+			value = root.eval(vars);
+		}
 
 		evaluated = true;
 	}
 
+	/**
+	 * Compiles expression tree and, if enabled, bytecode unless they are
+	 * already compiled.
+	 */
+	private void prepare() {
+		if (root == null) {
+			root = parser.compile();
+			vars = parser.getSlotValues();
+			argumentSlot = parser.getSlot(argument);
+		}
+
+		if (bytecode == true && compiled == null) {
+			compileBytecode();
+		}
+	}
+
+	/**
+	 * Compiles expression tree to bytecode. If expression can't be compiled,
+	 * bytecode is disabled and tree is evaluated instead.
+	 */
+	private void compileBytecode() {
+		if (!ExpressionBytecodeCompiler.canCompile(root)) {
+			bytecode = false;
+			return;
+		}
+
+		try {
+			compiled = new ExpressionBytecodeCompiler(root, argumentSlot, vars).compile();
+		} catch (ExpressionException e) {
+			bytecode = false;
+		}
+	}
+
 }
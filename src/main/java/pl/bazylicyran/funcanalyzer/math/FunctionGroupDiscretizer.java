@@ -0,0 +1,365 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionGraph;
+
+/**
+ * Discretizes many functions in the same interval and with the same resolution.
+ * 
+ * Functions are compiled into one ExpressionGraph, so subexpressions common to
+ * many functions, e.g. sin(x) in sin(x) and abs(sin(x)), are computed once per
+ * point. Points lie on the same grid as in FunctionDiscretizer and are shared
+ * with it through SampleCache: only points missing in cached segments are
+ * computed, for all functions at once.
+ * 
+ * Functions which can't be compiled have no points.
+ * 
+ * @author Bazyli Cyran
+ */
+public class FunctionGroupDiscretizer {
+
+	/** Functions to discretize. */
+	private List<String> inputs = new ArrayList<>();
+
+	/** Graph of all functions, created when first needed. */
+	private ExpressionGraph graph;
+
+	/** Graph outputs of functions, -1 for functions which can't be compiled. */
+	private int[] outputs;
+
+	/** Start of interval in which functions will be discretized. */
+	private double intervalStart;
+
+	/** End of interval in which functions will be discretized. */
+	private double intervalEnd;
+
+	/** Discretization resolution. */
+	private double resolution;
+
+	/** Discretized functions, reused between discretizations. */
+	private final List<SampledFunction> samples = new ArrayList<>();
+
+	/** Whether or not functions were discretized. */
+	private boolean discretized = false;
+
+	/** Whether or not functions should be discretized in parallel. */
+	private boolean parallel = false;
+
+	/** Cache of previously discretized values, null if not used. */
+	private SampleCache cache;
+
+	/** Number of points evaluated at once by the graph. */
+	private static final int blockPoints = 256;
+
+	/**
+	 * Sets functions to discretize.
+	 * 
+	 * @param functions Functions to discretize.
+	 */
+	public void setFunctions(List<String> functions) {
+		if (!functions.equals(inputs)) {
+			inputs = new ArrayList<>(functions);
+			graph = null;
+		}
+
+		while (samples.size() < inputs.size()) {
+			samples.add(new SampledFunction());
+		}
+
+		discretized = false;
+	}
+
+	/**
+	 * Sets discretizer interval to given values.
+	 * 
+	 * @param intervalStart Start of interval.
+	 * @param intervalEnd End of interval.
+	 */
+	public void setInterval(double intervalStart, double intervalEnd) {
+		this.intervalStart = intervalStart;
+		this.intervalEnd = intervalEnd;
+		discretized = false;
+	}
+
+	/**
+	 * Sets discretizer resolution to given value.
+	 * 
+	 * @param resolution Resolution to set.
+	 */
+	public void setResolution(double resolution) {
+		this.resolution = resolution;
+		discretized = false;
+	}
+
+	/**
+	 * Sets whether functions should be discretized on multiple threads.
+	 * 
+	 * @param parallel True if functions should be discretized in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Sets cache of discretized values shared by discretizers.
+	 * 
+	 * @param cache Cache to use, null to disable caching.
+	 */
+	public void setCache(SampleCache cache) {
+		this.cache = cache;
+		discretized = false;
+	}
+
+	/**
+	 * Returns graph of current functions.
+	 * 
+	 * @return Compiled graph.
+	 */
+	public ExpressionGraph getGraph() {
+		if (graph == null) {
+			compile();
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Returns discretized function with given index. Returned object is reused
+	 * and overwritten by next discretization.
+	 * 
+	 * @param index Index of function.
+	 * @return Discretized points.
+	 */
+	public SampledFunction getSamples(int index) {
+		if (discretized == false) {
+			discretize();
+		}
+
+		return samples.get(index);
+	}
+
+	/**
+	 * Compiles current functions into graph.
+	 */
+	private void compile() {
+		graph = new ExpressionGraph();
+		outputs = new int[inputs.size()];
+
+		for (int i = 0; i < inputs.size(); i++) {
+			try {
+				outputs[i] = CompiledExpressionCache.getDefault().get(inputs.get(i)).addTo(graph);
+			} catch (ExpressionException e) {
+				outputs[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Discretizes current functions.
+	 */
+	private void discretize() {
+		if (graph == null) {
+			compile();
+		}
+
+		long[] grid = FunctionDiscretizer.gridRange(intervalStart, intervalEnd, resolution);
+		long first = grid[0];
+		long last = first + grid[1] - 1;
+		int count = (int) grid[1];
+		List<Segment> pending = new ArrayList<>();
+
+		for (int i = 0; i < inputs.size(); i++) {
+			SampledFunction function = samples.get(i);
+			function.resize(outputs[i] >= 0 ? count : 0);
+
+			if (function.size() == 0) {
+				continue;
+			}
+
+			double[] xs = function.getXs();
+
+			for (int j = 0; j < count; j++) {
+				xs[j] = (first + j) * resolution;
+			}
+
+			Segment segment = plan(i, first, last);
+
+			if (segment != null) {
+				pending.add(segment);
+			}
+		}
+
+		if (!pending.isEmpty()) {
+			Segment[] segments = pending.toArray(new Segment[pending.size()]);
+
+			for (long[] range : missingRanges(segments)) {
+				discretize(segments, range[0], range[1] + 1);
+			}
+
+			for (Segment segment : segments) {
+				finish(segment, first, count);
+			}
+		}
+
+		discretized = true;
+	}
+
+	/**
+	 * Prepares values of function with given index, copying cached ones.
+	 * 
+	 * @param index Index of function.
+	 * @param first Grid index of first point.
+	 * @param last Grid index of last point.
+	 * @return Segment to compute or null if all values were cached.
+	 */
+	private Segment plan(int index, long first, long last) {
+		double[] ys = samples.get(index).getYs();
+
+		if (cache == null) {
+			return new Segment(index, new SampleCache.Plan(first, ys, (int) (last - first + 1), 0, 0, 0));
+		}
+
+		SampleCache.Plan plan = cache.plan(inputs.get(index), resolution, first, last);
+
+		if (plan.isComplete() == true) {
+			plan.copy(first, ys, (int) (last - first + 1));
+			return null;
+		}
+
+		return new Segment(index, plan);
+	}
+
+	/**
+	 * Returns sorted, disjoint ranges of grid indexes which aren't cached for
+	 * some function.
+	 * 
+	 * @param segments Segments to compute.
+	 * @return Ranges of grid indexes, both ends inclusive.
+	 */
+	private List<long[]> missingRanges(Segment[] segments) {
+		List<long[]> ranges = new ArrayList<>();
+
+		for (Segment segment : segments) {
+			SampleCache.Plan plan = segment.plan;
+
+			if (plan.getReusedFrom() > 0) {
+				ranges.add(new long[] { plan.getFirst(), plan.getFirst() + plan.getReusedFrom() - 1 });
+			}
+
+			if (plan.getReusedTo() < plan.size()) {
+				ranges.add(new long[] { plan.getFirst() + plan.getReusedTo(), plan.getFirst() + plan.size() - 1 });
+			}
+		}
+
+		ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+		List<long[]> merged = new ArrayList<>();
+
+		for (long[] range : ranges) {
+			long[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+
+			if (previous != null && range[0] <= previous[1] + 1) {
+				previous[1] = Math.max(previous[1], range[1]);
+			} else {
+				merged.add(range.clone());
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Computes values of functions in given range of grid points, in parallel
+	 * if enabled and range is big enough.
+	 * 
+	 * @param segments Segments to save values in.
+	 * @param from Grid index of first point.
+	 * @param to Grid index after last point.
+	 */
+	private void discretize(Segment[] segments, long from, long to) {
+		if (parallel == true && RangeTask.isSplit(to - from) == true) {
+			RangeTask.invoke(from, to, (a, b) -> discretize(graph.newBlock(blockPoints), segments, a, b));
+		} else if (to > from) {
+			discretize(graph.newBlock(blockPoints), segments, from, to);
+		}
+	}
+
+	/**
+	 * Computes values of functions in given range of grid points, evaluating
+	 * graph in blocks of points.
+	 * 
+	 * @param block Block used by the calling thread.
+	 * @param segments Segments to save values in.
+	 * @param from Grid index of first point.
+	 * @param to Grid index after last point.
+	 */
+	private void discretize(ExpressionGraph.Block block, Segment[] segments, long from, long to) {
+		double[] xs = new double[block.size()];
+
+		for (long g = from; g < to; g += xs.length) {
+			int count = (int) Math.min(xs.length, to - g);
+
+			for (int j = 0; j < count; j++) {
+				xs[j] = (g + j) * resolution;
+			}
+
+			graph.eval(xs, 0, count, block);
+
+			for (Segment segment : segments) {
+				SampleCache.Plan plan = segment.plan;
+
+				// part of the block inside the segment
+				long start = Math.max(g, plan.getFirst());
+				long end = Math.min(g + count, plan.getFirst() + plan.size());
+
+				if (start < end) {
+					block.copyOutput(outputs[segment.index], (int) (start - g), plan.getValues(),
+							(int) (start - plan.getFirst()), (int) (end - start));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores computed segment in cache and copies discretized interval to
+	 * samples.
+	 * 
+	 * @param segment Computed segment.
+	 * @param first Grid index of first point.
+	 * @param count Number of points.
+	 */
+	private void finish(Segment segment, long first, int count) {
+		segment.plan.copy(first, samples.get(segment.index).getYs(), count);
+
+		if (cache != null) {
+			cache.put(inputs.get(segment.index), resolution, segment.plan.toSegment());
+		}
+	}
+
+	/**
+	 * Values of one function being computed.
+	 */
+	private static class Segment {
+
+		/** Index of function. */
+		private final int index;
+
+		/** Planned values of function. */
+		private final SampleCache.Plan plan;
+
+		/**
+		 * Initializes segment.
+		 * 
+		 * @param index Index of function.
+		 * @param plan Planned values of function.
+		 */
+		Segment(int index, SampleCache.Plan plan) {
+			this.index = index;
+			this.plan = plan;
+		}
+
+	}
+
+}
@@ -0,0 +1,553 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes definite integrals of functions with adaptive Gauss-Kronrod
+ * quadrature.
+ * 
+ * Every subinterval is integrated with 15-point Kronrod rule, difference from
+ * the embedded 7-point Gauss rule estimates the error. Subinterval with the
+ * biggest error is bisected until the sum of errors is within tolerance, as
+ * in QUADPACK's QAG, so singularities and discontinuities get only as many
+ * points as they need.
+ * 
+ * In parallel mode interval is split into chunks refined on a ForkJoinPool,
+ * each with its own EvaluationContext. Chunks draw evaluations from one
+ * budget and each is refined until its error is within its even share of
+ * tolerance or errors of all chunks together are within tolerance, so
+ * tolerance left over by easy chunks goes to the hard ones, as in global
+ * error control of QAG.
+ * 
+ * Points where function throws ArithmeticException are treated as zero, so
+ * the result is an integral over the domain of function in the interval.
+ * Subintervals containing both defined and undefined points are refined, which
+ * locates edges of the domain.
+ * 
+ * @author Bazyli Cyran
+ */
+public class FunctionIntegrator {
+
+	/** Nodes of Kronrod rule in [0, 1], odd ones are nodes of Gauss rule. */
+	private static final double[] kronrodNodes = { 0.991455371120812639206854697526329,
+			0.949107912342758524526189684047851, 0.864864423359769072789712788640926,
+			0.741531185599394439863864773280788, 0.586087235467691130294144845693013,
+			0.405845151377397166906606412076961, 0.207784955007898467600689403773245, 0 };
+
+	/** Weights of Kronrod rule, the last one is weight of the center. */
+	private static final double[] kronrodWeights = { 0.022935322010529224963732008058970,
+			0.063092092629978553290700663189204, 0.104790010322250183839876322541518,
+			0.140653259715525918745189590510238, 0.169004726639267902826583426598550,
+			0.190350578064785409913256402421014, 0.204432940075298892414161999234649,
+			0.209482141084727828012999174891714 };
+
+	/** Weights of Gauss rule, the last one is weight of the center. */
+	private static final double[] gaussWeights = { 0.129484966168869693270611432679082,
+			0.279705391489276667901467771423780, 0.381830050505118944950369775488975,
+			0.417959183673469387755102040816327 };
+
+	/** Number of points of the rule. */
+	private static final int rulePoints = 15;
+
+	/** Machine epsilon. */
+	private static final double epsilon = Math.ulp(1.0);
+
+	/** Compiled function. */
+	private final CompiledExpression function;
+
+	/** Requested absolute error. */
+	private double absoluteTolerance = 1e-10;
+
+	/** Requested error relative to the value of integral. */
+	private double relativeTolerance = 1e-10;
+
+	/** Maximal number of evaluations of function. */
+	private long maxEvaluations = 1 << 20;
+
+	/** Whether or not interval should be integrated in parallel. */
+	private boolean parallel = true;
+
+	/**
+	 * Compiles given function.
+	 * 
+	 * @param function Function of x.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid.
+	 */
+	public FunctionIntegrator(String function) {
+		this.function = CompiledExpressionCache.getDefault().get(function);
+	}
+
+	/**
+	 * Integrates function in given interval with default settings.
+	 * 
+	 * @param function Function of x.
+	 * @param start Lower bound.
+	 * @param end Upper bound.
+	 * @return Integral with its error estimate.
+	 */
+	public static IntegrationResult integrate(String function, double start, double end) {
+		return new FunctionIntegrator(function).integrate(start, end);
+	}
+
+	/**
+	 * Sets requested absolute error.
+	 * 
+	 * @param tolerance Absolute tolerance.
+	 */
+	public void setAbsoluteTolerance(double tolerance) {
+		this.absoluteTolerance = tolerance;
+	}
+
+	/**
+	 * Sets requested error relative to the value of integral. The bigger of
+	 * absolute and relative tolerance is used.
+	 * 
+	 * @param tolerance Relative tolerance.
+	 */
+	public void setRelativeTolerance(double tolerance) {
+		this.relativeTolerance = tolerance;
+	}
+
+	/**
+	 * Sets maximal number of evaluations of function. When it is reached,
+	 * result is returned even if it didn't converge.
+	 * 
+	 * @param maxEvaluations Maximal number of evaluations.
+	 */
+	public void setMaxEvaluations(long maxEvaluations) {
+		this.maxEvaluations = maxEvaluations;
+	}
+
+	/**
+	 * Sets whether interval should be integrated on multiple threads.
+	 * 
+	 * @param parallel True if interval should be integrated in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Integrates function in given interval. Bounds may be in any order.
+	 * 
+	 * @param start Lower bound.
+	 * @param end Upper bound.
+	 * @return Integral with its error estimate.
+	 * @throws ArithmeticException If bounds are not finite.
+	 */
+	public IntegrationResult integrate(double start, double end) {
+		if (Double.isNaN(start) || Double.isNaN(end) || Double.isInfinite(start) || Double.isInfinite(end)) {
+			throw new ArithmeticException("Integration bounds must be finite.");
+		}
+
+		if (start > end) {
+			return integrate(end, start).negate();
+		}
+
+		int chunks = parallel == true ? 4 * ForkJoinPool.getCommonPoolParallelism() : 1;
+		Budget budget = new Budget(maxEvaluations - (long) chunks * rulePoints, chunks);
+		Quadrature quadrature = new Quadrature(function.newContext(), budget, 0);
+		Piece[] pieces = new Piece[chunks];
+		double estimate = 0;
+
+		for (int i = 0; i < chunks; i++) {
+			double a = start + (end - start) * i / chunks;
+			double b = i == chunks - 1 ? end : start + (end - start) * (i + 1) / chunks;
+			pieces[i] = quadrature.rule(a, b);
+			estimate += pieces[i].value;
+		}
+
+		double tolerance = Math.max(absoluteTolerance, relativeTolerance * Math.abs(estimate));
+		Quadrature[] results = new Quadrature[chunks];
+		budget.tolerance = tolerance;
+
+		for (int i = 0; i < chunks; i++) {
+			budget.setError(i, pieces[i].error);
+		}
+
+		if (chunks > 1) {
+			ForkJoinPool.commonPool().invoke(new RefineTask(pieces, results, budget, tolerance / chunks, 0, chunks));
+		} else {
+			quadrature.refine(pieces[0], tolerance);
+			results[0] = quadrature;
+		}
+
+		double value = 0;
+		double error = 0;
+		long evaluations = chunks > 1 ? quadrature.evaluations : 0;
+		long undefined = chunks > 1 ? quadrature.undefined : 0;
+		int intervals = 0;
+
+		for (Quadrature result : results) {
+			value += result.value;
+			error += result.error;
+			evaluations += result.evaluations;
+			undefined += result.undefined;
+			intervals += result.intervals;
+		}
+
+		return new IntegrationResult(value, error, tolerance, evaluations, undefined, intervals);
+	}
+
+	/**
+	 * Subinterval with its integral and error estimate.
+	 */
+	private static class Piece implements Comparable<Piece> {
+
+		/** Start of subinterval. */
+		private final double start;
+
+		/** End of subinterval. */
+		private final double end;
+
+		/** Integral in subinterval. */
+		private final double value;
+
+		/** Error estimate. */
+		private final double error;
+
+		/**
+		 * Creates subinterval.
+		 * 
+		 * @param start Start of subinterval.
+		 * @param end End of subinterval.
+		 * @param value Integral in subinterval.
+		 * @param error Error estimate.
+		 */
+		Piece(double start, double end, double value, double error) {
+			this.start = start;
+			this.end = end;
+			this.value = value;
+			this.error = error;
+		}
+
+		@Override
+		public int compareTo(Piece other) {
+			// biggest error first
+			return Double.compare(other.error, error);
+		}
+
+	}
+
+	/**
+	 * Evaluations left and current error estimates of chunks, shared by
+	 * threads integrating them.
+	 */
+	private static class Budget {
+
+		/** Number of evaluations left for refinement. */
+		private final AtomicLong evaluations;
+
+		/** Error estimates of chunks, as bits of doubles. */
+		private final AtomicLongArray errors;
+
+		/** Absolute tolerance of the whole interval. */
+		private double tolerance;
+
+		/**
+		 * Initializes budget.
+		 * 
+		 * @param evaluations Number of evaluations left for refinement.
+		 * @param chunks Number of chunks.
+		 */
+		Budget(long evaluations, int chunks) {
+			this.evaluations = new AtomicLong(evaluations);
+			this.errors = new AtomicLongArray(chunks);
+		}
+
+		/**
+		 * Takes given number of evaluations from the budget.
+		 * 
+		 * @param count Number of evaluations.
+		 * @return True if there were enough evaluations left.
+		 */
+		boolean take(int count) {
+			if (evaluations.addAndGet(-count) >= 0) {
+				return true;
+			}
+
+			evaluations.addAndGet(count);
+
+			return false;
+		}
+
+		/**
+		 * Saves current error estimate of chunk.
+		 * 
+		 * @param chunk Index of chunk.
+		 * @param error Error estimate.
+		 */
+		void setError(int chunk, double error) {
+			errors.set(chunk, Double.doubleToRawLongBits(error));
+		}
+
+		/**
+		 * Checks if errors of all chunks together are within tolerance.
+		 * 
+		 * @return True if integral converged, false also if some error isn't
+		 *         finite.
+		 */
+		boolean isConverged() {
+			double sum = 0;
+
+			for (int i = 0; i < errors.length(); i++) {
+				sum += Double.longBitsToDouble(errors.get(i));
+			}
+
+			return sum <= tolerance;
+		}
+
+	}
+
+	/**
+	 * Adaptive integration of one chunk by one thread. Holds evaluation
+	 * context, buffers of rule points and the result.
+	 */
+	private static class Quadrature {
+
+		/** Context evaluating function. */
+		private final EvaluationContext context;
+
+		/** Budget shared with other chunks. */
+		private final Budget budget;
+
+		/** Index of the chunk. */
+		private final int chunk;
+
+		/** Points of the rule. */
+		private final double[] xs = new double[rulePoints];
+
+		/** Values of function in points of the rule. */
+		private final double[] ys = new double[rulePoints];
+
+		/** Integral of the chunk. */
+		private double value;
+
+		/** Error estimate of the chunk. */
+		private double error;
+
+		/** Number of evaluations. */
+		private long evaluations;
+
+		/** Number of evaluations in undefined points. */
+		private long undefined;
+
+		/** Number of subintervals. */
+		private int intervals;
+
+		/**
+		 * Initializes context.
+		 * 
+		 * @param context Context evaluating function.
+		 * @param budget Budget shared with other chunks.
+		 * @param chunk Index of the chunk.
+		 */
+		Quadrature(EvaluationContext context, Budget budget, int chunk) {
+			this.context = context;
+			this.budget = budget;
+			this.chunk = chunk;
+		}
+
+		/**
+		 * Bisects subintervals with biggest errors until sum of errors is
+		 * within tolerance of the chunk or errors of all chunks are within
+		 * tolerance, budget is used up or subintervals can't be bisected.
+		 * 
+		 * @param whole Whole chunk integrated once.
+		 * @param tolerance Absolute tolerance of the chunk.
+		 */
+		void refine(Piece whole, double tolerance) {
+			PriorityQueue<Piece> pieces = new PriorityQueue<>();
+			pieces.add(whole);
+			double sum = whole.error;
+			double done = 0;
+			value = 0;
+			error = 0;
+
+			// sum may be NaN after infinite errors, then only budget stops
+			while (!pieces.isEmpty() && !(sum + done <= tolerance) && budget.isConverged() == false) {
+				Piece piece = pieces.poll();
+				double middle = (piece.start + piece.end) / 2;
+
+				// too short to bisect, keep as it is
+				if (middle <= piece.start || middle >= piece.end) {
+					sum -= piece.error;
+					done += piece.error;
+					add(piece);
+					continue;
+				}
+
+				if (budget.take(2 * rulePoints) == false) {
+					pieces.add(piece);
+					break;
+				}
+
+				Piece left = rule(piece.start, middle);
+				Piece right = rule(middle, piece.end);
+				sum += left.error + right.error - piece.error;
+				pieces.add(left);
+				pieces.add(right);
+				budget.setError(chunk, sum + done);
+			}
+
+			for (Piece piece : pieces) {
+				add(piece);
+			}
+		}
+
+		/**
+		 * Adds finished subinterval to the result.
+		 * 
+		 * @param piece Finished subinterval.
+		 */
+		private void add(Piece piece) {
+			value += piece.value;
+			error += piece.error;
+			intervals++;
+		}
+
+		/**
+		 * Integrates function in subinterval with Gauss-Kronrod rule.
+		 * 
+		 * @param start Start of subinterval.
+		 * @param end End of subinterval.
+		 * @return Integral with error estimate.
+		 */
+		Piece rule(double start, double end) {
+			double center = (start + end) / 2;
+			double half = (end - start) / 2;
+
+			for (int i = 0; i < 7; i++) {
+				xs[2 * i] = center - half * kronrodNodes[i];
+				xs[2 * i + 1] = center + half * kronrodNodes[i];
+			}
+
+			xs[14] = center;
+			context.getValues(xs, ys, 0, rulePoints);
+			evaluations += rulePoints;
+			int missing = 0;
+
+			for (int i = 0; i < rulePoints; i++) {
+				if (Double.isNaN(ys[i]) || Double.isInfinite(ys[i])) {
+					ys[i] = 0;
+					missing++;
+				}
+			}
+
+			undefined += missing;
+			double kronrod = kronrodWeights[7] * ys[14];
+			double gauss = gaussWeights[3] * ys[14];
+			double absolute = Math.abs(kronrod);
+
+			for (int i = 0; i < 7; i++) {
+				double pair = ys[2 * i] + ys[2 * i + 1];
+				kronrod += kronrodWeights[i] * pair;
+				absolute += kronrodWeights[i] * (Math.abs(ys[2 * i]) + Math.abs(ys[2 * i + 1]));
+
+				if (i % 2 == 1) {
+					gauss += gaussWeights[i / 2] * pair;
+				}
+			}
+
+			// deviation of function from its mean
+			double mean = kronrod / 2;
+			double deviation = kronrodWeights[7] * Math.abs(ys[14] - mean);
+
+			for (int i = 0; i < 7; i++) {
+				deviation += kronrodWeights[i] * (Math.abs(ys[2 * i] - mean) + Math.abs(ys[2 * i + 1] - mean));
+			}
+
+			double length = Math.abs(half);
+			absolute *= length;
+			deviation *= length;
+			double error = Math.abs((kronrod - gauss) * half);
+
+			// QUADPACK scaling of the raw estimate
+			if (deviation != 0 && error != 0) {
+				error = deviation * Math.min(1, Math.pow(200 * error / deviation, 1.5));
+			}
+
+			error = Math.max(50 * epsilon * absolute, error);
+
+			// edge of the domain inside, refine until it is located
+			if (missing > 0 && missing < rulePoints) {
+				error = Math.max(error, absolute);
+			}
+
+			// values overflowed near a pole
+			if (Double.isNaN(error) || Double.isInfinite(kronrod)) {
+				error = Double.POSITIVE_INFINITY;
+			}
+
+			return new Piece(start, end, kronrod * half, error);
+		}
+
+	}
+
+	/**
+	 * Refines range of chunks, splitting it in halves until single chunk is
+	 * left.
+	 */
+	private class RefineTask extends RecursiveAction {
+
+		/** serialVersionUID */
+		private static final long serialVersionUID = -2315472048614305921L;
+
+		/** Chunks integrated once. */
+		private final Piece[] pieces;
+
+		/** Array to save results of chunks in. */
+		private final Quadrature[] results;
+
+		/** Budget shared by chunks. */
+		private final Budget budget;
+
+		/** Even share of tolerance of single chunk. */
+		private final double tolerance;
+
+		/** Index of first chunk. */
+		private final int from;
+
+		/** Index after last chunk. */
+		private final int to;
+
+		/**
+		 * Initializes range of chunks.
+		 * 
+		 * @param pieces Chunks integrated once.
+		 * @param results Array to save results of chunks in.
+		 * @param budget Budget shared by chunks.
+		 * @param tolerance Even share of tolerance of single chunk.
+		 * @param from Index of first chunk.
+		 * @param to Index after last chunk.
+		 */
+		RefineTask(Piece[] pieces, Quadrature[] results, Budget budget, double tolerance, int from, int to) {
+			this.pieces = pieces;
+			this.results = results;
+			this.budget = budget;
+			this.tolerance = tolerance;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				Quadrature quadrature = new Quadrature(function.newContext(), budget, from);
+				quadrature.refine(pieces[from], tolerance);
+				results[from] = quadrature;
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RefineTask(pieces, results, budget, tolerance, from, middle),
+						new RefineTask(pieces, results, budget, tolerance, middle, to));
+			}
+		}
+
+	}
+
+}
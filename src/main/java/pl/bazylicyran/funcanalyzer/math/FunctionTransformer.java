@@ -128,27 +128,37 @@ public class FunctionTransformer {
 
 	/**
 	 * Normalizes function.
+	 */
+	private void normalize() {
+		function = normalize(function);
+	}
+
+	/**
+	 * Normalizes given function.
 	 * 
 	 * Currently only adds multiplication symbol between number and variable.
 	 * For example: 2x => 2*x
+	 * 
+	 * @param function Function to normalize.
+	 * @return Normalized function.
 	 */
-	private void normalize() {
-		String tmp = "";
+	public static String normalize(String function) {
+		StringBuilder sb = new StringBuilder(function.length() + 4);
 		char current;
 		char last = ' ';
 		for (int i = 0; i < function.length(); i++) {
 			current = function.charAt(i);
 
 			if (i > 0 && Character.isLetter(current) && Character.isDigit(last)) {
-				tmp += "*";
+				sb.append('*');
 			}
 
-			tmp += current;
+			sb.append(current);
 
 			last = current;
 		}
 
-		function = tmp;
+		return sb.toString();
 	}
 
 }
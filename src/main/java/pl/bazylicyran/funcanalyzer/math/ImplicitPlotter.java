@@ -0,0 +1,318 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpNode;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionException;
+import pl.bazylicyran.funcanalyzer.parsing.Interval;
+
+/**
+ * Plots implicit relation F(x, y) = 0 into pixels using a quadtree.
+ * 
+ * Plotted area is recursively divided into four cells. Function is evaluated
+ * for intervals of x and y in every cell and cells where its values can't be
+ * zero are discarded, so large empty regions cost single evaluation. Cells of
+ * one pixel are marked if function changes sign between their corners and
+ * has no pole in the cell. Values of functions which can't be evaluated for
+ * intervals are unknown, so their cells are never discarded and their pixels
+ * are marked by the sign test alone.
+ * 
+ * Relations are written as two expressions of x and y separated by equals
+ * sign, e.g. x^2 + y^2 = 4, and plotted as difference of the two sides.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ImplicitPlotter {
+
+	/** Name of the second variable. */
+	private static final String second = "y";
+
+	/** Root of expression tree of F. */
+	private final ExpNode root;
+
+	/** Slot of x, -1 if F doesn't use x. */
+	private final int xSlot;
+
+	/** Slot of y, -1 if F doesn't use y. */
+	private final int ySlot;
+
+	/** Values of variables used for point evaluation. */
+	private final double[] vars;
+
+	/** Intervals of variables used for interval evaluation. */
+	private final Interval[] intervals;
+
+	/** Number of interval and point evaluations in last plotting. */
+	private int evaluations;
+
+	/** X coordinate of the left edge of first column. */
+	private double left;
+
+	/** Y coordinate of the bottom edge of first row. */
+	private double bottom;
+
+	/** Size of a pixel in function units, same for both axes. */
+	private double pixel;
+
+	/** Number of rows. */
+	private int rows;
+
+	/** Marked pixels of last plotting. */
+	private boolean[] pixels;
+
+	/** Values of F at pixel corners, index column * (rows + 1) + row. */
+	private double[] corners;
+
+	/** Whether value at pixel corner was computed. */
+	private boolean[] computed;
+
+	/**
+	 * Creates plotter of given relation.
+	 * 
+	 * @param relation Relation of x and y.
+	 * @throws ExpressionException If relation is invalid.
+	 */
+	public ImplicitPlotter(String relation) {
+		this(compile(relation));
+	}
+
+	/**
+	 * Creates plotter of compiled function F, which is plotted as F = 0.
+	 * 
+	 * @param function Function of x and y.
+	 */
+	public ImplicitPlotter(CompiledExpression function) {
+		this.root = function.getRoot();
+		this.xSlot = function.getArgumentSlot();
+		this.ySlot = function.getSlot(second);
+		this.vars = function.values(0);
+		this.intervals = new Interval[vars.length];
+
+		for (int i = 0; i < vars.length; i++) {
+			intervals[i] = Interval.of(vars[i]);
+		}
+	}
+
+	/**
+	 * Checks if given string is a relation, i.e. it contains equals sign.
+	 * 
+	 * @param function Function or relation.
+	 * @return True if string is a relation.
+	 */
+	public static boolean isRelation(String function) {
+		return function.indexOf('=') >= 0;
+	}
+
+	/**
+	 * Compiles relation into function F of x and y, which is zero where the
+	 * relation holds. Compiled functions are shared through
+	 * CompiledExpressionCache.
+	 * 
+	 * @param relation Relation with single equals sign.
+	 * @return Difference of the two sides of relation.
+	 * @throws ExpressionException If relation is invalid.
+	 */
+	public static CompiledExpression compile(String relation) {
+		int equals = relation.indexOf('=');
+
+		if (equals < 0 || relation.indexOf('=', equals + 1) >= 0) {
+			throw new ExpressionException("Relation must contain single equals sign.");
+		}
+
+		String difference = "(" + relation.substring(0, equals) + ")-(" + relation.substring(equals + 1) + ")";
+
+		return CompiledExpressionCache.getDefault().get(difference, second);
+	}
+
+	/**
+	 * Returns number of function evaluations made by last plotting, both for
+	 * intervals and points.
+	 * 
+	 * @return Number of evaluations.
+	 */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Marks pixels the relation holds in. Pixel in given column and row is at
+	 * index column * rows + row, row 0 is at the bottom. Marks are only added,
+	 * array has to be cleared by the caller.
+	 * 
+	 * @param left X coordinate of the left edge of first column.
+	 * @param bottom Y coordinate of the bottom edge of first row.
+	 * @param pixel Size of a pixel in function units, same for both axes.
+	 * @param columns Number of columns.
+	 * @param rows Number of rows.
+	 * @param pixels Array of at least columns * rows pixels to mark.
+	 */
+	public void sample(double left, double bottom, double pixel, int columns, int rows, boolean[] pixels) {
+		this.left = left;
+		this.bottom = bottom;
+		this.pixel = pixel;
+		this.rows = rows;
+		this.pixels = pixels;
+		evaluations = 0;
+
+		if (columns > 0 && rows > 0) {
+			corners = new double[(columns + 1) * (rows + 1)];
+			computed = new boolean[corners.length];
+			sample(0, columns, 0, rows);
+		}
+
+		this.pixels = null;
+		corners = null;
+		computed = null;
+	}
+
+	/**
+	 * Marks pixels in given cell.
+	 * 
+	 * @param colFrom First column.
+	 * @param colTo Column after last one.
+	 * @param rowFrom First row.
+	 * @param rowTo Row after last one.
+	 */
+	private void sample(int colFrom, int colTo, int rowFrom, int rowTo) {
+		Interval values = eval(x(colFrom), x(colTo), y(rowFrom), y(rowTo));
+
+		if (!values.contains(0)) {
+			return;
+		}
+
+		if (colTo - colFrom == 1 && rowTo - rowFrom == 1) {
+			// sign changes at known poles, so they are not plotted
+			if ((values.isContinuous() == true || values.isKnown() == false) && signChanges(colFrom, rowFrom)) {
+				pixels[colFrom * rows + rowFrom] = true;
+			}
+
+			return;
+		}
+
+		int colMiddle = (colFrom + colTo) >>> 1;
+		int rowMiddle = (rowFrom + rowTo) >>> 1;
+
+		if (colMiddle == colFrom) {
+			sample(colFrom, colTo, rowFrom, rowMiddle);
+			sample(colFrom, colTo, rowMiddle, rowTo);
+		} else if (rowMiddle == rowFrom) {
+			sample(colFrom, colMiddle, rowFrom, rowTo);
+			sample(colMiddle, colTo, rowFrom, rowTo);
+		} else {
+			sample(colFrom, colMiddle, rowFrom, rowMiddle);
+			sample(colMiddle, colTo, rowFrom, rowMiddle);
+			sample(colFrom, colMiddle, rowMiddle, rowTo);
+			sample(colMiddle, colTo, rowMiddle, rowTo);
+		}
+	}
+
+	/**
+	 * Checks if function changes sign or is zero in any corner of pixel.
+	 * 
+	 * @param column Column of pixel.
+	 * @param row Row of pixel.
+	 * @return True if relation holds in the pixel.
+	 */
+	private boolean signChanges(int column, int row) {
+		boolean positive = false;
+		boolean negative = false;
+
+		for (int i = 0; i < 4; i++) {
+			double value = corner(column + (i & 1), row + (i >> 1));
+
+			if (value == 0) {
+				return true;
+			}
+
+			positive |= value > 0;
+			negative |= value < 0;
+		}
+
+		return positive == true && negative == true;
+	}
+
+	/**
+	 * Returns value of function at pixel corner, computing it if needed.
+	 * 
+	 * @param column Column of corner.
+	 * @param row Row of corner.
+	 * @return Value of function, NaN if undefined.
+	 */
+	private double corner(int column, int row) {
+		int index = column * (rows + 1) + row;
+
+		if (computed[index] == false) {
+			corners[index] = eval(x(column), y(row));
+			computed[index] = true;
+		}
+
+		return corners[index];
+	}
+
+	/**
+	 * Evaluates function at given point.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return Value of function, NaN if undefined.
+	 */
+	private double eval(double x, double y) {
+		evaluations++;
+
+		if (xSlot >= 0) {
+			vars[xSlot] = x;
+		}
+
+		if (ySlot >= 0) {
+			vars[ySlot] = y;
+		}
+
+		try {
+			return root.eval(vars);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Evaluates function for given cell.
+	 * 
+	 * @param xFrom Lower bound of x.
+	 * @param xTo Upper bound of x.
+	 * @param yFrom Lower bound of y.
+	 * @param yTo Upper bound of y.
+	 * @return Values of function.
+	 */
+	private Interval eval(double xFrom, double xTo, double yFrom, double yTo) {
+		evaluations++;
+
+		if (xSlot >= 0) {
+			intervals[xSlot] = new Interval(xFrom, xTo);
+		}
+
+		if (ySlot >= 0) {
+			intervals[ySlot] = new Interval(yFrom, yTo);
+		}
+
+		return root.evalInterval(intervals);
+	}
+
+	/**
+	 * Returns X coordinate of the left edge of given column.
+	 * 
+	 * @param column Column.
+	 * @return X coordinate.
+	 */
+	private double x(int column) {
+		return left + column * pixel;
+	}
+
+	/**
+	 * Returns Y coordinate of the bottom edge of given row.
+	 * 
+	 * @param row Row.
+	 * @return Y coordinate.
+	 */
+	private double y(int row) {
+		return bottom + row * pixel;
+	}
+
+}
@@ -0,0 +1,133 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Locale;
+
+/**
+ * Definite integral computed by FunctionIntegrator with its error estimate
+ * and cost.
+ * 
+ * @author Bazyli Cyran
+ */
+public class IntegrationResult {
+
+	/** Value of the integral. */
+	private final double value;
+
+	/** Estimate of absolute error of the value. */
+	private final double error;
+
+	/** Requested absolute tolerance. */
+	private final double tolerance;
+
+	/** Number of evaluations of the function. */
+	private final long evaluations;
+
+	/** Number of evaluations in points where function is undefined. */
+	private final long undefined;
+
+	/** Number of subintervals of the final partition. */
+	private final int intervals;
+
+	/**
+	 * Creates result of integration.
+	 * 
+	 * @param value Value of the integral.
+	 * @param error Estimate of absolute error.
+	 * @param tolerance Requested absolute tolerance.
+	 * @param evaluations Number of evaluations of the function.
+	 * @param undefined Number of evaluations in points where function is
+	 *        undefined.
+	 * @param intervals Number of subintervals.
+	 */
+	public IntegrationResult(double value, double error, double tolerance, long evaluations, long undefined,
+			int intervals) {
+		this.value = value;
+		this.error = error;
+		this.tolerance = tolerance;
+		this.evaluations = evaluations;
+		this.undefined = undefined;
+		this.intervals = intervals;
+	}
+
+	/**
+	 * Returns value of the integral.
+	 * 
+	 * @return Value.
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns estimate of absolute error of the value, the achieved
+	 * tolerance.
+	 * 
+	 * @return Error estimate.
+	 */
+	public double getError() {
+		return error;
+	}
+
+	/**
+	 * Returns absolute tolerance requested from the integrator.
+	 * 
+	 * @return Requested tolerance.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Checks if error estimate is within requested tolerance.
+	 * 
+	 * @return True if integration converged.
+	 */
+	public boolean isConverged() {
+		return error <= tolerance;
+	}
+
+	/**
+	 * Returns number of evaluations of the function.
+	 * 
+	 * @return Number of evaluations.
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Returns number of evaluations in points where function is undefined.
+	 * Function is treated as zero there, so the value is integral over the
+	 * domain of function.
+	 * 
+	 * @return Number of undefined evaluations.
+	 */
+	public long getUndefined() {
+		return undefined;
+	}
+
+	/**
+	 * Returns number of subintervals of the final partition of integration
+	 * interval.
+	 * 
+	 * @return Number of subintervals.
+	 */
+	public int getIntervals() {
+		return intervals;
+	}
+
+	/**
+	 * Returns result with opposite value, integral with swapped bounds.
+	 * 
+	 * @return Negated result.
+	 */
+	IntegrationResult negate() {
+		return new IntegrationResult(-value, error, tolerance, evaluations, undefined, intervals);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%.12g +/- %.2g (%d evaluations)", value, error, evaluations);
+	}
+
+}
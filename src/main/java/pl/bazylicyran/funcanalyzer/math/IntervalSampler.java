@@ -0,0 +1,224 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import pl.bazylicyran.funcanalyzer.parsing.Interval;
+
+/**
+ * Plots function into pixels using interval arithmetic.
+ * 
+ * Function is evaluated for whole ranges of pixel columns at once. Ranges
+ * where function is undefined or outside of the plotted area are discarded
+ * after one evaluation, the rest is halved down to single columns. Every
+ * column is then halved while the interval of its values covers more than one
+ * row of pixels, but not below pixel divided by budget. Pixels covered by the
+ * resulting intervals are marked, so no pixel the function passes through is
+ * missed, no matter how narrow its features are.
+ * 
+ * Parts of a column which still contain a pole at the minimal width are not
+ * marked, so no line is drawn across poles.
+ * 
+ * @author Bazyli Cyran
+ */
+public class IntervalSampler {
+
+	/** Function to plot. */
+	private final CompiledExpression function;
+
+	/** Maximal number of parts a column is divided into. */
+	private int budget = 16;
+
+	/** Number of function evaluations in last sampling. */
+	private int evaluations;
+
+	/** X coordinate of the left edge of first column. */
+	private double left;
+
+	/** Y coordinate of the bottom edge of first row. */
+	private double bottom;
+
+	/** Size of a pixel in function units, same for both axes. */
+	private double pixel;
+
+	/** Number of rows. */
+	private int rows;
+
+	/** Marked pixels of last sampling. */
+	private boolean[] pixels;
+
+	/**
+	 * Creates sampler of given function.
+	 * 
+	 * @param function Function to plot, built only of built-ins.
+	 * @see CompiledExpression#isBuiltIn()
+	 */
+	public IntervalSampler(CompiledExpression function) {
+		this.function = function;
+	}
+
+	/**
+	 * Sets maximal number of parts a column is divided into.
+	 * 
+	 * @param budget Number of parts, at least 1.
+	 */
+	public void setBudget(int budget) {
+		this.budget = Math.max(1, budget);
+	}
+
+	/**
+	 * Returns number of function evaluations made by last sampling.
+	 * 
+	 * @return Number of evaluations.
+	 */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Marks pixels function passes through. Pixel in given column and row is
+	 * at index column * rows + row, row 0 is at the bottom. Marks are only
+	 * added, array has to be cleared by the caller.
+	 * 
+	 * @param left X coordinate of the left edge of first column.
+	 * @param bottom Y coordinate of the bottom edge of first row.
+	 * @param pixel Size of a pixel in function units, same for both axes.
+	 * @param columns Number of columns.
+	 * @param rows Number of rows.
+	 * @param pixels Array of at least columns * rows pixels to mark.
+	 */
+	public void sample(double left, double bottom, double pixel, int columns, int rows, boolean[] pixels) {
+		this.left = left;
+		this.bottom = bottom;
+		this.pixel = pixel;
+		this.rows = rows;
+		this.pixels = pixels;
+		evaluations = 0;
+
+		if (columns > 0 && rows > 0) {
+			sampleColumns(0, columns, eval(x(0), x(columns)));
+		}
+
+		this.pixels = null;
+	}
+
+	/**
+	 * Marks pixels in given range of columns.
+	 * 
+	 * @param from First column.
+	 * @param to Column after last one.
+	 * @param values Values of function in the columns.
+	 */
+	private void sampleColumns(int from, int to, Interval values) {
+		if (!visible(values)) {
+			return;
+		}
+
+		// function lies in a single row of all columns
+		if (rows(values) == 0 && values.isDefined() == true && values.isContinuous() == true) {
+			int row = row(values.getLow());
+
+			for (int column = from; column < to; column++) {
+				pixels[column * rows + row] = true;
+			}
+
+			return;
+		}
+
+		if (to - from == 1) {
+			sampleColumn(from, x(from), x(to), values, pixel / budget);
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		sampleColumns(from, middle, eval(x(from), x(middle)));
+		sampleColumns(middle, to, eval(x(middle), x(to)));
+	}
+
+	/**
+	 * Marks pixels of part of a column.
+	 * 
+	 * @param column Column.
+	 * @param start X coordinate of the left edge of the part.
+	 * @param end X coordinate of the right edge of the part.
+	 * @param values Values of function in the part.
+	 * @param minWidth Minimal width of a part.
+	 */
+	private void sampleColumn(int column, double start, double end, Interval values, double minWidth) {
+		if (!visible(values)) {
+			return;
+		}
+
+		double span = rows(values);
+
+		if (span > 1 && end - start > minWidth) {
+			double middle = start + (end - start) / 2;
+			sampleColumn(column, start, middle, eval(start, middle), minWidth);
+			sampleColumn(column, middle, end, eval(middle, end), minWidth);
+			return;
+		}
+
+		// pole in the part, its sides are marked by neighboring parts
+		if (span > 1 && values.isContinuous() == false) {
+			return;
+		}
+
+		for (int row = row(values.getLow()); row <= row(values.getHigh()); row++) {
+			pixels[column * rows + row] = true;
+		}
+	}
+
+	/**
+	 * Evaluates function for given interval of x.
+	 * 
+	 * @param start Lower bound.
+	 * @param end Upper bound.
+	 * @return Values of function.
+	 */
+	private Interval eval(double start, double end) {
+		evaluations++;
+
+		return function.evalInterval(new Interval(start, end));
+	}
+
+	/**
+	 * Checks if any value lies in the plotted area.
+	 * 
+	 * @param values Values of function.
+	 * @return True if values should be plotted.
+	 */
+	private boolean visible(Interval values) {
+		return !values.isEmpty() && values.getHigh() >= bottom && values.getLow() <= bottom + rows * pixel;
+	}
+
+	/**
+	 * Returns X coordinate of the left edge of given column.
+	 * 
+	 * @param column Column.
+	 * @return X coordinate.
+	 */
+	private double x(int column) {
+		return left + column * pixel;
+	}
+
+	/**
+	 * Returns number of row boundaries crossed by values, including rows
+	 * outside of plotted area.
+	 * 
+	 * @param values Values of function.
+	 * @return Number of boundaries, infinite if values are unbounded.
+	 */
+	private double rows(Interval values) {
+		return Math.floor((values.getHigh() - bottom) / pixel) - Math.floor((values.getLow() - bottom) / pixel);
+	}
+
+	/**
+	 * Returns row containing given Y coordinate, clamped to plotted area.
+	 * 
+	 * @param y Y coordinate.
+	 * @return Row.
+	 */
+	private int row(double y) {
+		double row = Math.floor((y - bottom) / pixel);
+
+		return (int) Math.max(0, Math.min(rows - 1, row));
+	}
+
+}
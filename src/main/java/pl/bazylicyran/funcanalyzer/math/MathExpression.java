@@ -4,6 +4,7 @@ import java.util.List;
 
 import pl.bazylicyran.funcanalyzer.parsing.ExpressionParser;
 import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokenizer;
+import pl.bazylicyran.funcanalyzer.parsing.ExpressionTokens;
 
 /**
  * Represents mathematical expression built using numbers, operators and
@@ -21,8 +22,8 @@ public class MathExpression {
 	/** Parser instance */
 	protected ExpressionParser parser;
 
-	/** Tokens list created from expressions. */
-	protected List<String> tokens;
+	/** Typed tokens created from expression. */
+	protected ExpressionTokens tokens;
 
 	/** Final value of expression. */
 	protected Double value;
@@ -63,7 +64,7 @@ public class MathExpression {
 	 * @return The tokens list.
 	 */
 	public List<String> getTokens() {
-		return tokens;
+		return tokens.toStrings();
 	}
 
 	/**
@@ -80,7 +81,7 @@ public class MathExpression {
 	 */
 	private void tokenize() {
 		ExpressionTokenizer tokenizer = new ExpressionTokenizer(expression);
-		tokens = tokenizer.getTokens();
+		tokens = tokenizer.getTypedTokens();
 	}
 
 	/**
@@ -0,0 +1,96 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes range of grid points on the common ForkJoinPool, splitting it in
+ * halves until it is not bigger than chunk size. Shared by discretizers, so
+ * they split work by the same rules.
+ * 
+ * @author Bazyli Cyran
+ */
+class RangeTask extends RecursiveAction {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 4190382647532196318L;
+
+	/** Minimal number of points in a chunk computed in parallel. */
+	static final int minChunkSize = 1024;
+
+	/** Computation of chunk of points. */
+	private final Chunk chunk;
+
+	/** Index of first point. */
+	private final long from;
+
+	/** Index after last point. */
+	private final long to;
+
+	/** Maximal number of points computed by single task. */
+	private final long chunkSize;
+
+	/**
+	 * Initializes range of points.
+	 * 
+	 * @param chunk Computation of chunk of points.
+	 * @param from Index of first point.
+	 * @param to Index after last point.
+	 * @param chunkSize Maximal number of points computed by single task.
+	 */
+	private RangeTask(Chunk chunk, long from, long to, long chunkSize) {
+		this.chunk = chunk;
+		this.from = from;
+		this.to = to;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Checks if range of points is big enough to be split into chunks.
+	 * 
+	 * @param count Number of points.
+	 * @return True if range has at least two chunks of points.
+	 */
+	static boolean isSplit(long count) {
+		return count >= 2 * minChunkSize;
+	}
+
+	/**
+	 * Computes range of points in parallel and waits for all chunks.
+	 * 
+	 * @param from Index of first point.
+	 * @param to Index after last point.
+	 * @param chunk Computation of chunk of points.
+	 */
+	static void invoke(long from, long to, Chunk chunk) {
+		long chunkSize = Math.max(minChunkSize, (to - from) / (4 * ForkJoinPool.getCommonPoolParallelism()));
+		ForkJoinPool.commonPool().invoke(new RangeTask(chunk, from, to, chunkSize));
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= chunkSize) {
+			chunk.compute(from, to);
+		} else {
+			long middle = from + (to - from) / 2;
+			invokeAll(new RangeTask(chunk, from, middle, chunkSize), new RangeTask(chunk, middle, to, chunkSize));
+		}
+	}
+
+	/**
+	 * Computation of chunk of points. Chunks are computed concurrently, so
+	 * every chunk should use its own evaluation context.
+	 */
+	interface Chunk {
+
+		/**
+		 * Computes points in given range.
+		 * 
+		 * @param from Index of first point.
+		 * @param to Index after last point.
+		 */
+		void compute(long from, long to);
+
+	}
+
+}
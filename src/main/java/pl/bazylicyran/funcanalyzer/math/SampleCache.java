@@ -0,0 +1,370 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pl.bazylicyran.funcanalyzer.parsing.ExpFunctionRegistry;
+
+/**
+ * Caches discretized functions, so intervals overlapping previously
+ * discretized ones don't have to be computed again.
+ * 
+ * For every function and resolution single contiguous segment of values is
+ * kept. Values lie on a grid of resolution multiples, segment is described by
+ * grid index of its first value. Number of cached values is bounded, least
+ * recently used segments are evicted first. Segments computed before functions
+ * of the default ExpFunctionRegistry were changed are not used.
+ * 
+ * Discretizers plan every discretization with the cache, so they reuse cached
+ * values by the same rules.
+ * 
+ * @author Bazyli Cyran
+ */
+public class SampleCache {
+
+	/** Maximal size of planned segment relative to discretized range. */
+	static final int maxSegmentFactor = 4;
+
+	/** Maximal number of values held by the cache. */
+	private final int capacity;
+
+	/** Number of values currently held by the cache. */
+	private int size = 0;
+
+	/** Segments in access order, the least recently used first. */
+	private final Map<String, Segment> segments = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Creates cache holding at most given number of values.
+	 * 
+	 * @param capacity Maximal number of values.
+	 */
+	public SampleCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns cached segment of given function.
+	 * 
+	 * @param function Function.
+	 * @param resolution Discretization resolution.
+	 * @return Segment or null if there is none.
+	 */
+	public synchronized Segment get(String function, double resolution) {
+		String key = key(function, resolution);
+		Segment segment = segments.get(key);
+
+		// computed with previous functions
+		if (segment != null && segment.version != ExpFunctionRegistry.getDefault().getVersion()) {
+			segments.remove(key);
+			size -= segment.size();
+			return null;
+		}
+
+		return segment;
+	}
+
+	/**
+	 * Saves segment of given function, replacing previous one. Evicts least
+	 * recently used segments if capacity is exceeded.
+	 * 
+	 * @param function Function.
+	 * @param resolution Discretization resolution.
+	 * @param segment Segment to save.
+	 */
+	public synchronized void put(String function, double resolution, Segment segment) {
+		if (segment.size() > capacity || segment.version != ExpFunctionRegistry.getDefault().getVersion()) {
+			return;
+		}
+
+		Segment previous = segments.put(key(function, resolution), segment);
+
+		if (previous != null) {
+			size -= previous.size();
+		}
+
+		size += segment.size();
+
+		Iterator<Segment> it = segments.values().iterator();
+
+		while (size > capacity && it.hasNext()) {
+			size -= it.next().size();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Plans discretization of function in given range of grid points. Cached
+	 * values in the range are copied to the planned segment, so only the
+	 * remaining ones have to be computed. Cached values adjacent to the range
+	 * are kept too, they are likely needed when moving back, unless segment
+	 * would get much bigger than the range.
+	 * 
+	 * @param function Function.
+	 * @param resolution Discretization resolution.
+	 * @param first Grid index of first point.
+	 * @param last Grid index of last point.
+	 * @return Plan of segment to compute.
+	 */
+	Plan plan(String function, double resolution, long first, long last) {
+		long version = ExpFunctionRegistry.getDefault().getVersion();
+		Segment cached = get(function, resolution);
+
+		// whole range cached
+		if (cached != null && cached.getFirst() <= first && cached.getLast() >= last) {
+			return new Plan(cached.getFirst(), cached.getValues(), cached.size(), 0, cached.size(), version);
+		}
+
+		long segmentFirst = first;
+		long segmentLast = last;
+
+		if (cached != null && cached.getFirst() <= last + 1 && cached.getLast() >= first - 1) {
+			long unionFirst = Math.min(first, cached.getFirst());
+			long unionLast = Math.max(last, cached.getLast());
+
+			if (unionLast - unionFirst < maxSegmentFactor * (last - first + 1)) {
+				segmentFirst = unionFirst;
+				segmentLast = unionLast;
+			}
+		}
+
+		double[] values = new double[(int) (segmentLast - segmentFirst + 1)];
+		long reusedFirst = cached != null ? Math.max(segmentFirst, cached.getFirst()) : segmentFirst;
+		long reusedLast = cached != null ? Math.min(segmentLast, cached.getLast()) : segmentFirst - 1;
+
+		if (reusedFirst > reusedLast) {
+			return new Plan(segmentFirst, values, values.length, 0, 0, version);
+		}
+
+		System.arraycopy(cached.getValues(), (int) (reusedFirst - cached.getFirst()), values,
+				(int) (reusedFirst - segmentFirst), (int) (reusedLast - reusedFirst + 1));
+
+		return new Plan(segmentFirst, values, values.length, (int) (reusedFirst - segmentFirst),
+				(int) (reusedLast - segmentFirst + 1), version);
+	}
+
+	/**
+	 * Removes all segments.
+	 */
+	public synchronized void clear() {
+		segments.clear();
+		size = 0;
+	}
+
+	/**
+	 * Creates key from function and resolution. Function is normalized the
+	 * same way as in CompiledExpressionCache, so equivalent texts share
+	 * segment.
+	 * 
+	 * @param function Function.
+	 * @param resolution Discretization resolution.
+	 * @return Key.
+	 */
+	private static String key(String function, double resolution) {
+		return CompiledExpressionCache.normalize(function) + "@" + Double.doubleToLongBits(resolution);
+	}
+
+	/**
+	 * Values of function at consecutive grid points.
+	 */
+	public static class Segment {
+
+		/** Grid index of first value. */
+		private final long first;
+
+		/** Function values, NaN if undefined. */
+		private final double[] values;
+
+		/** Version of function registry the values were computed with. */
+		private final long version;
+
+		/**
+		 * Initializes segment of values computed with currently registered
+		 * functions.
+		 * 
+		 * @param first Grid index of first value.
+		 * @param values Function values, NaN if undefined.
+		 */
+		public Segment(long first, double[] values) {
+			this(first, values, ExpFunctionRegistry.getDefault().getVersion());
+		}
+
+		/**
+		 * Initializes segment.
+		 * 
+		 * @param first Grid index of first value.
+		 * @param values Function values, NaN if undefined.
+		 * @param version Version of function registry the values were
+		 *        computed with.
+		 */
+		Segment(long first, double[] values, long version) {
+			this.first = first;
+			this.values = values;
+			this.version = version;
+		}
+
+		/**
+		 * Returns grid index of first value.
+		 * 
+		 * @return Index of first value.
+		 */
+		public long getFirst() {
+			return first;
+		}
+
+		/**
+		 * Returns grid index of last value.
+		 * 
+		 * @return Index of last value.
+		 */
+		public long getLast() {
+			return first + values.length - 1;
+		}
+
+		/**
+		 * Returns number of values.
+		 * 
+		 * @return Number of values.
+		 */
+		public int size() {
+			return values.length;
+		}
+
+		/**
+		 * Returns function values. Array must not be modified.
+		 * 
+		 * @return Values.
+		 */
+		public double[] getValues() {
+			return values;
+		}
+
+	}
+
+	/**
+	 * Values of function planned for discretization, with range of values
+	 * already reused from cache. Values before and after the reused range
+	 * have to be computed.
+	 */
+	static class Plan {
+
+		/** Grid index of first value. */
+		private final long first;
+
+		/** Function values. */
+		private final double[] values;
+
+		/** Number of planned values. */
+		private final int size;
+
+		/** Index of first reused value. */
+		private final int reusedFrom;
+
+		/** Index after last reused value. */
+		private final int reusedTo;
+
+		/** Version of function registry at the time of planning. */
+		private final long version;
+
+		/**
+		 * Initializes plan.
+		 * 
+		 * @param first Grid index of first value.
+		 * @param values Array of values, at least of given size.
+		 * @param size Number of planned values.
+		 * @param reusedFrom Index of first reused value.
+		 * @param reusedTo Index after last reused value.
+		 * @param version Version of function registry at the time of
+		 *        planning.
+		 */
+		Plan(long first, double[] values, int size, int reusedFrom, int reusedTo, long version) {
+			this.first = first;
+			this.values = values;
+			this.size = size;
+			this.reusedFrom = reusedFrom;
+			this.reusedTo = reusedTo;
+			this.version = version;
+		}
+
+		/**
+		 * Returns grid index of first value.
+		 * 
+		 * @return Index of first value.
+		 */
+		long getFirst() {
+			return first;
+		}
+
+		/**
+		 * Returns array of values.
+		 * 
+		 * @return Values.
+		 */
+		double[] getValues() {
+			return values;
+		}
+
+		/**
+		 * Returns number of planned values.
+		 * 
+		 * @return Number of values.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Returns index of first value reused from cache.
+		 * 
+		 * @return Index of first reused value.
+		 */
+		int getReusedFrom() {
+			return reusedFrom;
+		}
+
+		/**
+		 * Returns index after last value reused from cache.
+		 * 
+		 * @return Index after last reused value.
+		 */
+		int getReusedTo() {
+			return reusedTo;
+		}
+
+		/**
+		 * Checks if all values were reused from cache, values then belong to
+		 * cached segment and must not be modified.
+		 * 
+		 * @return True if nothing has to be computed.
+		 */
+		boolean isComplete() {
+			return reusedFrom == 0 && reusedTo == size;
+		}
+
+		/**
+		 * Copies planned values to array.
+		 * 
+		 * @param from Grid index of first copied value.
+		 * @param dest Destination array.
+		 * @param count Number of values.
+		 */
+		void copy(long from, double[] dest, int count) {
+			if (dest != values) {
+				System.arraycopy(values, (int) (from - first), dest, 0, count);
+			}
+		}
+
+		/**
+		 * Returns segment of planned values to be cached. Segment isn't cached
+		 * if functions were changed since planning.
+		 * 
+		 * @return Segment.
+		 */
+		Segment toSegment() {
+			return new Segment(first, values, version);
+		}
+
+	}
+
+}
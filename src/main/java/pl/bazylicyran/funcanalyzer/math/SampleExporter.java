@@ -0,0 +1,271 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams samples of function to CSV or binary file without keeping them in
+ * memory.
+ * 
+ * Function is sampled on the same grid as in FunctionDiscretizer, x = i *
+ * resolution. Points are evaluated in blocks and every block is encoded into
+ * a reusable direct buffer written to the channel, so memory use doesn't
+ * depend on the number of points and nothing is allocated per point.
+ * 
+ * CSV has header line "x,y" and one line per point, undefined values are NaN.
+ * Binary format is little-endian:
+ * 
+ * <pre>
+ * 0   8 bytes  magic "FASAMPLE"
+ * 8   int      format version
+ * 12  int      length of expression in UTF-8 bytes
+ * 16  double   resolution
+ * 24  long     grid index of first point
+ * 32  long     number of points
+ * 40  bytes    expression, padded with zeros to multiple of 8 bytes
+ * ... doubles  values of points, NaN where function is undefined
+ * </pre>
+ * 
+ * Binary files can be opened by SampleStore.
+ * 
+ * @author Bazyli Cyran
+ */
+public class SampleExporter {
+
+	/** Magic bytes starting binary file. */
+	static final byte[] magic = "FASAMPLE".getBytes(StandardCharsets.US_ASCII);
+
+	/** Version of binary format. */
+	static final int version = 1;
+
+	/** Size of fixed part of binary header. */
+	static final int fixedHeaderSize = 40;
+
+	/** Number of points evaluated at once. */
+	private static final int blockPoints = 8192;
+
+	/** Size of output buffer. */
+	private static final int bufferSize = 1 << 20;
+
+	/** Exported function. */
+	private final String function;
+
+	/** Evaluator of the function. */
+	private final BatchEvaluator evaluator;
+
+	/** Distance between points. */
+	private final double resolution;
+
+	/** Grid index of first point. */
+	private final long first;
+
+	/** Number of points. */
+	private final long count;
+
+	/** Values of current block. */
+	private final double[] ys = new double[blockPoints];
+
+	/** Text of current number in CSV. */
+	private final StringBuilder text = new StringBuilder(32);
+
+	/** Output buffer, created when first needed. */
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates exporter of function in given interval.
+	 * 
+	 * @param function Function of x.
+	 * @param intervalStart Start of interval.
+	 * @param intervalEnd End of interval.
+	 * @param resolution Distance between points.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid.
+	 */
+	public SampleExporter(String function, double intervalStart, double intervalEnd, double resolution) {
+		if (!(resolution > 0)) {
+			throw new ArithmeticException("Resolution must be positive.");
+		}
+
+		this.function = function;
+		this.evaluator = new BatchEvaluator(function);
+		this.resolution = resolution;
+		long[] grid = FunctionDiscretizer.gridRange(intervalStart, intervalEnd, resolution);
+		this.first = grid[0];
+		this.count = grid[1];
+	}
+
+	/**
+	 * Returns number of exported points.
+	 * 
+	 * @return Number of points.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes samples to CSV file, replacing its content.
+	 * 
+	 * @param path Path of the file.
+	 * @throws IOException If writing fails.
+	 */
+	public void exportCsv(Path path) throws IOException {
+		try (FileChannel channel = open(path)) {
+			writeCsv(channel);
+		}
+	}
+
+	/**
+	 * Writes samples to binary file, replacing its content.
+	 * 
+	 * @param path Path of the file.
+	 * @throws IOException If writing fails.
+	 */
+	public void exportBinary(Path path) throws IOException {
+		try (FileChannel channel = open(path)) {
+			writeBinary(channel);
+		}
+	}
+
+	/**
+	 * Writes samples as CSV to channel.
+	 * 
+	 * @param channel Output channel.
+	 * @throws IOException If writing fails.
+	 */
+	public void writeCsv(WritableByteChannel channel) throws IOException {
+		ByteBuffer out = buffer(0);
+		out.put("x,y\n".getBytes(StandardCharsets.US_ASCII));
+
+		for (long index = 0; index < count; index += blockPoints) {
+			int size = (int) Math.min(blockPoints, count - index);
+			evaluator.evaluate(0, resolution, first + index, ys, size);
+
+			for (int i = 0; i < size; i++) {
+				text.setLength(0);
+				text.append((first + index + i) * resolution).append(',').append(ys[i]).append('\n');
+
+				if (out.remaining() < text.length()) {
+					flush(channel);
+				}
+
+				for (int k = 0; k < text.length(); k++) {
+					out.put((byte) text.charAt(k));
+				}
+			}
+		}
+
+		flush(channel);
+	}
+
+	/**
+	 * Writes samples in binary format to channel.
+	 * 
+	 * @param channel Output channel.
+	 * @throws IOException If writing fails.
+	 */
+	public void writeBinary(WritableByteChannel channel) throws IOException {
+		byte[] expression = function.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = buffer(headerSize(expression));
+		writeHeader(out, expression, resolution, first, count);
+
+		for (long index = 0; index < count; index += blockPoints) {
+			int size = (int) Math.min(blockPoints, count - index);
+			evaluator.evaluate(0, resolution, first + index, ys, size);
+
+			for (int i = 0; i < size; i++) {
+				if (out.remaining() < Double.BYTES) {
+					flush(channel);
+				}
+
+				out.putDouble(ys[i]);
+			}
+		}
+
+		flush(channel);
+	}
+
+	/**
+	 * Returns size of binary header with given expression.
+	 * 
+	 * @param expression Expression in UTF-8.
+	 * @return Size of header in bytes, multiple of 8.
+	 */
+	static int headerSize(byte[] expression) {
+		return (fixedHeaderSize + expression.length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+	}
+
+	/**
+	 * Writes binary header to little-endian buffer.
+	 * 
+	 * @param out Buffer to write to.
+	 * @param expression Expression in UTF-8.
+	 * @param resolution Distance between points.
+	 * @param first Grid index of first point.
+	 * @param count Number of points.
+	 */
+	static void writeHeader(ByteBuffer out, byte[] expression, double resolution, long first, long count) {
+		out.put(magic);
+		out.putInt(version);
+		out.putInt(expression.length);
+		out.putDouble(resolution);
+		out.putLong(first);
+		out.putLong(count);
+		out.put(expression);
+
+		while (out.position() % Double.BYTES != 0) {
+			out.put((byte) 0);
+		}
+	}
+
+	/**
+	 * Returns output buffer, creating it when first needed.
+	 * 
+	 * @param minimum Minimal capacity of buffer.
+	 * @return Empty little-endian buffer.
+	 */
+	private ByteBuffer buffer(int minimum) {
+		if (buffer == null || buffer.capacity() < minimum) {
+			buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, minimum)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		buffer.clear();
+
+		return buffer;
+	}
+
+	/**
+	 * Writes content of output buffer to channel and clears it.
+	 * 
+	 * @param channel Output channel.
+	 * @throws IOException If writing fails.
+	 */
+	private void flush(WritableByteChannel channel) throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Opens file for writing, replacing its content.
+	 * 
+	 * @param path Path of the file.
+	 * @return Channel of the file.
+	 * @throws IOException If file can't be opened.
+	 */
+	private static FileChannel open(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+}
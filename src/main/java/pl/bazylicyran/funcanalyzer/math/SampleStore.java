@@ -0,0 +1,423 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Persistent samples of function in a memory-mapped file.
+ * 
+ * File has the binary format of SampleExporter: header with expression,
+ * resolution and grid range, then values of points, x = (first + i) *
+ * resolution. Created store is filled in parallel directly in the mapped
+ * file, opening existing one only reads the header, values are paged in by
+ * the system when they are read.
+ * 
+ * Single mapping is limited to 2 GB, so values are mapped in chunks. Chunks
+ * overlap by maxSlice values, any range of at most that many values lies in
+ * one chunk and can be returned as a view of the file without copying.
+ * 
+ * Store can be read by many threads. Mappings stay valid after the store is
+ * closed, until they are garbage collected.
+ * 
+ * @author Bazyli Cyran
+ */
+public class SampleStore implements Closeable {
+
+	/** Maximal number of values in a view returned by getValues. */
+	public static final int maxSlice = 1 << 20;
+
+	/** Number of values starting in single chunk. */
+	private static final long chunkValues = 1 << 27;
+
+	/** Minimal number of values computed by single task. */
+	private static final int minTaskPoints = 1 << 16;
+
+	/** Number of values computed at once by a task. */
+	private static final int blockPoints = 8192;
+
+	/** Channel of the file. */
+	private final FileChannel channel;
+
+	/** Stored function. */
+	private final String function;
+
+	/** Normalized expression of the function, compared with sampled ones. */
+	private final String key;
+
+	/** Distance between points. */
+	private final double resolution;
+
+	/** Grid index of first point. */
+	private final long first;
+
+	/** Number of points. */
+	private final long count;
+
+	/** Mapped chunks of values. */
+	private final MappedByteBuffer[] mappings;
+
+	/** Little-endian views of chunks of values. */
+	private final DoubleBuffer[] chunks;
+
+	/**
+	 * Maps values of opened file.
+	 * 
+	 * @param channel Channel of the file.
+	 * @param writable Whether values should be mapped for writing.
+	 * @throws IOException If file is not a sample file or mapping fails.
+	 */
+	private SampleStore(FileChannel channel, boolean writable) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = ByteBuffer.allocate(SampleExporter.fixedHeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+		read(header, 0);
+		byte[] magic = new byte[SampleExporter.magic.length];
+		header.get(magic);
+
+		if (!Arrays.equals(magic, SampleExporter.magic) || header.getInt() != SampleExporter.version) {
+			throw new IOException("Not a sample file.");
+		}
+
+		byte[] expression = new byte[header.getInt()];
+		this.resolution = header.getDouble();
+		this.first = header.getLong();
+		this.count = header.getLong();
+		read(ByteBuffer.wrap(expression), SampleExporter.fixedHeaderSize);
+		this.function = new String(expression, StandardCharsets.UTF_8);
+		this.key = CompiledExpressionCache.normalize(function);
+
+		long offset = SampleExporter.headerSize(expression);
+
+		if (channel.size() < offset + count * Double.BYTES) {
+			throw new IOException("Sample file is truncated.");
+		}
+
+		FileChannel.MapMode mode = writable == true ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+		this.mappings = new MappedByteBuffer[(int) ((count + chunkValues - 1) / chunkValues)];
+		this.chunks = new DoubleBuffer[mappings.length];
+
+		for (int i = 0; i < chunks.length; i++) {
+			long start = i * chunkValues;
+			long size = Math.min(chunkValues + maxSlice, count - start);
+			mappings[i] = channel.map(mode, offset + start * Double.BYTES, size * Double.BYTES);
+			chunks[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Opens existing sample file for reading.
+	 * 
+	 * @param path Path of the file.
+	 * @return Opened store.
+	 * @throws IOException If file can't be opened or is not a sample file.
+	 */
+	public static SampleStore open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			return new SampleStore(channel, false);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates sample file with values of function in given interval,
+	 * replacing existing file. Values are computed in parallel.
+	 * 
+	 * @param path Path of the file.
+	 * @param function Function of x.
+	 * @param intervalStart Start of interval.
+	 * @param intervalEnd End of interval.
+	 * @param resolution Distance between points.
+	 * @return Store with computed values.
+	 * @throws IOException If file can't be written.
+	 * @throws pl.bazylicyran.funcanalyzer.parsing.ExpressionException If
+	 *         expression is invalid.
+	 */
+	public static SampleStore create(Path path, String function, double intervalStart, double intervalEnd,
+			double resolution) throws IOException {
+		if (!(resolution > 0)) {
+			throw new ArithmeticException("Resolution must be positive.");
+		}
+
+		CompiledExpression compiled = CompiledExpressionCache.getDefault().get(function);
+		long[] grid = FunctionDiscretizer.gridRange(intervalStart, intervalEnd, resolution);
+		long first = grid[0];
+		long count = grid[1];
+		byte[] expression = function.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header = ByteBuffer.allocate(SampleExporter.headerSize(expression)).order(ByteOrder.LITTLE_ENDIAN);
+		SampleExporter.writeHeader(header, expression, resolution, first, count);
+		header.flip();
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		try {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+
+			// extend file to its full size, values are written through mappings
+			if (count > 0) {
+				channel.write(ByteBuffer.allocate(1), header.limit() + count * Double.BYTES - 1);
+			}
+
+			SampleStore store = new SampleStore(channel, true);
+			int chunkSize = (int) Math.max(minTaskPoints,
+					Math.min(Integer.MAX_VALUE, count / (4 * ForkJoinPool.getCommonPoolParallelism())));
+			ForkJoinPool.commonPool().invoke(store.new FillTask(compiled, 0, count, chunkSize));
+
+			for (MappedByteBuffer mapping : store.mappings) {
+				mapping.force();
+			}
+
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns stored function.
+	 * 
+	 * @return Function of x.
+	 */
+	public String getFunction() {
+		return function;
+	}
+
+	/**
+	 * Returns distance between points.
+	 * 
+	 * @return Resolution.
+	 */
+	public double getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Returns grid index of first point, x of the point is index times
+	 * resolution.
+	 * 
+	 * @return Grid index.
+	 */
+	public long getFirst() {
+		return first;
+	}
+
+	/**
+	 * Returns number of points.
+	 * 
+	 * @return Number of points.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns x of point with given index.
+	 * 
+	 * @param index Index of point in store.
+	 * @return X coordinate.
+	 */
+	public double getX(long index) {
+		return (first + index) * resolution;
+	}
+
+	/**
+	 * Returns value of point with given index.
+	 * 
+	 * @param index Index of point in store.
+	 * @return Value, NaN if function is undefined.
+	 */
+	public double get(long index) {
+		int chunk = (int) (index / chunkValues);
+
+		return chunks[chunk].get((int) (index - chunk * chunkValues));
+	}
+
+	/**
+	 * Returns read-only view of range of values without copying them.
+	 * 
+	 * @param from Index of first point in store.
+	 * @param length Number of values, at most maxSlice.
+	 * @return Buffer with values at indexes from 0 to length.
+	 */
+	public DoubleBuffer getValues(long from, int length) {
+		if (from < 0 || length < 0 || length > maxSlice || from + length > count) {
+			throw new IndexOutOfBoundsException("Range " + from + "+" + length + " out of store.");
+		}
+
+		int chunk = (int) Math.min(from / chunkValues, Math.max(0, chunks.length - 1));
+		DoubleBuffer view = chunks.length == 0 ? DoubleBuffer.allocate(0) : chunks[chunk].duplicate();
+		int position = (int) (from - chunk * chunkValues);
+		view.limit(position + length).position(position);
+
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies range of values to array.
+	 * 
+	 * @param from Index of first point in store.
+	 * @param dest Array to copy values to.
+	 * @param destFrom Index of first value in array.
+	 * @param length Number of values.
+	 */
+	public void read(long from, double[] dest, int destFrom, int length) {
+		while (length > 0) {
+			int size = Math.min(length, maxSlice);
+			getValues(from, size).get(dest, destFrom, size);
+			from += size;
+			destFrom += size;
+			length -= size;
+		}
+	}
+
+	/**
+	 * Copies every stride-th value from range to array.
+	 * 
+	 * @param from Index of first point in store.
+	 * @param stride Distance between indexes of copied points.
+	 * @param dest Array to copy values to.
+	 * @param destFrom Index of first value in array.
+	 * @param length Number of values.
+	 */
+	public void read(long from, long stride, double[] dest, int destFrom, int length) {
+		if (stride == 1) {
+			read(from, dest, destFrom, length);
+			return;
+		}
+
+		for (int i = 0; i < length; i++) {
+			dest[destFrom + i] = get(from + i * stride);
+		}
+	}
+
+	/**
+	 * Returns how many stored points lie between points of function sampled
+	 * with given resolution.
+	 * 
+	 * @param function Sampled function.
+	 * @param resolution Resolution of sampling.
+	 * @return Stride, resolution divided by resolution of store, or 0 if
+	 *         store doesn't contain the function or resolution isn't its
+	 *         multiple.
+	 */
+	public long getStride(String function, double resolution) {
+		if (!key.equals(CompiledExpressionCache.normalize(function))) {
+			return 0;
+		}
+
+		double ratio = resolution / this.resolution;
+		long stride = Math.round(ratio);
+
+		return stride >= 1 && Math.abs(ratio - stride) <= FunctionDiscretizer.gridTolerance * ratio ? stride : 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads from file until buffer is full.
+	 * 
+	 * @param buffer Buffer to fill.
+	 * @param position Position in file.
+	 * @throws IOException If file is too short or reading fails.
+	 */
+	private void read(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+
+			if (read < 0) {
+				throw new IOException("Not a sample file.");
+			}
+
+			position += read;
+		}
+
+		buffer.flip();
+	}
+
+	/**
+	 * Computes range of values into mapped file, splitting it in halves until
+	 * it is not bigger than chunk size.
+	 */
+	private class FillTask extends RecursiveAction {
+
+		/** serialVersionUID */
+		private static final long serialVersionUID = 6503772211580413459L;
+
+		/** Compiled function shared by all tasks. */
+		private final CompiledExpression function;
+
+		/** Index of first value. */
+		private final long from;
+
+		/** Index after last value. */
+		private final long to;
+
+		/** Maximal number of values computed by single task. */
+		private final int chunkSize;
+
+		/**
+		 * Initializes range of values.
+		 * 
+		 * @param function Compiled function shared by all tasks.
+		 * @param from Index of first value.
+		 * @param to Index after last value.
+		 * @param chunkSize Maximal number of values computed by single task.
+		 */
+		FillTask(CompiledExpression function, long from, long to, int chunkSize) {
+			this.function = function;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunkSize) {
+				long middle = (from + to) >>> 1;
+				invokeAll(new FillTask(function, from, middle, chunkSize),
+						new FillTask(function, middle, to, chunkSize));
+				return;
+			}
+
+			EvaluationContext context = function.newContext();
+			double[] values = new double[blockPoints];
+
+			for (long index = from; index < to; index += blockPoints) {
+				int size = (int) Math.min(blockPoints, to - index);
+
+				for (int i = 0; i < size; i++) {
+					values[i] = (first + index + i) * resolution;
+				}
+
+				context.getValues(values, values, 0, size);
+				int chunk = (int) (index / chunkValues);
+				DoubleBuffer view = chunks[chunk].duplicate();
+				view.position((int) (index - chunk * chunkValues));
+				view.put(values, 0, size);
+			}
+		}
+
+	}
+
+}
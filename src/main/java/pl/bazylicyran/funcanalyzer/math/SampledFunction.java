@@ -0,0 +1,181 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import java.util.Arrays;
+
+/**
+ * Represents discretized function as parallel arrays of X and Y coordinates.
+ * 
+ * Points where function is undefined have Y equal to NaN. Arrays are reused
+ * when the function is sampled again, they grow only if more points are
+ * needed. Array of derivatives is created only if sampler computes them.
+ * 
+ * @author Bazyli Cyran
+ */
+public class SampledFunction {
+
+	/** X coordinates of points. */
+	private double[] xs;
+
+	/** Y coordinates of points, NaN if function is undefined. */
+	private double[] ys;
+
+	/** Derivatives in points, NaN if unknown. */
+	private double[] derivatives = new double[0];
+
+	/** Number of points. */
+	private int size = 0;
+
+	/**
+	 * Creates empty SampledFunction.
+	 */
+	public SampledFunction() {
+		this(0);
+	}
+
+	/**
+	 * Creates empty SampledFunction with space for given number of points.
+	 * 
+	 * @param capacity Initial number of points which fit in arrays.
+	 */
+	public SampledFunction(int capacity) {
+		xs = new double[capacity];
+		ys = new double[capacity];
+	}
+
+	/**
+	 * Sets number of points. Grows arrays if needed, values of points are
+	 * undefined until set.
+	 * 
+	 * @param size Number of points.
+	 */
+	public void resize(int size) {
+		if (size > xs.length) {
+			int capacity = Math.max(size, xs.length + xs.length / 2);
+			xs = new double[capacity];
+			ys = new double[capacity];
+		}
+
+		this.size = size;
+	}
+
+	/**
+	 * Adds point after the last one, growing arrays if needed.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate, NaN if function is undefined.
+	 */
+	public void add(double x, double y) {
+		if (size == xs.length) {
+			int capacity = Math.max(16, xs.length + xs.length / 2);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+	}
+
+	/**
+	 * Removes all points, arrays are kept for reuse.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns number of points.
+	 * 
+	 * @return Number of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sets coordinates of point with given index.
+	 * 
+	 * @param index Point index.
+	 * @param x X coordinate.
+	 * @param y Y coordinate, NaN if function is undefined.
+	 */
+	public void set(int index, double x, double y) {
+		xs[index] = x;
+		ys[index] = y;
+	}
+
+	/**
+	 * Returns X coordinate of point with given index.
+	 * 
+	 * @param index Point index.
+	 * @return X coordinate.
+	 */
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	/**
+	 * Returns Y coordinate of point with given index.
+	 * 
+	 * @param index Point index.
+	 * @return Y coordinate, NaN if function is undefined.
+	 */
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	/**
+	 * Checks if function is defined in point with given index.
+	 * 
+	 * @param index Point index.
+	 * @return True if function is defined.
+	 */
+	public boolean isDefined(int index) {
+		return !Double.isNaN(ys[index]);
+	}
+
+	/**
+	 * Returns array of X coordinates. Only first size() values are valid.
+	 * 
+	 * @return X coordinates.
+	 */
+	public double[] getXs() {
+		return xs;
+	}
+
+	/**
+	 * Returns array of Y coordinates. Only first size() values are valid.
+	 * 
+	 * @return Y coordinates.
+	 */
+	public double[] getYs() {
+		return ys;
+	}
+
+	/**
+	 * Returns derivative of function in point with given index. Valid only if
+	 * sampler computed derivatives.
+	 * 
+	 * @param index Point index.
+	 * @return Derivative, NaN if it is unknown.
+	 */
+	public double getDerivative(int index) {
+		return derivatives[index];
+	}
+
+	/**
+	 * Returns array of derivatives, growing it to the size of other arrays if
+	 * needed. Only first size() values are valid, and only if sampler computed
+	 * them.
+	 * 
+	 * @return Derivatives.
+	 */
+	public double[] getDerivatives() {
+		if (derivatives.length < xs.length) {
+			derivatives = Arrays.copyOf(derivatives, xs.length);
+		}
+
+		return derivatives;
+	}
+
+}
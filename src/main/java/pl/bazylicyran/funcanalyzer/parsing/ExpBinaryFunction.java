@@ -0,0 +1,39 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents mathematical expression function of two arguments.
+ * 
+ * E.g. log(base, x) = Math.log(x) / Math.log(base)
+ * 
+ * @author Bazyli Cyran
+ */
+public abstract class ExpBinaryFunction extends ExpFunction {
+
+	/**
+	 * Initializes function name.
+	 * 
+	 * @param name Function name.
+	 */
+	public ExpBinaryFunction(String name) {
+		super(name, 2);
+	}
+
+	@Override
+	public abstract double eval(double left, double right);
+
+	@Override
+	public double eval(double[] args) {
+		return eval(args[0], args[1]);
+	}
+
+	@Override
+	public Interval eval(Interval left, Interval right) {
+		return Interval.unknown(left, right);
+	}
+
+	@Override
+	public Interval eval(Interval[] args) {
+		return eval(args[0], args[1]);
+	}
+
+}
@@ -0,0 +1,266 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Built-in operators and functions registered in every ExpressionParser.
+ * 
+ * Implementations are stateless, so single instances are shared by all
+ * parsers. Checked operations are also available as static methods, which
+ * lets compiled expressions call them directly. All built-ins can be
+ * evaluated for intervals of arguments, see Interval.
+ * 
+ * @author Bazyli Cyran
+ */
+public final class ExpBuiltIns {
+
+	/** Addition, also unary plus. */
+	public static final ExpOperator ADD = new ExpOperator("+", Arrays.asList("expression", "factor")) {
+		@Override
+		public double eval(double left, double right) {
+			return left + right;
+		}
+
+		@Override
+		public Interval eval(Interval left, Interval right) {
+			return Interval.add(left, right);
+		}
+	};
+
+	/** Subtraction, also unary minus. */
+	public static final ExpOperator SUBTRACT = new ExpOperator("-", Arrays.asList("expression", "factor")) {
+		@Override
+		public double eval(double left, double right) {
+			return left - right;
+		}
+
+		@Override
+		public Interval eval(Interval left, Interval right) {
+			return Interval.subtract(left, right);
+		}
+	};
+
+	/** Multiplication. */
+	public static final ExpOperator MULTIPLY = new ExpOperator("*", Arrays.asList("term")) {
+		@Override
+		public double eval(double left, double right) {
+			return left * right;
+		}
+
+		@Override
+		public Interval eval(Interval left, Interval right) {
+			return Interval.multiply(left, right);
+		}
+	};
+
+	/** Division. */
+	public static final ExpOperator DIVIDE = new ExpOperator("/", Arrays.asList("term")) {
+		@Override
+		public double eval(double left, double right) {
+			return divide(left, right);
+		}
+
+		@Override
+		public Interval eval(Interval left, Interval right) {
+			return Interval.divide(left, right);
+		}
+	};
+
+	/** Exponentiation. */
+	public static final ExpOperator POWER = new ExpOperator("^", Arrays.asList("term")) {
+		@Override
+		public double eval(double left, double right) {
+			return Math.pow(left, right);
+		}
+
+		@Override
+		public Interval eval(Interval left, Interval right) {
+			return Interval.power(left, right);
+		}
+	};
+
+	/** Identity function applied to every number literal. */
+	public static final ExpFunction NUMBER = new ExpUnaryFunction("number") {
+		@Override
+		public double eval(double arg) {
+			return arg;
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return arg;
+		}
+	};
+
+	/** Square root. */
+	public static final ExpFunction SQRT = new ExpUnaryFunction("sqrt") {
+		@Override
+		public double eval(double arg) {
+			return sqrt(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.sqrt(arg);
+		}
+	};
+
+	/** Sine. */
+	public static final ExpFunction SIN = new ExpUnaryFunction("sin") {
+		@Override
+		public double eval(double arg) {
+			return Math.sin(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.sin(arg);
+		}
+	};
+
+	/** Cosine. */
+	public static final ExpFunction COS = new ExpUnaryFunction("cos") {
+		@Override
+		public double eval(double arg) {
+			return Math.cos(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.cos(arg);
+		}
+	};
+
+	/** Tangent. */
+	public static final ExpFunction TAN = new ExpUnaryFunction("tan") {
+		@Override
+		public double eval(double arg) {
+			return Math.tan(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.tan(arg);
+		}
+	};
+
+	/** Natural logarithm. */
+	public static final ExpFunction LN = new ExpUnaryFunction("ln") {
+		@Override
+		public double eval(double arg) {
+			return ln(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.ln(arg);
+		}
+	};
+
+	/** Logarithm with base given as first argument. */
+	public static final ExpFunction LOG = new ExpBinaryFunction("log") {
+		@Override
+		public double eval(double base, double arg) {
+			return log(base, arg);
+		}
+
+		@Override
+		public Interval eval(Interval base, Interval arg) {
+			return Interval.log(base, arg);
+		}
+	};
+
+	/** Absolute value. */
+	public static final ExpFunction ABS = new ExpUnaryFunction("abs") {
+		@Override
+		public double eval(double arg) {
+			return Math.abs(arg);
+		}
+
+		@Override
+		public Interval eval(Interval arg) {
+			return Interval.abs(arg);
+		}
+	};
+
+	/** All built-in operators. */
+	static final List<ExpOperator> OPERATORS = Arrays.asList(ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER);
+
+	/** All built-in functions. */
+	static final List<ExpFunction> FUNCTIONS = Arrays.asList(NUMBER, SQRT, SIN, COS, TAN, LN, LOG, ABS);
+
+	/**
+	 * Not instantiable.
+	 */
+	private ExpBuiltIns() {
+
+	}
+
+	/**
+	 * Divides left argument by right argument.
+	 * 
+	 * @param left Dividend.
+	 * @param right Divisor.
+	 * @return Quotient.
+	 */
+	public static double divide(double left, double right) {
+
+		if (right == 0) {
+			throw new ArithmeticException("Division by zero.");
+		}
+
+		return left / right;
+	}
+
+	/**
+	 * Calculates square root.
+	 * 
+	 * @param arg Argument.
+	 * @return Square root of argument.
+	 */
+	public static double sqrt(double arg) {
+
+		if (arg < 0) {
+			throw new ArithmeticException("Square root argument smaller than zero.");
+		}
+
+		return Math.sqrt(arg);
+	}
+
+	/**
+	 * Calculates natural logarithm.
+	 * 
+	 * @param arg Argument.
+	 * @return Natural logarithm of argument.
+	 */
+	public static double ln(double arg) {
+
+		if (arg < 0) {
+			throw new ArithmeticException("Natural logarithm argumant smaller than zero.");
+		}
+
+		return Math.log(arg);
+	}
+
+	/**
+	 * Calculates logarithm with given base.
+	 * 
+	 * @param base Logarithm base.
+	 * @param arg Logarithmized number.
+	 * @return Logarithm of argument.
+	 */
+	public static double log(double base, double arg) {
+
+		if (base <= 1) {
+			throw new ArithmeticException("Logarithm base smaller or equal zero.");
+		}
+
+		if (arg < 0) {
+			throw new ArithmeticException("Logharitmized number smaller than zero.");
+		}
+
+		return Math.log(arg) / Math.log(base);
+	}
+
+}
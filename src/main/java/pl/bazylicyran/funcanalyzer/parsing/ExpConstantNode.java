@@ -0,0 +1,56 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.math.BigDecimal;
+
+/**
+ * Represents constant number in compiled expression tree.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpConstantNode extends ExpNode {
+
+	/** Value of constant. */
+	private final double value;
+
+	/**
+	 * Initializes constant value.
+	 * 
+	 * @param value Value of constant.
+	 */
+	public ExpConstantNode(double value) {
+		this.value = value;
+	}
+
+	/**
+	 * Returns value of constant.
+	 * 
+	 * @return Value.
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public double eval(double[] vars) {
+		return value;
+	}
+
+	@Override
+	public Interval evalInterval(Interval[] vars) {
+		return Interval.of(value);
+	}
+
+	@Override
+	public String toString() {
+		if (Double.isNaN(value)) {
+			return "((0-1)^0.5)";
+		} else if (Double.isInfinite(value)) {
+			return value > 0 ? "(10^400)" : "(0-10^400)";
+		}
+
+		String number = BigDecimal.valueOf(Math.abs(value)).stripTrailingZeros().toPlainString();
+
+		return value < 0 ? "(0-" + number + ")" : number;
+	}
+
+}
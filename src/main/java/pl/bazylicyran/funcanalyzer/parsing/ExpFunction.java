@@ -1,6 +1,11 @@
 package pl.bazylicyran.funcanalyzer.parsing;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents mathematical expression function. Calculates its arithmetical
@@ -8,6 +13,17 @@ import java.util.List;
  * 
  * E.g. sin(x) = Math.sin(x)
  * 
+ * Functions are evaluated with primitive arguments: eval(double) for one
+ * argument, eval(double, double) for two and eval(double[]) for any number of
+ * them. Subclasses implement eval(double[]), functions of one and two
+ * arguments should extend ExpUnaryFunction and ExpBinaryFunction, which don't
+ * allocate anything. Older functions implementing only the boxed eval(List)
+ * still work, eval(double[]) copies arguments to a list for them. Functions
+ * implementing neither method are rejected when created.
+ * 
+ * Functions supporting interval arithmetic also override eval methods taking
+ * intervals, by default values of function for intervals are unknown.
+ * 
  * @author Bazyli Cyran
  */
 public abstract class ExpFunction {
@@ -18,12 +34,45 @@ public abstract class ExpFunction {
 	/** Number of arguments function needs */
 	private int argNum;
 
+	/** Whether classes of functions implement eval(double[]) or eval(List). */
+	private static final Map<Class<?>, Boolean> implementations = new ConcurrentHashMap<>();
+
 	/**
 	 * Initializes operator name
+	 * 
+	 * @throws IllegalStateException If class of function implements neither
+	 *         eval(double[]) nor eval(List).
 	 */
 	public ExpFunction(String name, int argNum) {
 		this.function = name;
 		this.argNum = argNum;
+
+		if (implementations.computeIfAbsent(getClass(), ExpFunction::implementsEval) == false) {
+			throw new IllegalStateException("Function " + name + " implements neither eval(double[]) nor eval(List).");
+		}
+	}
+
+	/**
+	 * Checks if class of function implements eval(double[]) or eval(List).
+	 * 
+	 * @param cls Class of function.
+	 * @return True if class or its superclass other than ExpFunction declares
+	 *         either method.
+	 */
+	private static boolean implementsEval(Class<?> cls) {
+		for (Class<?> c = cls; c != ExpFunction.class; c = c.getSuperclass()) {
+			for (Method method : c.getDeclaredMethods()) {
+				Class<?>[] params = method.getParameterTypes();
+
+				if (method.getName().equals("eval") && params.length == 1
+						&& (params[0] == double[].class || params[0] == List.class)
+						&& !Modifier.isAbstract(method.getModifiers())) {
+					return true;
+				}
+			}
+		}
+
+		return false;
 	}
 
 	/**
@@ -45,11 +94,85 @@ public abstract class ExpFunction {
 	}
 
 	/**
-	 * Evaluates function basing on its arguments.
+	 * Evaluates function of one argument.
+	 * 
+	 * @param arg Argument.
+	 * @return Value of function.
+	 */
+	public double eval(double arg) {
+		return eval(new double[] { arg });
+	}
+
+	/**
+	 * Evaluates function of two arguments.
+	 * 
+	 * @param left First argument.
+	 * @param right Second argument.
+	 * @return Value of function.
+	 */
+	public double eval(double left, double right) {
+		return eval(new double[] { left, right });
+	}
+
+	/**
+	 * Evaluates function of one argument for interval of its values.
+	 * 
+	 * @param arg Interval of argument.
+	 * @return Interval containing all values of function.
+	 */
+	public Interval eval(Interval arg) {
+		return eval(new Interval[] { arg });
+	}
+
+	/**
+	 * Evaluates function of two arguments for intervals of their values.
+	 * 
+	 * @param left Interval of first argument.
+	 * @param right Interval of second argument.
+	 * @return Interval containing all values of function.
+	 */
+	public Interval eval(Interval left, Interval right) {
+		return eval(new Interval[] { left, right });
+	}
+
+	/**
+	 * Evaluates function for intervals of its arguments. By default values
+	 * are unknown.
+	 * 
+	 * @param args Intervals of ordered arguments.
+	 * @return Interval containing all values of function.
+	 */
+	public Interval eval(Interval[] args) {
+		return Interval.unknown(args);
+	}
+
+	/**
+	 * Evaluates function basing on its arguments. By default arguments are
+	 * copied to a list and passed to eval(List).
+	 * 
+	 * @param args Ordered arguments.
+	 * @return Value of function.
+	 */
+	public double eval(double[] args) {
+		List<Double> list = new ArrayList<>(args.length);
+
+		for (double arg : args) {
+			list.add(arg);
+		}
+
+		return eval(list);
+	}
+
+	/**
+	 * Evaluates function basing on its boxed arguments. Implemented by older
+	 * functions, functions implementing eval(double[]) don't support it.
 	 * 
 	 * @param args Ordered list of arguments.
 	 * @return Value of function.
+	 * @throws UnsupportedOperationException If function doesn't implement it.
 	 */
-	public abstract double eval(List<Double> args);
+	public double eval(List<Double> args) {
+		throw new UnsupportedOperationException("Function " + function + " doesn't implement eval(List).");
+	}
 
 }
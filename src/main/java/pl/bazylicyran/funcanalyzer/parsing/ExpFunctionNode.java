@@ -0,0 +1,102 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents function with its arguments in compiled expression tree.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpFunctionNode extends ExpNode {
+
+	/** Function implementation. */
+	private final ExpFunction function;
+
+	/** Ordered function arguments. */
+	private final ExpNode[] args;
+
+	/**
+	 * Initializes function and its arguments.
+	 * 
+	 * @param function Function implementation.
+	 * @param args Ordered arguments.
+	 */
+	public ExpFunctionNode(ExpFunction function, ExpNode[] args) {
+		this.function = function;
+		this.args = args.clone();
+	}
+
+	/**
+	 * Returns function implementation.
+	 * 
+	 * @return Function.
+	 */
+	public ExpFunction getFunction() {
+		return function;
+	}
+
+	/**
+	 * Returns number of arguments.
+	 * 
+	 * @return Number of arguments.
+	 */
+	public int getArgCount() {
+		return args.length;
+	}
+
+	/**
+	 * Returns argument with given index.
+	 * 
+	 * @param index Argument index.
+	 * @return Argument.
+	 */
+	public ExpNode getArg(int index) {
+		return args[index];
+	}
+
+	@Override
+	public double eval(double[] vars) {
+		switch (args.length) {
+		case 1:
+			return function.eval(args[0].eval(vars));
+		case 2:
+			return function.eval(args[0].eval(vars), args[1].eval(vars));
+		default:
+			double[] values = new double[args.length];
+
+			for (int i = 0; i < args.length; i++) {
+				values[i] = args[i].eval(vars);
+			}
+
+			return function.eval(values);
+		}
+	}
+
+	@Override
+	public Interval evalInterval(Interval[] vars) {
+		switch (args.length) {
+		case 1:
+			return function.eval(args[0].evalInterval(vars));
+		case 2:
+			return function.eval(args[0].evalInterval(vars), args[1].evalInterval(vars));
+		default:
+			Interval[] values = new Interval[args.length];
+
+			for (int i = 0; i < args.length; i++) {
+				values[i] = args[i].evalInterval(vars);
+			}
+
+			return function.eval(values);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(function.getFunction()).append('(');
+
+		for (int i = 0; i < args.length; i++) {
+			result.append(i > 0 ? "," : "").append(args[i]);
+		}
+
+		return result.append(')').toString();
+	}
+
+}
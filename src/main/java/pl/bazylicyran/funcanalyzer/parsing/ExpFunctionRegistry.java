@@ -0,0 +1,121 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Set of functions available in expressions.
+ * 
+ * Every new ExpressionParser gets functions from the default registry, which
+ * initially contains built-in functions. Registering function in it makes the
+ * function available in all expressions created later, e.g.:
+ * 
+ * <pre>
+ * ExpFunctionRegistry.getDefault().register(new ExpUnaryFunction("sinh") {
+ * 	&#64;Override
+ * 	public double eval(double arg) {
+ * 		return Math.sinh(arg);
+ * 	}
+ * });
+ * </pre>
+ * 
+ * Registry can be used by many threads. Every change of registered functions
+ * increases version of the registry. Caches keyed by expression text, like
+ * CompiledExpressionCache, SampleCache and tiles of CoordinateSystem, compare
+ * version of the default registry, so after function is registered, replaced
+ * or unregistered they don't use expressions compiled, sampled or drawn with
+ * previous functions.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpFunctionRegistry {
+
+	/** Registry used by parsers by default. */
+	private static final ExpFunctionRegistry defaultRegistry = new ExpFunctionRegistry(ExpBuiltIns.FUNCTIONS);
+
+	/** Registered functions by their names. */
+	private final Map<String, ExpFunction> functions = new LinkedHashMap<>();
+
+	/** Number of changes of registered functions. */
+	private volatile long version = 0;
+
+	/**
+	 * Creates empty registry.
+	 */
+	public ExpFunctionRegistry() {
+
+	}
+
+	/**
+	 * Creates registry with given functions.
+	 * 
+	 * @param functions Functions to register.
+	 */
+	public ExpFunctionRegistry(Collection<ExpFunction> functions) {
+		for (ExpFunction function : functions) {
+			register(function);
+		}
+	}
+
+	/**
+	 * Returns registry used by parsers by default.
+	 * 
+	 * @return Default registry.
+	 */
+	public static ExpFunctionRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	/**
+	 * Registers function, replacing registered function with the same name.
+	 * 
+	 * @param function Function to register.
+	 */
+	public synchronized void register(ExpFunction function) {
+		functions.put(function.getFunction(), function);
+		version++;
+	}
+
+	/**
+	 * Removes function with given name.
+	 * 
+	 * @param name Function name.
+	 */
+	public synchronized void unregister(String name) {
+		if (functions.remove(name) != null) {
+			version++;
+		}
+	}
+
+	/**
+	 * Returns function with given name.
+	 * 
+	 * @param name Function name.
+	 * @return Function or null if it is not registered.
+	 */
+	public synchronized ExpFunction get(String name) {
+		return functions.get(name);
+	}
+
+	/**
+	 * Returns version of the registry, increased by every change of
+	 * registered functions.
+	 * 
+	 * @return Version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns all registered functions.
+	 * 
+	 * @return Copy of functions collection.
+	 */
+	public synchronized Collection<ExpFunction> getFunctions() {
+		return new ArrayList<>(functions.values());
+	}
+
+}
@@ -0,0 +1,36 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.List;
+
+/**
+ * Represents mathematical expression function evaluated with boxed list of
+ * arguments, like functions written before evaluation with primitive
+ * arguments.
+ * 
+ * Arguments are copied to a new list at every evaluation, so new functions
+ * should extend ExpFunction, ExpUnaryFunction or ExpBinaryFunction instead.
+ * 
+ * @author Bazyli Cyran
+ */
+public abstract class ExpListFunction extends ExpFunction {
+
+	/**
+	 * Initializes function name and number of arguments.
+	 * 
+	 * @param name Function name.
+	 * @param argNum Number of arguments.
+	 */
+	public ExpListFunction(String name, int argNum) {
+		super(name, argNum);
+	}
+
+	/**
+	 * Evaluates function basing on its arguments.
+	 * 
+	 * @param args Ordered list of arguments.
+	 * @return Value of function.
+	 */
+	@Override
+	public abstract double eval(List<Double> args);
+
+}
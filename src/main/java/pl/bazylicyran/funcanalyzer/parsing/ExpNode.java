@@ -0,0 +1,39 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents node of compiled expression tree.
+ * 
+ * Tree is built once by ExpressionParser and then evaluated for any number of
+ * variable values without parsing tokens again. Nodes are immutable.
+ * 
+ * @author Bazyli Cyran
+ */
+public abstract class ExpNode {
+
+	/**
+	 * Evaluates node basing on given variable values.
+	 * 
+	 * @param vars Values of variables indexed by their slots.
+	 * @return Value of node.
+	 */
+	public abstract double eval(double[] vars);
+
+	/**
+	 * Evaluates node for intervals of variable values.
+	 * 
+	 * @param vars Intervals of variables indexed by their slots.
+	 * @return Interval containing all values of node.
+	 * @see Interval
+	 */
+	public abstract Interval evalInterval(Interval[] vars);
+
+	/**
+	 * Returns fully parenthesized expression of the node, which parses back
+	 * into equal tree.
+	 * 
+	 * @return Expression.
+	 */
+	@Override
+	public abstract String toString();
+
+}
@@ -54,4 +54,17 @@ public abstract class ExpOperator {
 	 */
 	public abstract double eval(double left, double right);
 
+	/**
+	 * Evaluates expression with operator for intervals of arguments. By
+	 * default values are unknown, operators supporting interval arithmetic
+	 * override it.
+	 * 
+	 * @param left Interval of left argument.
+	 * @param right Interval of right argument.
+	 * @return Interval containing all values of expression.
+	 */
+	public Interval eval(Interval left, Interval right) {
+		return Interval.unknown(left, right);
+	}
+
 }
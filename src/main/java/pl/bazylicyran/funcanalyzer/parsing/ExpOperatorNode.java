@@ -0,0 +1,75 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents operator with its left and right argument in compiled expression
+ * tree.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpOperatorNode extends ExpNode {
+
+	/** Operator implementation. */
+	private final ExpOperator operator;
+
+	/** Left argument. */
+	private final ExpNode left;
+
+	/** Right argument. */
+	private final ExpNode right;
+
+	/**
+	 * Initializes operator and its arguments.
+	 * 
+	 * @param operator Operator implementation.
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 */
+	public ExpOperatorNode(ExpOperator operator, ExpNode left, ExpNode right) {
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Returns operator implementation.
+	 * 
+	 * @return Operator.
+	 */
+	public ExpOperator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Returns left argument.
+	 * 
+	 * @return Left argument.
+	 */
+	public ExpNode getLeft() {
+		return left;
+	}
+
+	/**
+	 * Returns right argument.
+	 * 
+	 * @return Right argument.
+	 */
+	public ExpNode getRight() {
+		return right;
+	}
+
+	@Override
+	public double eval(double[] vars) {
+		return operator.eval(left.eval(vars), right.eval(vars));
+	}
+
+	@Override
+	public Interval evalInterval(Interval[] vars) {
+		return operator.eval(left.evalInterval(vars), right.evalInterval(vars));
+	}
+
+	@Override
+	public String toString() {
+		return "(" + left + operator.getOperator() + right + ")";
+	}
+
+}
@@ -0,0 +1,22 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Kinds of expression tokens.
+ * 
+ * @author Bazyli Cyran
+ */
+public enum ExpTokenKind {
+
+	/** Number literal, e.g. 2 or 3.25. */
+	NUMBER,
+
+	/** Sequence of letters: function, variable or constant name. */
+	NAME,
+
+	/** Single character: operator, parenthesis, comma. */
+	SYMBOL,
+
+	/** Malformed token, e.g. 2. or 1.2.3. */
+	INVALID
+
+}
@@ -0,0 +1,39 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents mathematical expression function of one argument.
+ * 
+ * E.g. sin(x) = Math.sin(x)
+ * 
+ * @author Bazyli Cyran
+ */
+public abstract class ExpUnaryFunction extends ExpFunction {
+
+	/**
+	 * Initializes function name.
+	 * 
+	 * @param name Function name.
+	 */
+	public ExpUnaryFunction(String name) {
+		super(name, 1);
+	}
+
+	@Override
+	public abstract double eval(double arg);
+
+	@Override
+	public double eval(double[] args) {
+		return eval(args[0]);
+	}
+
+	@Override
+	public Interval eval(Interval arg) {
+		return Interval.unknown(arg);
+	}
+
+	@Override
+	public Interval eval(Interval[] args) {
+		return eval(args[0]);
+	}
+
+}
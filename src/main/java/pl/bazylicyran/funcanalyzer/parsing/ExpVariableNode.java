@@ -0,0 +1,63 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Represents variable in compiled expression tree.
+ * 
+ * Variable value is not stored in the node, it is read from the slot with
+ * given index in values array passed to eval.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpVariableNode extends ExpNode {
+
+	/** Variable name. */
+	private final String name;
+
+	/** Index of variable value in values array. */
+	private final int slot;
+
+	/**
+	 * Initializes variable name and slot.
+	 * 
+	 * @param name Variable name.
+	 * @param slot Index of variable value.
+	 */
+	public ExpVariableNode(String name, int slot) {
+		this.name = name;
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns variable name.
+	 * 
+	 * @return Variable name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns index of variable value.
+	 * 
+	 * @return Slot index.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public double eval(double[] vars) {
+		return vars[slot];
+	}
+
+	@Override
+	public Interval evalInterval(Interval[] vars) {
+		return vars[slot];
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
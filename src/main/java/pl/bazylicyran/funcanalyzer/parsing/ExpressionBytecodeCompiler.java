@@ -0,0 +1,456 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Compiles expression tree into a generated class implementing
+ * DoubleUnaryOperator.
+ * 
+ * Whole expression is evaluated by single method working on primitive doubles,
+ * so JIT can inline Math calls instead of dispatching on every tree node. Only
+ * trees built of ExpBuiltIns operators and functions can be compiled, others
+ * should be evaluated by the tree itself.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionBytecodeCompiler {
+
+	/** Package of generated classes (internal form). */
+	private static final String generatedPackage = "pl/bazylicyran/funcanalyzer/parsing/generated/";
+
+	/** Internal name of class with checked operations. */
+	private static final String builtIns = "pl/bazylicyran/funcanalyzer/parsing/ExpBuiltIns";
+
+	/** Counter used to give generated classes unique names. */
+	private static final AtomicInteger classCounter = new AtomicInteger();
+
+	/** Method opcodes. */
+	private static final int ALOAD_0 = 0x2a, DLOAD_1 = 0x27, DCONST_0 = 0x0e, DCONST_1 = 0x0f, LDC2_W = 0x14,
+			DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DRETURN = 0xaf, RETURN = 0xb1, INVOKESPECIAL = 0xb7,
+			INVOKESTATIC = 0xb8;
+
+	/** Maximum length of method code allowed by class file format. */
+	private static final int maxCodeLength = 65535;
+
+	/** Maximum number of constant pool entries allowed by class file format. */
+	private static final int maxPoolSize = 65534;
+
+	/** Expression tree to compile. */
+	private final ExpNode root;
+
+	/** Slot of variable passed as argument of generated method. */
+	private final int slot;
+
+	/** Values of other variables, compiled as constants. */
+	private final double[] slotValues;
+
+	/** Constant pool of generated class. */
+	private final ConstantPool pool = new ConstantPool();
+
+	/** Code of evaluating method. */
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+	/**
+	 * Initializes compiler.
+	 * 
+	 * @param root Expression tree to compile.
+	 * @param slot Slot of variable passed as argument, -1 if there is none.
+	 * @param slotValues Values of variables ordered by slot.
+	 */
+	public ExpressionBytecodeCompiler(ExpNode root, int slot, double[] slotValues) {
+		this.root = root;
+		this.slot = slot;
+		this.slotValues = slotValues.clone();
+	}
+
+	/**
+	 * Checks if given tree can be compiled, i.e. it is built only of built-in
+	 * operators and functions.
+	 * 
+	 * @param node Tree to check.
+	 * @return True if tree can be compiled.
+	 */
+	public static boolean canCompile(ExpNode node) {
+		if (node instanceof ExpOperatorNode) {
+			ExpOperatorNode op = (ExpOperatorNode) node;
+
+			return ExpBuiltIns.OPERATORS.contains(op.getOperator()) && canCompile(op.getLeft())
+					&& canCompile(op.getRight());
+		} else if (node instanceof ExpFunctionNode) {
+			ExpFunctionNode function = (ExpFunctionNode) node;
+
+			if (!ExpBuiltIns.FUNCTIONS.contains(function.getFunction())) {
+				return false;
+			}
+
+			for (int i = 0; i < function.getArgCount(); i++) {
+				if (!canCompile(function.getArg(i))) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return node instanceof ExpConstantNode || node instanceof ExpVariableNode;
+	}
+
+	/**
+	 * Generates, loads and instantiates class evaluating the expression.
+	 * 
+	 * @return Compiled expression taking value of variable as its argument.
+	 */
+	public DoubleUnaryOperator compile() {
+		if (!canCompile(root)) {
+			throw new ExpressionException("Expression contains operators or functions which can't be compiled.");
+		}
+
+		String name = generatedPackage + "Expression" + classCounter.incrementAndGet();
+
+		try {
+			byte[] bytes = generateClass(name);
+			Class<?> cls = new GeneratedClassLoader(ExpressionBytecodeCompiler.class.getClassLoader())
+					.define(name.replace('/', '.'), bytes);
+
+			return (DoubleUnaryOperator) cls.getConstructor().newInstance();
+		} catch (IOException | ReflectiveOperationException | LinkageError e) {
+			throw new ExpressionException("Expression compilation failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Builds class file bytes.
+	 * 
+	 * @param name Internal name of class.
+	 * @return Class file.
+	 * @throws IOException Never, data is written to memory.
+	 */
+	private byte[] generateClass(String name) throws IOException {
+		int thisClass = pool.classRef(name);
+		int superClass = pool.classRef("java/lang/Object");
+		int iface = pool.classRef("java/util/function/DoubleUnaryOperator");
+		int codeName = pool.utf8("Code");
+
+		// Constructor calling Object()
+		int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+		byte[] initCode = { (byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+				(byte) RETURN };
+
+		// Evaluating method
+		emit(root);
+		code.write(DRETURN);
+
+		if (code.size() > maxCodeLength || pool.size() > maxPoolSize) {
+			throw new IOException("Expression too long.");
+		}
+
+		int initName = pool.utf8("<init>");
+		int initDesc = pool.utf8("()V");
+		int applyName = pool.utf8("applyAsDouble");
+		int applyDesc = pool.utf8("(D)D");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(49); // Java 5 format, no stack map frames needed
+		pool.write(out);
+		out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(iface);
+		out.writeShort(0); // fields
+		out.writeShort(2); // methods
+		writeMethod(out, initName, initDesc, codeName, 1, 1, initCode);
+		writeMethod(out, applyName, applyDesc, codeName, stackSize(root) + 2, 3, code.toByteArray());
+		out.writeShort(0); // attributes
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes public method with Code attribute.
+	 * 
+	 * @param out Class file stream.
+	 * @param name Method name index.
+	 * @param desc Method descriptor index.
+	 * @param codeName Index of "Code" string.
+	 * @param maxStack Operand stack size.
+	 * @param maxLocals Local variables size.
+	 * @param body Method code.
+	 * @throws IOException Never, data is written to memory.
+	 */
+	private static void writeMethod(DataOutputStream out, int name, int desc, int codeName, int maxStack,
+			int maxLocals, byte[] body) throws IOException {
+		out.writeShort(0x0001);
+		out.writeShort(name);
+		out.writeShort(desc);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + body.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(body.length);
+		out.write(body);
+		out.writeShort(0); // exception table
+		out.writeShort(0); // attributes
+	}
+
+	/**
+	 * Emits code leaving value of given node on the operand stack.
+	 * 
+	 * @param node Node to compile.
+	 */
+	private void emit(ExpNode node) {
+		if (node instanceof ExpConstantNode) {
+			emitConstant(((ExpConstantNode) node).getValue());
+		} else if (node instanceof ExpVariableNode) {
+			int varSlot = ((ExpVariableNode) node).getSlot();
+
+			if (varSlot == slot) {
+				code.write(DLOAD_1);
+			} else {
+				emitConstant(slotValues[varSlot]);
+			}
+		} else if (node instanceof ExpOperatorNode) {
+			ExpOperatorNode op = (ExpOperatorNode) node;
+			ExpOperator operator = op.getOperator();
+
+			emit(op.getLeft());
+			emit(op.getRight());
+
+			if (operator == ExpBuiltIns.ADD) {
+				code.write(DADD);
+			} else if (operator == ExpBuiltIns.SUBTRACT) {
+				code.write(DSUB);
+			} else if (operator == ExpBuiltIns.MULTIPLY) {
+				code.write(DMUL);
+			} else if (operator == ExpBuiltIns.DIVIDE) {
+				emitInvoke(builtIns, "divide", "(DD)D");
+			} else {
+				emitInvoke("java/lang/Math", "pow", "(DD)D");
+			}
+		} else {
+			ExpFunctionNode function = (ExpFunctionNode) node;
+			ExpFunction impl = function.getFunction();
+
+			for (int i = 0; i < function.getArgCount(); i++) {
+				emit(function.getArg(i));
+			}
+
+			if (impl == ExpBuiltIns.SQRT) {
+				emitInvoke(builtIns, "sqrt", "(D)D");
+			} else if (impl == ExpBuiltIns.SIN) {
+				emitInvoke("java/lang/Math", "sin", "(D)D");
+			} else if (impl == ExpBuiltIns.COS) {
+				emitInvoke("java/lang/Math", "cos", "(D)D");
+			} else if (impl == ExpBuiltIns.TAN) {
+				emitInvoke("java/lang/Math", "tan", "(D)D");
+			} else if (impl == ExpBuiltIns.LN) {
+				emitInvoke(builtIns, "ln", "(D)D");
+			} else if (impl == ExpBuiltIns.LOG) {
+				emitInvoke(builtIns, "log", "(DD)D");
+			} else if (impl == ExpBuiltIns.ABS) {
+				emitInvoke("java/lang/Math", "abs", "(D)D");
+			}
+			// number is identity, argument is already on the stack
+		}
+	}
+
+	/**
+	 * Emits code pushing given constant.
+	 * 
+	 * @param value Constant value.
+	 */
+	private void emitConstant(double value) {
+		if (Double.doubleToRawLongBits(value) == 0L) {
+			code.write(DCONST_0);
+		} else if (value == 1.0) {
+			code.write(DCONST_1);
+		} else {
+			emitWithIndex(LDC2_W, pool.doubleConstant(value));
+		}
+	}
+
+	/**
+	 * Emits static method call.
+	 * 
+	 * @param owner Internal name of class declaring method.
+	 * @param name Method name.
+	 * @param desc Method descriptor.
+	 */
+	private void emitInvoke(String owner, String name, String desc) {
+		emitWithIndex(INVOKESTATIC, pool.methodRef(owner, name, desc));
+	}
+
+	/**
+	 * Emits instruction with two-byte constant pool index.
+	 * 
+	 * @param opcode Instruction.
+	 * @param index Constant pool index.
+	 */
+	private void emitWithIndex(int opcode, int index) {
+		code.write(opcode);
+		code.write(index >> 8);
+		code.write(index);
+	}
+
+	/**
+	 * Calculates operand stack size (in slots) needed to evaluate node.
+	 * 
+	 * @param node Node.
+	 * @return Stack size.
+	 */
+	private static int stackSize(ExpNode node) {
+		if (node instanceof ExpOperatorNode) {
+			ExpOperatorNode op = (ExpOperatorNode) node;
+
+			return Math.max(stackSize(op.getLeft()), 2 + stackSize(op.getRight()));
+		} else if (node instanceof ExpFunctionNode) {
+			ExpFunctionNode function = (ExpFunctionNode) node;
+			int size = 0;
+
+			for (int i = 0; i < function.getArgCount(); i++) {
+				size = Math.max(size, 2 * i + stackSize(function.getArg(i)));
+			}
+
+			return size;
+		}
+
+		return 2;
+	}
+
+	/**
+	 * Constant pool of generated class.
+	 */
+	private static class ConstantPool {
+
+		/** Serialized entries. */
+		private final List<byte[]> entries = new ArrayList<>();
+
+		/** Indexes of already added entries. */
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		/** Next free index. */
+		private int next = 1;
+
+		/** Adds UTF-8 string entry. */
+		int utf8(String value) {
+			return add("U" + value, 1, out -> {
+				out.writeByte(1);
+				out.writeUTF(value);
+			});
+		}
+
+		/** Adds class reference entry. */
+		int classRef(String name) {
+			int nameIndex = utf8(name);
+			return add("C" + name, 1, out -> {
+				out.writeByte(7);
+				out.writeShort(nameIndex);
+			});
+		}
+
+		/** Adds method reference entry. */
+		int methodRef(String owner, String name, String desc) {
+			int ownerIndex = classRef(owner);
+			int nameIndex = utf8(name);
+			int descIndex = utf8(desc);
+			int nameAndType = add("N" + name + desc, 1, out -> {
+				out.writeByte(12);
+				out.writeShort(nameIndex);
+				out.writeShort(descIndex);
+			});
+
+			return add("M" + owner + "." + name + desc, 1, out -> {
+				out.writeByte(10);
+				out.writeShort(ownerIndex);
+				out.writeShort(nameAndType);
+			});
+		}
+
+		/** Adds double constant entry, it takes two indexes. */
+		int doubleConstant(double value) {
+			long bits = Double.doubleToRawLongBits(value);
+			return add("D" + bits, 2, out -> {
+				out.writeByte(6);
+				out.writeLong(bits);
+			});
+		}
+
+		/** Returns number of used indexes. */
+		int size() {
+			return next - 1;
+		}
+
+		/** Writes entries count and all entries. */
+		void write(DataOutputStream out) throws IOException {
+			out.writeShort(next);
+
+			for (byte[] entry : entries) {
+				out.write(entry);
+			}
+		}
+
+		/** Adds entry unless entry with the same key already exists. */
+		private int add(String key, int size, Entry entry) {
+			Integer index = indexes.get(key);
+
+			if (index != null) {
+				return index;
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			try {
+				entry.write(new DataOutputStream(bytes));
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+
+			entries.add(bytes.toByteArray());
+			indexes.put(key, next);
+			next += size;
+
+			return next - size;
+		}
+
+		/**
+		 * Writes single constant pool entry.
+		 */
+		private interface Entry {
+			/** Writes entry bytes. */
+			void write(DataOutputStream out) throws IOException;
+		}
+
+	}
+
+	/**
+	 * Class loader defining single generated class, so it can be unloaded
+	 * together with the compiled expression.
+	 */
+	private static class GeneratedClassLoader extends ClassLoader {
+
+		/** Creates loader delegating to given parent. */
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		/** Defines class from given bytes. */
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+	}
+
+}
@@ -0,0 +1,315 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Differentiates compiled expression tree symbolically with respect to one
+ * variable.
+ * 
+ * All built-in operators and functions are supported, derivative of abs(u) is
+ * u / abs(u) * u', undefined where u is zero. Derivative is simplified while
+ * it is built:
+ * <ul>
+ * <li>operations with constant arguments are computed,</li>
+ * <li>terms multiplied by zero and zeros added to terms are removed,</li>
+ * <li>multiplication and division by one and exponent one are removed,</li>
+ * <li>u ^ c is differentiated as c * u ^ (c - 1) if exponent is constant,
+ * other powers as u ^ v * (v' * ln(u) + v * u' / u).</li>
+ * </ul>
+ * 
+ * Terms multiplied by zero are removed even if they would be undefined, so
+ * derivative may be defined in points where the expression is not.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionDifferentiator {
+
+	/** Constant zero. */
+	private static final ExpConstantNode zero = new ExpConstantNode(0);
+
+	/** Constant one. */
+	private static final ExpConstantNode one = new ExpConstantNode(1);
+
+	/** Slot of variable to differentiate with respect to. */
+	private final int slot;
+
+	/**
+	 * Initializes differentiation variable.
+	 * 
+	 * @param slot Slot of variable to differentiate with respect to.
+	 */
+	public ExpressionDifferentiator(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns simplified derivative of tree.
+	 * 
+	 * @param node Root of tree to differentiate.
+	 * @return Root of derivative tree.
+	 * @throws ExpressionException If tree contains operators or functions
+	 *         other than built-ins.
+	 */
+	public ExpNode differentiate(ExpNode node) {
+		if (node instanceof ExpVariableNode) {
+			return ((ExpVariableNode) node).getSlot() == slot ? one : zero;
+		} else if (node instanceof ExpOperatorNode) {
+			return differentiateOperator((ExpOperatorNode) node);
+		} else if (node instanceof ExpFunctionNode) {
+			return differentiateFunction((ExpFunctionNode) node);
+		}
+
+		return zero;
+	}
+
+	/**
+	 * Returns derivative of operator node.
+	 * 
+	 * @param node Operator node.
+	 * @return Derivative.
+	 */
+	private ExpNode differentiateOperator(ExpOperatorNode node) {
+		ExpOperator operator = node.getOperator();
+		ExpNode u = node.getLeft();
+		ExpNode v = node.getRight();
+		ExpNode du = differentiate(u);
+		ExpNode dv = differentiate(v);
+
+		if (operator == ExpBuiltIns.ADD) {
+			return add(du, dv);
+		} else if (operator == ExpBuiltIns.SUBTRACT) {
+			return subtract(du, dv);
+		} else if (operator == ExpBuiltIns.MULTIPLY) {
+			return add(multiply(du, v), multiply(u, dv));
+		} else if (operator == ExpBuiltIns.DIVIDE) {
+			if (isConstant(dv, 0)) {
+				return divide(du, v);
+			}
+
+			return divide(subtract(multiply(du, v), multiply(u, dv)), multiply(v, v));
+		} else if (operator == ExpBuiltIns.POWER) {
+			if (isConstant(dv, 0) && v instanceof ExpConstantNode) {
+				double exponent = ((ExpConstantNode) v).getValue();
+
+				return multiply(multiply(v, power(u, new ExpConstantNode(exponent - 1))), du);
+			} else if (isConstant(du, 0)) {
+				return multiply(multiply(node, function(ExpBuiltIns.LN, u)), dv);
+			}
+
+			return multiply(node, add(multiply(dv, function(ExpBuiltIns.LN, u)), divide(multiply(v, du), u)));
+		}
+
+		throw new ExpressionException("Operator " + operator.getOperator() + " can't be differentiated.");
+	}
+
+	/**
+	 * Returns derivative of function node.
+	 * 
+	 * @param node Function node.
+	 * @return Derivative.
+	 */
+	private ExpNode differentiateFunction(ExpFunctionNode node) {
+		ExpFunction function = node.getFunction();
+
+		if (!ExpBuiltIns.FUNCTIONS.contains(function)) {
+			throw new ExpressionException("Function " + function.getFunction() + " can't be differentiated.");
+		}
+
+		ExpNode u = node.getArg(0);
+		ExpNode du = differentiate(u);
+
+		if (function == ExpBuiltIns.LOG) {
+			// log(b, u) = ln(u) / ln(b)
+			ExpNode b = u;
+			ExpNode db = du;
+			u = node.getArg(1);
+			du = differentiate(u);
+			ExpNode lnB = function(ExpBuiltIns.LN, b);
+
+			if (isConstant(db, 0)) {
+				return divide(du, multiply(u, lnB));
+			}
+
+			ExpNode numerator = subtract(multiply(divide(du, u), lnB),
+					multiply(function(ExpBuiltIns.LN, u), divide(db, b)));
+
+			return divide(numerator, multiply(lnB, lnB));
+		}
+
+		if (isConstant(du, 0)) {
+			return zero;
+		}
+
+		if (function == ExpBuiltIns.SQRT) {
+			return divide(du, multiply(new ExpConstantNode(2), node));
+		} else if (function == ExpBuiltIns.SIN) {
+			return multiply(function(ExpBuiltIns.COS, u), du);
+		} else if (function == ExpBuiltIns.COS) {
+			return subtract(zero, multiply(function(ExpBuiltIns.SIN, u), du));
+		} else if (function == ExpBuiltIns.TAN) {
+			ExpNode cos = function(ExpBuiltIns.COS, u);
+
+			return divide(du, multiply(cos, cos));
+		} else if (function == ExpBuiltIns.LN) {
+			return divide(du, u);
+		} else if (function == ExpBuiltIns.ABS) {
+			return multiply(divide(u, node), du);
+		}
+
+		// number is identity
+		return du;
+	}
+
+	/**
+	 * Returns simplified sum.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Sum.
+	 */
+	private static ExpNode add(ExpNode left, ExpNode right) {
+		if (isConstant(left, 0)) {
+			return right;
+		} else if (isConstant(right, 0)) {
+			return left;
+		}
+
+		return fold(ExpBuiltIns.ADD, left, right);
+	}
+
+	/**
+	 * Returns simplified difference, subtraction from zero is negation.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Difference.
+	 */
+	private static ExpNode subtract(ExpNode left, ExpNode right) {
+		if (isConstant(right, 0)) {
+			return left;
+		} else if (isConstant(left, 0) && isNegation(right)) {
+			return ((ExpOperatorNode) right).getRight();
+		}
+
+		return fold(ExpBuiltIns.SUBTRACT, left, right);
+	}
+
+	/**
+	 * Returns simplified product.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Product.
+	 */
+	private static ExpNode multiply(ExpNode left, ExpNode right) {
+		if (isConstant(left, 0) || isConstant(right, 0)) {
+			return zero;
+		} else if (isConstant(left, 1)) {
+			return right;
+		} else if (isConstant(right, 1)) {
+			return left;
+		} else if (isConstant(left, -1)) {
+			return subtract(zero, right);
+		} else if (isConstant(right, -1)) {
+			return subtract(zero, left);
+		}
+
+		return fold(ExpBuiltIns.MULTIPLY, left, right);
+	}
+
+	/**
+	 * Returns simplified quotient.
+	 * 
+	 * @param left Dividend.
+	 * @param right Divisor.
+	 * @return Quotient.
+	 */
+	private static ExpNode divide(ExpNode left, ExpNode right) {
+		if (isConstant(left, 0)) {
+			return zero;
+		} else if (isConstant(right, 1)) {
+			return left;
+		}
+
+		return fold(ExpBuiltIns.DIVIDE, left, right);
+	}
+
+	/**
+	 * Returns simplified power.
+	 * 
+	 * @param left Base.
+	 * @param right Exponent.
+	 * @return Power.
+	 */
+	private static ExpNode power(ExpNode left, ExpNode right) {
+		if (isConstant(right, 0)) {
+			return one;
+		} else if (isConstant(right, 1)) {
+			return left;
+		}
+
+		return fold(ExpBuiltIns.POWER, left, right);
+	}
+
+	/**
+	 * Returns call of unary function, computed if argument is constant.
+	 * 
+	 * @param function Function.
+	 * @param arg Argument.
+	 * @return Function node or constant.
+	 */
+	private static ExpNode function(ExpFunction function, ExpNode arg) {
+		ExpNode node = new ExpFunctionNode(function, new ExpNode[] { arg });
+
+		return arg instanceof ExpConstantNode ? compute(node) : node;
+	}
+
+	/**
+	 * Returns operator node, computed if both arguments are constant.
+	 * 
+	 * @param operator Operator.
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Operator node or constant.
+	 */
+	private static ExpNode fold(ExpOperator operator, ExpNode left, ExpNode right) {
+		ExpNode node = new ExpOperatorNode(operator, left, right);
+
+		return left instanceof ExpConstantNode && right instanceof ExpConstantNode ? compute(node) : node;
+	}
+
+	/**
+	 * Computes value of node with constant arguments.
+	 * 
+	 * @param node Node to compute.
+	 * @return Constant node or the node itself if it can't be computed.
+	 */
+	private static ExpNode compute(ExpNode node) {
+		try {
+			return new ExpConstantNode(node.eval(null));
+		} catch (ArithmeticException e) {
+			return node;
+		}
+	}
+
+	/**
+	 * Checks if node is constant with given value.
+	 * 
+	 * @param node Node to check.
+	 * @param value Value to compare.
+	 * @return True if node is constant equal to value.
+	 */
+	private static boolean isConstant(ExpNode node, double value) {
+		return node instanceof ExpConstantNode && ((ExpConstantNode) node).getValue() == value;
+	}
+
+	/**
+	 * Checks if node is negation, i.e. subtraction from zero.
+	 * 
+	 * @param node Node to check.
+	 * @return True if node is negation.
+	 */
+	private static boolean isNegation(ExpNode node) {
+		return node instanceof ExpOperatorNode && ((ExpOperatorNode) node).getOperator() == ExpBuiltIns.SUBTRACT
+				&& isConstant(((ExpOperatorNode) node).getLeft(), 0);
+	}
+
+}
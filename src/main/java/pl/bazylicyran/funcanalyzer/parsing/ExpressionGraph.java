@@ -0,0 +1,1068 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates many compiled expressions of one argument together, computing
+ * every distinct subexpression only once.
+ * 
+ * Expression trees are merged into a directed acyclic graph: identical nodes
+ * (same constant, same operator or function with the same arguments) are
+ * stored once. Every node gets a register and nodes are evaluated in order of
+ * adding, so arguments are always computed before they are used. Arguments of
+ * built-in addition and multiplication are ordered, so x + 1 and 1 + x are the
+ * same node.
+ * 
+ * Node which throws ArithmeticException is undefined, as well as all nodes
+ * using it, so every expression is undefined exactly where its tree would
+ * throw. Values of undefined registers are NaN.
+ * 
+ * Graph can also be evaluated for a block of arguments at once: every node
+ * is computed for the whole block in a simple loop over arrays, which the JIT
+ * compiler can unroll and vectorize, instead of being dispatched for every
+ * point.
+ * 
+ * Graph can be evaluated in dual mode, which computes derivative of every
+ * node with respect to the argument together with its value, in the same
+ * pass and into preallocated arrays (forward-mode automatic
+ * differentiation). Derivatives of built-ins are computed from values of
+ * their arguments and of the node itself, e.g. tan' = (1 + tan^2) * u', so no
+ * function is computed twice. Derivatives of other operators and functions
+ * are unknown and NaN, as well as derivatives of built-ins in points where
+ * they are not differentiable (abs at zero) and of undefined nodes.
+ * 
+ * Graph is not modified by evaluation, so it can be evaluated by many threads,
+ * each with its own Registers or Block.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionGraph {
+
+	/** Code of constant node. */
+	private static final int codeConstant = 0;
+
+	/** Code of argument node. */
+	private static final int codeArgument = 1;
+
+	/** Code of built-in addition. */
+	private static final int codeAdd = 2;
+
+	/** Code of built-in subtraction. */
+	private static final int codeSubtract = 3;
+
+	/** Code of built-in multiplication. */
+	private static final int codeMultiply = 4;
+
+	/** Code of built-in division. */
+	private static final int codeDivide = 5;
+
+	/** Code of built-in power. */
+	private static final int codePower = 6;
+
+	/** Code of built-in square root. */
+	private static final int codeSqrt = 7;
+
+	/** Code of built-in sine. */
+	private static final int codeSin = 8;
+
+	/** Code of built-in cosine. */
+	private static final int codeCos = 9;
+
+	/** Code of built-in tangent. */
+	private static final int codeTan = 10;
+
+	/** Code of built-in natural logarithm. */
+	private static final int codeLn = 11;
+
+	/** Code of built-in logarithm. */
+	private static final int codeLog = 12;
+
+	/** Code of built-in absolute value. */
+	private static final int codeAbs = 13;
+
+	/** Code of other operator. */
+	private static final int codeOperator = 14;
+
+	/** Code of other function. */
+	private static final int codeFunction = 15;
+
+	/** Codes of nodes, indexed by register. */
+	private int[] codes = new int[16];
+
+	/** Registers of node arguments, indexed by register. */
+	private int[][] args = new int[16][];
+
+	/** Values of constant nodes, indexed by register. */
+	private double[] values = new double[16];
+
+	/** Operators and functions of nodes, indexed by register. */
+	private Object[] implementations = new Object[16];
+
+	/** Number of nodes. */
+	private int size = 0;
+
+	/** Registers of nodes by their description. */
+	private Map<List<Object>, Integer> nodes = new HashMap<>();
+
+	/** Registers of expressions results. */
+	private List<Integer> outputs = new ArrayList<>();
+
+	/** Number of nodes added, including merged ones. */
+	private int addedNodes = 0;
+
+	/**
+	 * Adds expression to the graph.
+	 * 
+	 * @param root Root of expression tree.
+	 * @param slot Slot of argument variable, other variables are constants.
+	 * @param slotValues Values of variables.
+	 * @return Index of expression output.
+	 */
+	public int add(ExpNode root, int slot, double[] slotValues) {
+		outputs.add(addNode(root, slot, slotValues));
+
+		return outputs.size() - 1;
+	}
+
+	/**
+	 * Returns number of expressions.
+	 * 
+	 * @return Number of outputs.
+	 */
+	public int getOutputCount() {
+		return outputs.size();
+	}
+
+	/**
+	 * Returns number of distinct nodes.
+	 * 
+	 * @return Number of registers.
+	 */
+	public int getNodeCount() {
+		return size;
+	}
+
+	/**
+	 * Returns number of nodes of all added trees.
+	 * 
+	 * @return Number of nodes before merging.
+	 */
+	public int getTreeNodeCount() {
+		return addedNodes;
+	}
+
+	/**
+	 * Creates registers for evaluation of the graph.
+	 * 
+	 * @return New registers.
+	 */
+	public Registers newRegisters() {
+		return new Registers(this);
+	}
+
+	/**
+	 * Creates registers for evaluation of the graph in blocks.
+	 * 
+	 * @param size Maximal number of points in a block.
+	 * @return New block.
+	 */
+	public Block newBlock(int size) {
+		return new Block(this, size);
+	}
+
+	/**
+	 * Evaluates all expressions for given argument.
+	 * 
+	 * @param x Value of argument.
+	 * @param registers Registers created for this graph.
+	 */
+	public void eval(double x, Registers registers) {
+		eval(x, registers, false);
+	}
+
+	/**
+	 * Evaluates all expressions and their derivatives for given argument.
+	 * 
+	 * @param x Value of argument.
+	 * @param registers Registers created for this graph.
+	 */
+	public void evalDual(double x, Registers registers) {
+		eval(x, registers, true);
+	}
+
+	/**
+	 * Evaluates all expressions for given argument, optionally with
+	 * derivatives.
+	 * 
+	 * @param x Value of argument.
+	 * @param registers Registers created for this graph.
+	 * @param dual Whether derivatives should be computed.
+	 */
+	private void eval(double x, Registers registers, boolean dual) {
+		double[] r = registers.values;
+		double[] d = dual == true ? registers.derivatives() : null;
+		boolean[] undefined = registers.undefined;
+
+		for (int i = 0; i < size; i++) {
+			int[] a = args[i];
+
+			switch (codes[i]) {
+			case codeConstant:
+				continue;
+			case codeArgument:
+				r[i] = x;
+				continue;
+			default:
+				break;
+			}
+
+			boolean argsDefined = true;
+
+			for (int arg : a) {
+				argsDefined &= !undefined[arg];
+			}
+
+			if (argsDefined == false) {
+				r[i] = Double.NaN;
+				undefined[i] = true;
+				continue;
+			}
+
+			try {
+				r[i] = evalNode(i, a, r);
+				undefined[i] = false;
+			} catch (ArithmeticException e) {
+				r[i] = Double.NaN;
+				undefined[i] = true;
+				continue;
+			}
+
+			if (dual == true) {
+				d[i] = derivative(i, a, r, d);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates all expressions for a block of arguments.
+	 * 
+	 * @param xs Values of argument.
+	 * @param from Index of first argument.
+	 * @param count Number of arguments, not greater than size of block.
+	 * @param block Block created for this graph.
+	 */
+	public void eval(double[] xs, int from, int count, Block block) {
+		eval(xs, from, count, block, false);
+	}
+
+	/**
+	 * Evaluates all expressions and their derivatives for a block of
+	 * arguments.
+	 * 
+	 * @param xs Values of argument.
+	 * @param from Index of first argument.
+	 * @param count Number of arguments, not greater than size of block.
+	 * @param block Block created for this graph.
+	 */
+	public void evalDual(double[] xs, int from, int count, Block block) {
+		eval(xs, from, count, block, true);
+	}
+
+	/**
+	 * Evaluates all expressions for a block of arguments, optionally with
+	 * derivatives.
+	 * 
+	 * @param xs Values of argument.
+	 * @param from Index of first argument.
+	 * @param count Number of arguments, not greater than size of block.
+	 * @param block Block created for this graph.
+	 * @param dual Whether derivatives should be computed.
+	 */
+	private void eval(double[] xs, int from, int count, Block block, boolean dual) {
+		double[][] derivatives = dual == true ? block.derivatives() : null;
+
+		for (int i = 0; i < size; i++) {
+			switch (codes[i]) {
+			case codeConstant:
+				continue;
+			case codeArgument:
+				System.arraycopy(xs, from, block.values[i], 0, count);
+				continue;
+			default:
+				break;
+			}
+
+			int[] a = args[i];
+			boolean[] undefined = block.undefined[i];
+			Arrays.fill(undefined, 0, count, false);
+
+			for (int arg : a) {
+				boolean[] argUndefined = block.undefined[arg];
+
+				for (int k = 0; k < count; k++) {
+					undefined[k] |= argUndefined[k];
+				}
+			}
+
+			evalBlock(i, a, block, count);
+
+			if (dual == true) {
+				derivativeBlock(i, a, block.values, derivatives, count);
+			}
+		}
+	}
+
+	/**
+	 * Computes values of operator or function node for a block of points.
+	 * Built-ins don't throw, points where they are undefined are marked
+	 * instead.
+	 * 
+	 * @param i Register of the node.
+	 * @param a Registers of arguments.
+	 * @param block Block with values of arguments.
+	 * @param count Number of points.
+	 */
+	private void evalBlock(int i, int[] a, Block block, int count) {
+		double[] out = block.values[i];
+		boolean[] undefined = block.undefined[i];
+		double[] left = block.values[a.length > 0 ? a[0] : i];
+		double[] right = block.values[a.length > 1 ? a[1] : i];
+
+		switch (codes[i]) {
+		case codeAdd:
+			for (int k = 0; k < count; k++) {
+				out[k] = left[k] + right[k];
+			}
+			break;
+		case codeSubtract:
+			for (int k = 0; k < count; k++) {
+				out[k] = left[k] - right[k];
+			}
+			break;
+		case codeMultiply:
+			for (int k = 0; k < count; k++) {
+				out[k] = left[k] * right[k];
+			}
+			break;
+		case codeDivide:
+			for (int k = 0; k < count; k++) {
+				undefined[k] |= right[k] == 0;
+				out[k] = left[k] / right[k];
+			}
+			break;
+		case codePower:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.pow(left[k], right[k]);
+			}
+			break;
+		case codeSqrt:
+			for (int k = 0; k < count; k++) {
+				undefined[k] |= left[k] < 0;
+				out[k] = Math.sqrt(left[k]);
+			}
+			break;
+		case codeSin:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.sin(left[k]);
+			}
+			break;
+		case codeCos:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.cos(left[k]);
+			}
+			break;
+		case codeTan:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.tan(left[k]);
+			}
+			break;
+		case codeLn:
+			for (int k = 0; k < count; k++) {
+				undefined[k] |= left[k] < 0;
+				out[k] = Math.log(left[k]);
+			}
+			break;
+		case codeLog:
+			for (int k = 0; k < count; k++) {
+				undefined[k] |= left[k] <= 1 || right[k] < 0;
+				out[k] = Math.log(right[k]) / Math.log(left[k]);
+			}
+			break;
+		case codeAbs:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.abs(left[k]);
+			}
+			break;
+		default:
+			double[] values = new double[size];
+
+			for (int k = 0; k < count; k++) {
+				if (undefined[k] == true) {
+					continue;
+				}
+
+				for (int arg : a) {
+					values[arg] = block.values[arg][k];
+				}
+
+				try {
+					out[k] = evalNode(i, a, values);
+				} catch (ArithmeticException e) {
+					undefined[k] = true;
+				}
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Computes value of operator or function node.
+	 * 
+	 * @param i Register of the node.
+	 * @param a Registers of arguments.
+	 * @param r Values of registers.
+	 * @return Value of the node.
+	 */
+	private double evalNode(int i, int[] a, double[] r) {
+		switch (codes[i]) {
+		case codeAdd:
+			return r[a[0]] + r[a[1]];
+		case codeSubtract:
+			return r[a[0]] - r[a[1]];
+		case codeMultiply:
+			return r[a[0]] * r[a[1]];
+		case codeDivide:
+			return ExpBuiltIns.divide(r[a[0]], r[a[1]]);
+		case codePower:
+			return Math.pow(r[a[0]], r[a[1]]);
+		case codeSqrt:
+			return ExpBuiltIns.sqrt(r[a[0]]);
+		case codeSin:
+			return Math.sin(r[a[0]]);
+		case codeCos:
+			return Math.cos(r[a[0]]);
+		case codeTan:
+			return Math.tan(r[a[0]]);
+		case codeLn:
+			return ExpBuiltIns.ln(r[a[0]]);
+		case codeLog:
+			return ExpBuiltIns.log(r[a[0]], r[a[1]]);
+		case codeAbs:
+			return Math.abs(r[a[0]]);
+		case codeOperator:
+			return ((ExpOperator) implementations[i]).eval(r[a[0]], r[a[1]]);
+		default:
+			ExpFunction implementation = (ExpFunction) implementations[i];
+
+			switch (a.length) {
+			case 1:
+				return implementation.eval(r[a[0]]);
+			case 2:
+				return implementation.eval(r[a[0]], r[a[1]]);
+			default:
+				double[] values = new double[a.length];
+
+				for (int k = 0; k < a.length; k++) {
+					values[k] = r[a[k]];
+				}
+
+				return implementation.eval(values);
+			}
+		}
+	}
+
+	/**
+	 * Computes derivative of operator or function node from values and
+	 * derivatives of its arguments.
+	 * 
+	 * @param i Register of the node.
+	 * @param a Registers of arguments.
+	 * @param r Values of registers, including the node.
+	 * @param d Derivatives of registers.
+	 * @return Derivative of the node, NaN if it is unknown.
+	 */
+	private double derivative(int i, int[] a, double[] r, double[] d) {
+		switch (codes[i]) {
+		case codeAdd:
+			return d[a[0]] + d[a[1]];
+		case codeSubtract:
+			return d[a[0]] - d[a[1]];
+		case codeMultiply:
+			return d[a[0]] * r[a[1]] + r[a[0]] * d[a[1]];
+		case codeDivide:
+			return (d[a[0]] - r[i] * d[a[1]]) / r[a[1]];
+		case codePower:
+			return powerDerivative(r[a[0]], r[a[1]], r[i], d[a[0]], d[a[1]]);
+		case codeSqrt:
+			return d[a[0]] / (2 * r[i]);
+		case codeSin:
+			return Math.cos(r[a[0]]) * d[a[0]];
+		case codeCos:
+			return -Math.sin(r[a[0]]) * d[a[0]];
+		case codeTan:
+			return (1 + r[i] * r[i]) * d[a[0]];
+		case codeLn:
+			return d[a[0]] / r[a[0]];
+		case codeLog:
+			return logDerivative(r[a[0]], r[a[1]], r[i], d[a[0]], d[a[1]]);
+		case codeAbs:
+			return r[a[0]] / r[i] * d[a[0]];
+		case codeFunction:
+			// number is identity
+			return implementations[i] == ExpBuiltIns.NUMBER ? d[a[0]] : Double.NaN;
+		default:
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Computes derivatives of operator or function node for a block of points.
+	 * Derivatives of undefined points are not meaningful.
+	 * 
+	 * @param i Register of the node.
+	 * @param a Registers of arguments.
+	 * @param values Values of registers, including the node.
+	 * @param derivatives Derivatives of registers.
+	 * @param count Number of points.
+	 */
+	private void derivativeBlock(int i, int[] a, double[][] values, double[][] derivatives, int count) {
+		double[] out = derivatives[i];
+		double[] value = values[i];
+		double[] left = values[a.length > 0 ? a[0] : i];
+		double[] right = values[a.length > 1 ? a[1] : i];
+		double[] dLeft = derivatives[a.length > 0 ? a[0] : i];
+		double[] dRight = derivatives[a.length > 1 ? a[1] : i];
+
+		switch (codes[i]) {
+		case codeAdd:
+			for (int k = 0; k < count; k++) {
+				out[k] = dLeft[k] + dRight[k];
+			}
+			break;
+		case codeSubtract:
+			for (int k = 0; k < count; k++) {
+				out[k] = dLeft[k] - dRight[k];
+			}
+			break;
+		case codeMultiply:
+			for (int k = 0; k < count; k++) {
+				out[k] = dLeft[k] * right[k] + left[k] * dRight[k];
+			}
+			break;
+		case codeDivide:
+			for (int k = 0; k < count; k++) {
+				out[k] = (dLeft[k] - value[k] * dRight[k]) / right[k];
+			}
+			break;
+		case codePower:
+			for (int k = 0; k < count; k++) {
+				out[k] = powerDerivative(left[k], right[k], value[k], dLeft[k], dRight[k]);
+			}
+			break;
+		case codeSqrt:
+			for (int k = 0; k < count; k++) {
+				out[k] = dLeft[k] / (2 * value[k]);
+			}
+			break;
+		case codeSin:
+			for (int k = 0; k < count; k++) {
+				out[k] = Math.cos(left[k]) * dLeft[k];
+			}
+			break;
+		case codeCos:
+			for (int k = 0; k < count; k++) {
+				out[k] = -Math.sin(left[k]) * dLeft[k];
+			}
+			break;
+		case codeTan:
+			for (int k = 0; k < count; k++) {
+				out[k] = (1 + value[k] * value[k]) * dLeft[k];
+			}
+			break;
+		case codeLn:
+			for (int k = 0; k < count; k++) {
+				out[k] = dLeft[k] / left[k];
+			}
+			break;
+		case codeLog:
+			for (int k = 0; k < count; k++) {
+				out[k] = logDerivative(left[k], right[k], value[k], dLeft[k], dRight[k]);
+			}
+			break;
+		case codeAbs:
+			for (int k = 0; k < count; k++) {
+				out[k] = left[k] / value[k] * dLeft[k];
+			}
+			break;
+		default:
+			if (implementations[i] == ExpBuiltIns.NUMBER) {
+				System.arraycopy(dLeft, 0, out, 0, count);
+			} else {
+				Arrays.fill(out, 0, count, Double.NaN);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Computes derivative of power u ^ v. Terms with zero derivative are
+	 * skipped, so constant exponents work for negative bases.
+	 * 
+	 * @param u Base.
+	 * @param v Exponent.
+	 * @param value Value of the power.
+	 * @param du Derivative of base.
+	 * @param dv Derivative of exponent.
+	 * @return Derivative of power.
+	 */
+	private static double powerDerivative(double u, double v, double value, double du, double dv) {
+		double derivative = 0;
+
+		if (du != 0) {
+			derivative += v * Math.pow(u, v - 1) * du;
+		}
+
+		if (dv != 0) {
+			derivative += value * Math.log(u) * dv;
+		}
+
+		return derivative;
+	}
+
+	/**
+	 * Computes derivative of logarithm log(b, u) = ln(u) / ln(b). Term of
+	 * constant base is skipped.
+	 * 
+	 * @param b Base.
+	 * @param u Logarithmized number.
+	 * @param value Value of the logarithm.
+	 * @param db Derivative of base.
+	 * @param du Derivative of logarithmized number.
+	 * @return Derivative of logarithm.
+	 */
+	private static double logDerivative(double b, double u, double value, double db, double du) {
+		double derivative = du / u;
+
+		if (db != 0) {
+			derivative -= value * db / b;
+		}
+
+		return derivative / Math.log(b);
+	}
+
+	/**
+	 * Adds node and its arguments, reusing identical nodes.
+	 * 
+	 * @param node Node to add.
+	 * @param slot Slot of argument variable.
+	 * @param slotValues Values of variables.
+	 * @return Register of the node.
+	 */
+	private int addNode(ExpNode node, int slot, double[] slotValues) {
+		addedNodes++;
+
+		if (node instanceof ExpConstantNode) {
+			return addConstant(((ExpConstantNode) node).getValue());
+		} else if (node instanceof ExpVariableNode) {
+			int variableSlot = ((ExpVariableNode) node).getSlot();
+
+			if (variableSlot != slot) {
+				return addConstant(slotValues[variableSlot]);
+			}
+
+			return addNode(codeArgument, null, new int[0], 0, Arrays.asList((Object) codeArgument));
+		} else if (node instanceof ExpOperatorNode) {
+			ExpOperatorNode operatorNode = (ExpOperatorNode) node;
+			ExpOperator implementation = operatorNode.getOperator();
+			int left = addNode(operatorNode.getLeft(), slot, slotValues);
+			int right = addNode(operatorNode.getRight(), slot, slotValues);
+			int code = operatorCode(implementation);
+
+			// commutative, order of arguments doesn't change result
+			if ((code == codeAdd || code == codeMultiply) && left > right) {
+				int tmp = left;
+				left = right;
+				right = tmp;
+			}
+
+			return addNode(code, implementation, new int[] { left, right }, 0, key(implementation, left, right));
+		} else if (node instanceof ExpFunctionNode) {
+			ExpFunctionNode functionNode = (ExpFunctionNode) node;
+			ExpFunction implementation = functionNode.getFunction();
+			int[] a = new int[functionNode.getArgCount()];
+
+			for (int i = 0; i < a.length; i++) {
+				a[i] = addNode(functionNode.getArg(i), slot, slotValues);
+			}
+
+			return addNode(functionCode(implementation), implementation, a, 0, key(implementation, a));
+		}
+
+		throw new ExpressionException("Unsupported node: " + node.getClass().getSimpleName());
+	}
+
+	/**
+	 * Adds constant node unless it already exists.
+	 * 
+	 * @param value Value of constant.
+	 * @return Register of the node.
+	 */
+	private int addConstant(double value) {
+		List<Object> key = Arrays.asList((Object) codeConstant, Double.doubleToRawLongBits(value));
+
+		return addNode(codeConstant, null, new int[0], value, key);
+	}
+
+	/**
+	 * Adds node unless node with given key already exists.
+	 * 
+	 * @param code Code of the node.
+	 * @param implementation Operator or function, null for other nodes.
+	 * @param a Registers of arguments.
+	 * @param value Value of constant node.
+	 * @param key Description of the node, null if node can't be merged.
+	 * @return Register of the node.
+	 */
+	private int addNode(int code, Object implementation, int[] a, double value, List<Object> key) {
+		if (key != null) {
+			Integer existing = nodes.get(key);
+
+			if (existing != null) {
+				return existing;
+			}
+		}
+
+		if (size == codes.length) {
+			int capacity = size * 2;
+			codes = Arrays.copyOf(codes, capacity);
+			args = Arrays.copyOf(args, capacity);
+			values = Arrays.copyOf(values, capacity);
+			implementations = Arrays.copyOf(implementations, capacity);
+		}
+
+		codes[size] = code;
+		args[size] = a;
+		values[size] = value;
+		implementations[size] = implementation;
+
+		if (key != null) {
+			nodes.put(key, size);
+		}
+
+		return size++;
+	}
+
+	/**
+	 * Returns description of operator or function node. Only built-ins, which
+	 * always give the same result, are merged.
+	 * 
+	 * @param implementation Operator or function.
+	 * @param a Registers of arguments.
+	 * @return Key of the node or null if it can't be merged.
+	 */
+	private static List<Object> key(Object implementation, int... a) {
+		if (!ExpBuiltIns.OPERATORS.contains(implementation) && !ExpBuiltIns.FUNCTIONS.contains(implementation)) {
+			return null;
+		}
+
+		List<Object> key = new ArrayList<>(a.length + 1);
+		key.add(implementation);
+
+		for (int arg : a) {
+			key.add(arg);
+		}
+
+		return key;
+	}
+
+	/**
+	 * Returns code of given operator.
+	 * 
+	 * @param implementation Operator.
+	 * @return Node code.
+	 */
+	private static int operatorCode(ExpOperator implementation) {
+		if (implementation == ExpBuiltIns.ADD) {
+			return codeAdd;
+		} else if (implementation == ExpBuiltIns.SUBTRACT) {
+			return codeSubtract;
+		} else if (implementation == ExpBuiltIns.MULTIPLY) {
+			return codeMultiply;
+		} else if (implementation == ExpBuiltIns.DIVIDE) {
+			return codeDivide;
+		} else if (implementation == ExpBuiltIns.POWER) {
+			return codePower;
+		}
+
+		return codeOperator;
+	}
+
+	/**
+	 * Returns code of given function.
+	 * 
+	 * @param implementation Function.
+	 * @return Node code.
+	 */
+	private static int functionCode(ExpFunction implementation) {
+		if (implementation == ExpBuiltIns.SQRT) {
+			return codeSqrt;
+		} else if (implementation == ExpBuiltIns.SIN) {
+			return codeSin;
+		} else if (implementation == ExpBuiltIns.COS) {
+			return codeCos;
+		} else if (implementation == ExpBuiltIns.TAN) {
+			return codeTan;
+		} else if (implementation == ExpBuiltIns.LN) {
+			return codeLn;
+		} else if (implementation == ExpBuiltIns.LOG) {
+			return codeLog;
+		} else if (implementation == ExpBuiltIns.ABS) {
+			return codeAbs;
+		}
+
+		return codeFunction;
+	}
+
+	/**
+	 * Returns registers of argument nodes.
+	 * 
+	 * @param graph Graph to search.
+	 * @return Registers of nodes with argument code.
+	 */
+	private static int[] arguments(ExpressionGraph graph) {
+		int count = 0;
+		int[] arguments = new int[graph.size];
+
+		for (int i = 0; i < graph.size; i++) {
+			if (graph.codes[i] == codeArgument) {
+				arguments[count++] = i;
+			}
+		}
+
+		return Arrays.copyOf(arguments, count);
+	}
+
+	/**
+	 * Values of graph nodes for a block of points computed by one thread.
+	 */
+	public static class Block {
+
+		/** Registers of expressions results. */
+		private final int[] outputs;
+
+		/** Maximal number of points. */
+		private final int size;
+
+		/** Values of nodes, indexed by register and point. */
+		private final double[][] values;
+
+		/** Whether nodes are undefined, indexed by register and point. */
+		private final boolean[][] undefined;
+
+		/** Derivatives of nodes, indexed by register and point, null if not used. */
+		private double[][] derivatives;
+
+		/** Registers of argument nodes. */
+		private final int[] arguments;
+
+		/**
+		 * Creates block with values of constant nodes. Graph shouldn't be
+		 * extended after block is created.
+		 * 
+		 * @param graph Graph which uses block.
+		 * @param size Maximal number of points.
+		 */
+		private Block(ExpressionGraph graph, int size) {
+			this.outputs = new int[graph.outputs.size()];
+			this.size = size;
+			this.values = new double[graph.size][size];
+			this.undefined = new boolean[graph.size][size];
+
+			for (int i = 0; i < outputs.length; i++) {
+				outputs[i] = graph.outputs.get(i);
+			}
+
+			for (int i = 0; i < graph.size; i++) {
+				if (graph.codes[i] == codeConstant) {
+					Arrays.fill(values[i], graph.values[i]);
+				}
+			}
+
+			this.arguments = arguments(graph);
+		}
+
+		/**
+		 * Returns derivatives of nodes, creating them when first needed.
+		 * Derivatives of constants are zero and of argument one.
+		 * 
+		 * @return Derivatives indexed by register and point.
+		 */
+		private double[][] derivatives() {
+			if (derivatives == null) {
+				derivatives = new double[values.length][size];
+
+				for (int argument : arguments) {
+					Arrays.fill(derivatives[argument], 1);
+				}
+			}
+
+			return derivatives;
+		}
+
+		/**
+		 * Returns maximal number of points in block.
+		 * 
+		 * @return Size of block.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Copies results of expression with given index to array, undefined
+		 * values are NaN.
+		 * 
+		 * @param output Index of expression output.
+		 * @param dest Array to copy results to.
+		 * @param destFrom Index of first result in array.
+		 * @param count Number of results.
+		 */
+		public void copyOutput(int output, double[] dest, int destFrom, int count) {
+			copyOutput(output, 0, dest, destFrom, count);
+		}
+
+		/**
+		 * Copies results of expression with given index for part of the block
+		 * to array, undefined values are NaN.
+		 * 
+		 * @param output Index of expression output.
+		 * @param from Index of first point in block.
+		 * @param dest Array to copy results to.
+		 * @param destFrom Index of first result in array.
+		 * @param count Number of results.
+		 */
+		public void copyOutput(int output, int from, double[] dest, int destFrom, int count) {
+			double[] result = values[outputs[output]];
+			boolean[] resultUndefined = undefined[outputs[output]];
+
+			for (int k = 0; k < count; k++) {
+				dest[destFrom + k] = resultUndefined[from + k] ? Double.NaN : result[from + k];
+			}
+		}
+
+		/**
+		 * Copies derivatives of expression with given index for part of the
+		 * block to array. Block must be evaluated in dual mode, derivatives
+		 * in undefined points are NaN.
+		 * 
+		 * @param output Index of expression output.
+		 * @param from Index of first point in block.
+		 * @param dest Array to copy derivatives to.
+		 * @param destFrom Index of first derivative in array.
+		 * @param count Number of derivatives.
+		 */
+		public void copyDerivative(int output, int from, double[] dest, int destFrom, int count) {
+			double[] result = derivatives()[outputs[output]];
+			boolean[] resultUndefined = undefined[outputs[output]];
+
+			for (int k = 0; k < count; k++) {
+				dest[destFrom + k] = resultUndefined[from + k] ? Double.NaN : result[from + k];
+			}
+		}
+
+	}
+
+	/**
+	 * Values of graph nodes computed by one thread.
+	 */
+	public static class Registers {
+
+		/** Registers of expressions results. */
+		private final int[] outputs;
+
+		/** Values of nodes. */
+		private final double[] values;
+
+		/** Whether nodes are undefined. */
+		private final boolean[] undefined;
+
+		/** Derivatives of nodes, null if not used. */
+		private double[] derivatives;
+
+		/** Registers of argument nodes. */
+		private final int[] arguments;
+
+		/**
+		 * Creates registers with values of constant nodes. Graph shouldn't be
+		 * extended after registers are created.
+		 * 
+		 * @param graph Graph which uses registers.
+		 */
+		private Registers(ExpressionGraph graph) {
+			this.outputs = new int[graph.outputs.size()];
+
+			for (int i = 0; i < outputs.length; i++) {
+				outputs[i] = graph.outputs.get(i);
+			}
+
+			this.values = Arrays.copyOf(graph.values, graph.size);
+			this.undefined = new boolean[graph.size];
+			this.arguments = arguments(graph);
+		}
+
+		/**
+		 * Returns derivatives of nodes, creating them when first needed.
+		 * Derivatives of constants are zero and of argument one.
+		 * 
+		 * @return Derivatives indexed by register.
+		 */
+		private double[] derivatives() {
+			if (derivatives == null) {
+				derivatives = new double[values.length];
+
+				for (int argument : arguments) {
+					derivatives[argument] = 1;
+				}
+			}
+
+			return derivatives;
+		}
+
+		/**
+		 * Returns result of expression with given index.
+		 * 
+		 * @param output Index of expression output.
+		 * @return Value of expression, NaN if it is undefined.
+		 */
+		public double getOutput(int output) {
+			return values[outputs[output]];
+		}
+
+		/**
+		 * Checks if expression with given index is defined.
+		 * 
+		 * @param output Index of expression output.
+		 * @return True if expression was computed without error.
+		 */
+		public boolean isDefined(int output) {
+			return !undefined[outputs[output]];
+		}
+
+		/**
+		 * Returns derivative of expression with given index. Registers must
+		 * be evaluated in dual mode.
+		 * 
+		 * @param output Index of expression output.
+		 * @return Derivative of expression, NaN if it is undefined or unknown.
+		 */
+		public double getDerivative(int output) {
+			return undefined[outputs[output]] ? Double.NaN : derivatives()[outputs[output]];
+		}
+
+	}
+
+}
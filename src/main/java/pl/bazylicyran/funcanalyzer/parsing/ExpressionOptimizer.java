@@ -0,0 +1,227 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.Map;
+
+/**
+ * Simplifies compiled expression tree, so it has less nodes to evaluate.
+ * 
+ * Tree is simplified from the leaves up:
+ * <ul>
+ * <li>constants (pi, e) are replaced by their values,</li>
+ * <li>built-in operators and functions with constant arguments are computed,
+ * unless they throw ArithmeticException, which is left for evaluation,</li>
+ * <li>identity operations are removed: x + 0, 0 + x, x - 0, x * 1, 1 * x,
+ * x / 1, x ^ 1,</li>
+ * <li>double negation -(-x) is replaced by x,</li>
+ * <li>abs(abs(x)) and abs(-x) are replaced by abs(x),</li>
+ * <li>x ^ 2 is replaced by x * x if x is a variable.</li>
+ * </ul>
+ * 
+ * Operations are never reordered, so simplified tree gives the same values as
+ * the original one, except for the sign of zero (e.g. -0 + 0 is 0, not -0).
+ * Operators and functions other than built-ins are left intact.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionOptimizer {
+
+	/** Values of names which are replaced by constants. */
+	private Map<String, Double> constants;
+
+	/**
+	 * Initializes constants.
+	 * 
+	 * @param constants Values of variables which are constants.
+	 */
+	public ExpressionOptimizer(Map<String, Double> constants) {
+		this.constants = constants;
+	}
+
+	/**
+	 * Returns simplified tree.
+	 * 
+	 * @param node Root of tree to simplify.
+	 * @return Root of simplified tree, may be the same node.
+	 */
+	public ExpNode optimize(ExpNode node) {
+		if (node instanceof ExpVariableNode) {
+			Double value = constants.get(((ExpVariableNode) node).getName());
+			return value != null ? new ExpConstantNode(value) : node;
+		} else if (node instanceof ExpOperatorNode) {
+			return optimizeOperator((ExpOperatorNode) node);
+		} else if (node instanceof ExpFunctionNode) {
+			return optimizeFunction((ExpFunctionNode) node);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Returns simplified operator node.
+	 * 
+	 * @param node Operator node.
+	 * @return Simplified node.
+	 */
+	private ExpNode optimizeOperator(ExpOperatorNode node) {
+		ExpOperator operator = node.getOperator();
+		ExpNode left = optimize(node.getLeft());
+		ExpNode right = optimize(node.getRight());
+
+		if (!ExpBuiltIns.OPERATORS.contains(operator)) {
+			return rebuild(node, left, right);
+		}
+
+		if (left instanceof ExpConstantNode && right instanceof ExpConstantNode) {
+			ExpNode folded = fold(new ExpOperatorNode(operator, left, right));
+
+			if (folded != null) {
+				return folded;
+			}
+		}
+
+		if (operator == ExpBuiltIns.ADD) {
+			if (isConstant(right, 0)) {
+				return left;
+			} else if (isConstant(left, 0)) {
+				return right;
+			}
+		} else if (operator == ExpBuiltIns.SUBTRACT) {
+			if (isConstant(right, 0)) {
+				return left;
+			} else if (isConstant(left, 0) && isNegation(right)) {
+				return ((ExpOperatorNode) right).getRight();
+			}
+		} else if (operator == ExpBuiltIns.MULTIPLY) {
+			if (isConstant(right, 1)) {
+				return left;
+			} else if (isConstant(left, 1)) {
+				return right;
+			}
+		} else if (operator == ExpBuiltIns.DIVIDE) {
+			if (isConstant(right, 1)) {
+				return left;
+			}
+		} else if (operator == ExpBuiltIns.POWER) {
+			if (isConstant(right, 1)) {
+				return left;
+			} else if (isConstant(right, 2) && left instanceof ExpVariableNode) {
+				return new ExpOperatorNode(ExpBuiltIns.MULTIPLY, left, left);
+			}
+		}
+
+		return rebuild(node, left, right);
+	}
+
+	/**
+	 * Returns simplified function node.
+	 * 
+	 * @param node Function node.
+	 * @return Simplified node.
+	 */
+	private ExpNode optimizeFunction(ExpFunctionNode node) {
+		ExpFunction function = node.getFunction();
+		ExpNode[] args = new ExpNode[node.getArgCount()];
+		boolean changed = false;
+		boolean constant = true;
+
+		for (int i = 0; i < args.length; i++) {
+			args[i] = optimize(node.getArg(i));
+			changed |= args[i] != node.getArg(i);
+			constant &= args[i] instanceof ExpConstantNode;
+		}
+
+		if (!ExpBuiltIns.FUNCTIONS.contains(function)) {
+			return changed == true ? new ExpFunctionNode(function, args) : node;
+		}
+
+		if (constant == true) {
+			ExpNode folded = fold(new ExpFunctionNode(function, args));
+
+			if (folded != null) {
+				return folded;
+			}
+		}
+
+		if (function == ExpBuiltIns.ABS) {
+			ExpNode arg = args[0];
+
+			// abs(abs(x)) = abs(-x) = abs(x)
+			while (isFunction(arg, ExpBuiltIns.ABS) || isNegation(arg)) {
+				arg = arg instanceof ExpFunctionNode ? ((ExpFunctionNode) arg).getArg(0)
+						: ((ExpOperatorNode) arg).getRight();
+			}
+
+			if (arg != args[0]) {
+				args[0] = arg;
+				changed = true;
+			}
+		}
+
+		return changed == true ? new ExpFunctionNode(function, args) : node;
+	}
+
+	/**
+	 * Computes value of node with constant arguments.
+	 * 
+	 * @param node Node to compute.
+	 * @return Constant node or null if node can't be computed.
+	 */
+	private ExpNode fold(ExpNode node) {
+		try {
+			return new ExpConstantNode(node.eval(null));
+		} catch (ArithmeticException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns operator node with given arguments, creating new one only if
+	 * they changed.
+	 * 
+	 * @param node Original node.
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Node with given arguments.
+	 */
+	private ExpNode rebuild(ExpOperatorNode node, ExpNode left, ExpNode right) {
+		if (left == node.getLeft() && right == node.getRight()) {
+			return node;
+		}
+
+		return new ExpOperatorNode(node.getOperator(), left, right);
+	}
+
+	/**
+	 * Checks if node is constant with given value.
+	 * 
+	 * @param node Node to check.
+	 * @param value Value to compare.
+	 * @return True if node is constant equal to value.
+	 */
+	private static boolean isConstant(ExpNode node, double value) {
+		return node instanceof ExpConstantNode && ((ExpConstantNode) node).getValue() == value;
+	}
+
+	/**
+	 * Checks if node is negation, i.e. subtraction from zero.
+	 * 
+	 * @param node Node to check.
+	 * @return True if node is negation.
+	 */
+	private static boolean isNegation(ExpNode node) {
+		return node instanceof ExpOperatorNode && ((ExpOperatorNode) node).getOperator() == ExpBuiltIns.SUBTRACT
+				&& isConstant(((ExpOperatorNode) node).getLeft(), 0);
+	}
+
+	/**
+	 * Checks if node is call of given function.
+	 * 
+	 * @param node Node to check.
+	 * @param function Function.
+	 * @return True if node calls function.
+	 */
+	private static boolean isFunction(ExpNode node, ExpFunction function) {
+		return node instanceof ExpFunctionNode && ((ExpFunctionNode) node).getFunction() == function;
+	}
+
+}
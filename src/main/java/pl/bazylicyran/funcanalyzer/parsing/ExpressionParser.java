@@ -1,14 +1,16 @@
 package pl.bazylicyran.funcanalyzer.parsing;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Implements recursive descent parser to evaluate mathematical expression given
- * in form of a tokens list.
+ * in form of typed tokens.
+ * 
+ * Tokens are compiled once into a tree of ExpNode objects which is then
+ * evaluated for current variable values.
  * 
  * Sources:
  * http://stackoverflow.com/questions/3422673/evaluating-a-math-expression-given-in-string-form
@@ -19,8 +21,8 @@ import java.util.Map;
  */
 public class ExpressionParser {
 
-	/** Expression in form of a tokens list. */
-	private List<String> tokens;
+	/** Expression in form of typed tokens. */
+	private ExpressionTokens tokens;
 
 	/** Map of operators and their implementations. */
 	private Map<String, ExpOperator> operators = new HashMap<>();
@@ -31,15 +33,33 @@ public class ExpressionParser {
 	/** List of variables. */
 	private Map<String, Double> variables = new HashMap<>();
 
+	/** Variables which are constants and are simplified during compilation. */
+	private Map<String, Double> constants = new HashMap<>();
+
+	/** Whether compiled tree is simplified by ExpressionOptimizer. */
+	private boolean optimize = true;
+
 	/** Value of expression. */
 	private double value;
 
+	/** Root of compiled expression tree. */
+	private ExpNode root;
+
+	/** Names of variables used by compiled expression, ordered by slot. */
+	private List<String> slots = new ArrayList<>();
+
+	/** Values of variables used by compiled expression, ordered by slot. */
+	private double[] slotValues;
+
 	/** Current position of parser. */
 	private int pos = -1;
 
 	/** Current token. */
 	private String current;
 
+	/** Kind of current token. */
+	private ExpTokenKind currentKind;
+
 	/** Last token. */
 	private String last;
 
@@ -49,141 +69,84 @@ public class ExpressionParser {
 	 * @param tokens The list of tokens.
 	 */
 	public ExpressionParser(List<String> tokens) {
-		this.tokens = tokens;
-
-		// Operators
-		addOperator(new ExpOperator("+", Arrays.asList("expression", "factor")) {
-			@Override
-			public double eval(double left, double right) {
-				return left + right;
-			}
-		});
-		addOperator(new ExpOperator("-", Arrays.asList("expression", "factor")) {
-			@Override
-			public double eval(double left, double right) {
-				return left - right;
-			}
-		});
-		addOperator(new ExpOperator("*", Arrays.asList("term")) {
-			@Override
-			public double eval(double left, double right) {
-				return left * right;
-			}
-		});
-		addOperator(new ExpOperator("/", Arrays.asList("term")) {
-			@Override
-			public double eval(double left, double right) {
-
-				if (right == 0) {
-					throw new ArithmeticException("Division by zero.");
-				}
-
-				return left / right;
-			}
-		});
-		addOperator(new ExpOperator("^", Arrays.asList("term")) {
-			@Override
-			public double eval(double left, double right) {
-				return Math.pow(left, right);
-			}
-		});
-
-		// Functions
-		addFunction(new ExpFunction("number", 1) {
-			@Override
-			public double eval(List<Double> args) {
-				return args.get(0);
-			}
-		});
-		addFunction(new ExpFunction("sqrt", 1) {
-			@Override
-			public double eval(List<Double> args) {
-
-				if (args.get(0) < 0) {
-					throw new ArithmeticException("Square root argument smaller than zero.");
-				}
-
-				return Math.sqrt(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("sin", 1) {
-			@Override
-			public double eval(List<Double> args) {
-				return Math.sin(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("cos", 1) {
-			@Override
-			public double eval(List<Double> args) {
-				return Math.cos(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("tan", 1) {
-			@Override
-			public double eval(List<Double> args) {
-				return Math.tan(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("ln", 1) {
-			@Override
-			public double eval(List<Double> args) {
-
-				if (args.get(0) < 0) {
-					throw new ArithmeticException("Natural logarithm argumant smaller than zero.");
-				}
+		this(ExpressionTokens.of(tokens));
+	}
 
-				return Math.log(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("log", 2) {
-			@Override
-			public double eval(List<Double> args) {
+	/**
+	 * Initializes typed tokens, basic operators, functions from default
+	 * registry and variables.
+	 * 
+	 * @param tokens Typed tokens.
+	 */
+	public ExpressionParser(ExpressionTokens tokens) {
+		this(tokens, ExpFunctionRegistry.getDefault());
+	}
 
-				if (args.get(0) <= 1) {
-					throw new ArithmeticException("Logarithm base smaller or equal zero.");
-				}
+	/**
+	 * Initializes typed tokens, basic operators, functions from given registry
+	 * and variables.
+	 * 
+	 * @param tokens Typed tokens.
+	 * @param registry Registry of available functions.
+	 */
+	public ExpressionParser(ExpressionTokens tokens, ExpFunctionRegistry registry) {
+		this.tokens = tokens;
 
-				if (args.get(1) < 0) {
-					throw new ArithmeticException("Logharitmized number smaller than zero.");
-				}
+		for (ExpOperator operator : ExpBuiltIns.OPERATORS) {
+			addOperator(operator);
+		}
 
-				return Math.log(args.get(1)) / Math.log(args.get(0));
-			}
-		});
-		addFunction(new ExpFunction("abs", 1) {
-			@Override
-			public double eval(List<Double> args) {
-				return Math.abs(args.get(0));
-			}
-		});
+		for (ExpFunction function : registry.getFunctions()) {
+			addFunction(function);
+		}
 
 		// Constants stored as variables
-		addVariable("pi", Math.PI);
-		addVariable("e", Math.E);
+		addConstant("pi", Math.PI);
+		addConstant("e", Math.E);
 	}
 
 	/**
-	 * Checks if given string contains only number.
-	 * 
-	 * @param str The string to check.
-	 * @return True if string contains number.
+	 * Starts parsing. Compiles expression if it was not compiled yet and
+	 * evaluates compiled tree with current variable values.
 	 */
-	private static boolean isNumeric(String str) {
-		return str.matches("-?\\d+(\\.\\d+)?");
+	public void parse() {
+		if (root == null) {
+			compile();
+		}
+
+		value = root.eval(slotValues);
 	}
 
 	/**
-	 * Starts parsing.
+	 * Compiles tokens list into expression tree which can be evaluated many
+	 * times without parsing. Only variables known at the time of compilation
+	 * can be used in expression. If enabled, tree is simplified by
+	 * ExpressionOptimizer.
+	 * 
+	 * @return Root of expression tree.
 	 */
-	public void parse() {
+	public ExpNode compile() {
+		root = null;
+		slots.clear();
 		nextToken();
 
 		try {
-			value = parseExp();
-		} catch (ArithmeticException e) {
+			root = parseExp();
+		} finally {
 			resetParser();
-			throw e;
 		}
+
+		if (optimize == true) {
+			root = new ExpressionOptimizer(constants).optimize(root);
+		}
+
+		slotValues = new double[slots.size()];
+
+		for (int i = 0; i < slots.size(); i++) {
+			slotValues[i] = variables.get(slots.get(i));
+		}
+
+		return root;
 	}
 
 	/**
@@ -195,6 +158,46 @@ public class ExpressionParser {
 		return value;
 	}
 
+	/**
+	 * Returns slot of given variable in compiled expression.
+	 * 
+	 * @param name Variable name.
+	 * @return Slot index or -1 if variable is not used in expression.
+	 */
+	public int getSlot(String name) {
+		return slots.indexOf(name);
+	}
+
+	/**
+	 * Returns names of variables used by compiled expression, ordered by
+	 * slot.
+	 * 
+	 * @return Copy of variable names.
+	 */
+	public List<String> getSlotNames() {
+		return new ArrayList<>(slots);
+	}
+
+	/**
+	 * Returns values of variables used by compiled expression, ordered by
+	 * slot.
+	 * 
+	 * @return Copy of variable values.
+	 */
+	public double[] getSlotValues() {
+		return slotValues.clone();
+	}
+
+	/**
+	 * Sets whether compiled tree should be simplified.
+	 * 
+	 * @param optimize True if tree should be simplified.
+	 */
+	public void setOptimize(boolean optimize) {
+		this.optimize = optimize;
+		root = null;
+	}
+
 	/**
 	 * Add operator to the parser operators list
 	 * 
@@ -202,15 +205,18 @@ public class ExpressionParser {
 	 */
 	public void addOperator(ExpOperator operator) {
 		operators.put(operator.getOperator(), operator);
+		root = null;
 	}
 
 	/**
-	 * Add function to the parser functions list
+	 * Add function to the parser functions list. Functions available in all
+	 * expressions should be registered in ExpFunctionRegistry instead.
 	 * 
 	 * @param function Function.
 	 */
 	public void addFunction(ExpFunction function) {
 		functions.put(function.getFunction(), function);
+		root = null;
 	}
 
 	/**
@@ -221,6 +227,44 @@ public class ExpressionParser {
 	 */
 	public void addVariable(String name, double value) {
 		variables.put(name, value);
+
+		// constant could be simplified in compiled tree
+		if (constants.remove(name) != null) {
+			root = null;
+		}
+
+		if (root != null) {
+			int slot = slots.indexOf(name);
+
+			if (slot >= 0) {
+				slotValues[slot] = value;
+			}
+		}
+	}
+
+	/**
+	 * Add constant to the parser variables list. Constant is replaced by its
+	 * value when tree is simplified, setting it later as a variable makes it
+	 * ordinary variable.
+	 * 
+	 * @param name Constant name.
+	 * @param value Constant value.
+	 */
+	public void addConstant(String name, double value) {
+		variables.put(name, value);
+		constants.put(name, value);
+		root = null;
+	}
+
+	/**
+	 * Checks if given name is a constant, which is simplified during
+	 * compilation.
+	 * 
+	 * @param name Variable name.
+	 * @return True if name is a constant.
+	 */
+	public boolean isConstant(String name) {
+		return constants.containsKey(name);
 	}
 
 	/**
@@ -229,6 +273,7 @@ public class ExpressionParser {
 	private void resetParser() {
 		pos = -1;
 		current = null;
+		currentKind = null;
 	}
 
 	/**
@@ -241,7 +286,8 @@ public class ExpressionParser {
 		last = current;
 
 		if (pos <= tokens.size() - 1) {
-			current = tokens.get(pos);
+			current = tokens.getText(pos);
+			currentKind = tokens.getKind(pos);
 		} else {
 			resetParser();
 		}
@@ -268,15 +314,15 @@ public class ExpressionParser {
 	 * 
 	 * exp = term | exp + term | exp - term
 	 * 
-	 * @return Expression value.
+	 * @return Expression node.
 	 */
-	private double parseExp() {
-		double result = parseTerm();
+	private ExpNode parseExp() {
+		ExpNode result = parseTerm();
 		ExpOperator operator = operators.get(current);
 
 		while (operator != null && operator.levelAllowed("expression")) {
 			nextToken();
-			result = operator.eval(result, parseTerm());
+			result = new ExpOperatorNode(operator, result, parseTerm());
 			operator = operators.get(current);
 		}
 
@@ -288,15 +334,15 @@ public class ExpressionParser {
 	 * 
 	 * term = factor | term * factor | term / factor | factor ^ factor
 	 * 
-	 * @return Term value.
+	 * @return Term node.
 	 */
-	private double parseTerm() {
-		double result = parseFactor();
+	private ExpNode parseTerm() {
+		ExpNode result = parseFactor();
 		ExpOperator operator = operators.get(current);
 
 		while (operator != null && operator.levelAllowed("term")) {
 			nextToken();
-			result = operator.eval(result, parseTerm());
+			result = new ExpOperatorNode(operator, result, parseTerm());
 			operator = operators.get(current);
 		}
 
@@ -308,10 +354,10 @@ public class ExpressionParser {
 	 * 
 	 * factor = + factor | - factor | ( expression ) | number | function factor
 	 * 
-	 * @return Factor value.
+	 * @return Factor node.
 	 */
-	private double parseFactor() {
-		double result = 0;
+	private ExpNode parseFactor() {
+		ExpNode result;
 		ExpOperator operator = operators.get(current);
 		ExpFunction function = functions.get(current);
 		Double variable = variables.get(current);
@@ -323,7 +369,7 @@ public class ExpressionParser {
 		// positive or negative term
 		if (operator != null && operator.levelAllowed("factor")) {
 			nextToken();
-			result = operator.eval(0.0, parseTerm());
+			result = new ExpOperatorNode(operator, new ExpConstantNode(0.0), parseTerm());
 
 			// parentheses
 		} else if (tokenIs("(")) {
@@ -333,30 +379,35 @@ public class ExpressionParser {
 			}
 
 			// number
-		} else if (isNumeric(current)) {
-			result = Double.parseDouble(current);
+		} else if (currentKind == ExpTokenKind.NUMBER) {
+			double number = tokens.getValue(pos);
 
 			if (functions.containsKey("number")) {
-				result = functions.get("number").eval(Arrays.asList(result));
+				number = functions.get("number").eval(number);
 			}
 
+			result = new ExpConstantNode(number);
 			nextToken();
 
 			// functions
 		} else if (function != null) {
-			List<Double> args = new ArrayList<>();
+			ExpNode[] args = new ExpNode[function.getArgNum()];
 			nextToken();
 
 			for (int i = 0; i < function.getArgNum(); i++) {
 				nextToken();
-				args.add(parseExp());
+				args[i] = parseExp();
 			}
-			result = function.eval(args);
+			result = new ExpFunctionNode(function, args);
 			nextToken();
 
 			// variables
 		} else if (variable != null) {
-			result = variable;
+			if (!slots.contains(current)) {
+				slots.add(current);
+			}
+
+			result = new ExpVariableNode(current, slots.indexOf(current));
 			nextToken();
 
 			// unknown
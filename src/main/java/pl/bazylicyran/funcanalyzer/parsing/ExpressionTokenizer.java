@@ -1,23 +1,44 @@
 package pl.bazylicyran.funcanalyzer.parsing;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Implements string tokenizer.
  * 
  * Breaks string into smaller elements: numbers, operators, functions and saves
- * it in the form of a list.
+ * it in the form of typed tokens. String is scanned once, every token is
+ * classified and numbers are parsed when the token ends.
  * 
  * @author Bazyli Cyran
  */
 public class ExpressionTokenizer {
 
+	/** Texts of single character tokens, shared between tokenizers. */
+	private static final String[] symbols = new String[128];
+
+	static {
+		for (char c = 0; c < symbols.length; c++) {
+			symbols[c] = String.valueOf(c).intern();
+		}
+	}
+
 	/** String to tokenize. */
 	private String string;
 
-	/** Final tokens list. */
-	private List<String> tokens = new LinkedList<>();
+	/** Final typed tokens. */
+	private ExpressionTokens tokens;
+
+	/** Position of first character of token currently being built. */
+	private int pendingStart;
+
+	/** Position after last character of token currently being built. */
+	private int pendingEnd;
+
+	/** Whether token currently being built contains ignored spaces. */
+	private boolean pendingSpaces;
+
+	/** Last character of token currently being built. */
+	private char last;
 
 	/**
 	 * Initializes variables, calls tokenize function.
@@ -26,6 +47,7 @@ public class ExpressionTokenizer {
 	 */
 	public ExpressionTokenizer(String string) {
 		this.string = string;
+		this.tokens = new ExpressionTokens(string.length() / 2 + 1);
 
 		tokenize();
 	}
@@ -36,6 +58,15 @@ public class ExpressionTokenizer {
 	 * @return The tokens list.
 	 */
 	public List<String> getTokens() {
+		return tokens.toStrings();
+	}
+
+	/**
+	 * Returns final typed tokens.
+	 * 
+	 * @return Typed tokens.
+	 */
+	public ExpressionTokens getTypedTokens() {
 		return tokens;
 	}
 
@@ -43,56 +74,109 @@ public class ExpressionTokenizer {
 	 * Tokenizes string.
 	 */
 	private void tokenize() {
+		boolean started = false;
+
 		for (int i = 0; i < string.length(); i++) {
 			char current = string.charAt(i);
-			char last = ' ';
-
-			if (i > 0) {
-				last = getLast().charAt(getLast().length() - 1);
-			}
 
-			if (string.charAt(i) == ' ') { // ignore spaces
+			if (current == ' ') { // ignore spaces
 				continue;
-			} else if (i > 0 && Character.isDigit(current) && (Character.isDigit(last) || last == '.')) {
-				appendToLast(current);
-			} else if (i > 0 && current == '.' && Character.isDigit(last)) {
-				appendToLast(current);
-			} else if (i > 0 && Character.isLetter(current) && Character.isLetter(last)) {
-				appendToLast(current);
-			} else if (i > 0 && Character.isLetter(current) && Character.isDigit(last)) {
-				addNew('*');
-				addNew(current);
+			} else if (started == false) {
+				addNew(i);
+				started = true;
+			} else if (isDigit(current) && (isDigit(last) || last == '.')) {
+				appendToLast(i);
+			} else if (current == '.' && isDigit(last)) {
+				appendToLast(i);
+			} else if (isLetter(current) && isLetter(last)) {
+				appendToLast(i);
+			} else if (isLetter(current) && isDigit(last)) {
+				finishPending();
+				tokens.add(ExpTokenKind.SYMBOL, symbols['*'], 0, i);
+				addNew(i);
 			} else {
-				addNew(current);
+				finishPending();
+				addNew(i);
 			}
 		}
+
+		if (started == true) {
+			finishPending();
+		}
+	}
+
+	/**
+	 * Appends char at given position to last token.
+	 * 
+	 * @param index Position of the char.
+	 */
+	private void appendToLast(int index) {
+		pendingSpaces |= index != pendingEnd;
+		pendingEnd = index + 1;
+		last = string.charAt(index);
 	}
 
 	/**
-	 * Returns value of last token from token list.
+	 * Starts new token with char at given position.
 	 * 
-	 * @return The last token.
+	 * @param index Position of the char.
+	 */
+	private void addNew(int index) {
+		pendingStart = index;
+		pendingEnd = index + 1;
+		pendingSpaces = false;
+		last = string.charAt(index);
+	}
+
+	/**
+	 * Classifies token currently being built and adds it to tokens. Kind of
+	 * token is determined by its first character, since only characters of the
+	 * same kind are appended.
 	 */
-	private String getLast() {
-		return tokens.get(tokens.size() - 1);
+	private void finishPending() {
+		char first = string.charAt(pendingStart);
+		String text;
+
+		if (pendingEnd - pendingStart == 1 && first < symbols.length) {
+			text = symbols[first];
+		} else if (pendingSpaces == true) {
+			text = string.substring(pendingStart, pendingEnd).replace(" ", "");
+		} else {
+			text = string.substring(pendingStart, pendingEnd);
+		}
+
+		if (isLetter(first)) {
+			tokens.add(ExpTokenKind.NAME, text, 0, pendingStart);
+		} else {
+			tokens.add(text, pendingStart);
+		}
 	}
 
 	/**
-	 * Appends given char to last token.
+	 * Checks if given char is a digit, same as Character.isDigit but with fast
+	 * path for ASCII characters.
 	 * 
-	 * @param val The char to append.
+	 * @param c Char to check.
+	 * @return True if char is a digit.
 	 */
-	private void appendToLast(char val) {
-		tokens.set(tokens.size() - 1, getLast() + val);
+	private static boolean isDigit(char c) {
+		return c < 128 ? c >= '0' && c <= '9' : Character.isDigit(c);
 	}
 
 	/**
-	 * Adds char as new token to list.
+	 * Checks if given char is a letter, same as Character.isLetter but with
+	 * fast path for ASCII characters.
 	 * 
-	 * @param val The char to add.
+	 * @param c Char to check.
+	 * @return True if char is a letter.
 	 */
-	private void addNew(char val) {
-		tokens.add(String.valueOf(val));
+	private static boolean isLetter(char c) {
+		if (c < 128) {
+			char lower = (char) (c | 0x20);
+			return lower >= 'a' && lower <= 'z';
+		}
+
+		return Character.isLetter(c);
 	}
 
 }
@@ -0,0 +1,267 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of typed expression tokens stored in parallel arrays.
+ * 
+ * Every token has a kind, text, position in source string and, for numbers,
+ * parsed value, so parser doesn't have to classify token strings again.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionTokens {
+
+	/** Maximal number of digits of a number which is parsed without rounding. */
+	private static final int maxExactDigits = 15;
+
+	/** Powers of ten exactly representable as double. */
+	private static final double[] powersOfTen = new double[maxExactDigits + 1];
+
+	static {
+		powersOfTen[0] = 1;
+
+		for (int i = 1; i < powersOfTen.length; i++) {
+			powersOfTen[i] = powersOfTen[i - 1] * 10;
+		}
+	}
+
+	/** All token kinds, indexed by ordinal. */
+	private static final ExpTokenKind[] kindValues = ExpTokenKind.values();
+
+	/** Ordinals of token kinds. */
+	private byte[] kinds;
+
+	/** Texts of tokens. */
+	private String[] texts;
+
+	/** Values of number tokens. */
+	private double[] values;
+
+	/** Positions of tokens in source string. */
+	private int[] offsets;
+
+	/** Number of tokens. */
+	private int size = 0;
+
+	/**
+	 * Creates empty list with space for given number of tokens.
+	 * 
+	 * @param capacity Initial number of tokens which fit in arrays.
+	 */
+	public ExpressionTokens(int capacity) {
+		capacity = Math.max(capacity, 4);
+		kinds = new byte[capacity];
+		texts = new String[capacity];
+		values = new double[capacity];
+		offsets = new int[capacity];
+	}
+
+	/**
+	 * Creates typed tokens from list of token strings.
+	 * 
+	 * @param tokens Token strings.
+	 * @return Typed tokens, offsets are token indexes.
+	 */
+	public static ExpressionTokens of(List<String> tokens) {
+		ExpressionTokens result = new ExpressionTokens(tokens.size());
+		int i = 0;
+
+		for (String token : tokens) {
+			result.add(token, i++);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds token, its kind and value are determined from text.
+	 * 
+	 * @param text Token text.
+	 * @param offset Position in source string.
+	 */
+	void add(String text, int offset) {
+		ExpTokenKind kind;
+		double value = parseNumber(text);
+
+		if (!Double.isNaN(value)) {
+			kind = ExpTokenKind.NUMBER;
+		} else if (isName(text)) {
+			kind = ExpTokenKind.NAME;
+		} else if (text.length() == 1) {
+			kind = ExpTokenKind.SYMBOL;
+		} else {
+			kind = ExpTokenKind.INVALID;
+		}
+
+		if (kind != ExpTokenKind.NUMBER) {
+			value = 0;
+		}
+
+		add(kind, text, value, offset);
+	}
+
+	/**
+	 * Adds token.
+	 * 
+	 * @param kind Token kind.
+	 * @param text Token text.
+	 * @param value Value of number token.
+	 * @param offset Position in source string.
+	 */
+	void add(ExpTokenKind kind, String text, double value, int offset) {
+		if (size == kinds.length) {
+			int capacity = kinds.length * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			values = Arrays.copyOf(values, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+		}
+
+		kinds[size] = (byte) kind.ordinal();
+		texts[size] = text;
+		values[size] = value;
+		offsets[size] = offset;
+		size++;
+	}
+
+	/**
+	 * Returns number of tokens.
+	 * 
+	 * @return Number of tokens.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns kind of token with given index.
+	 * 
+	 * @param index Token index.
+	 * @return Token kind.
+	 */
+	public ExpTokenKind getKind(int index) {
+		return kindValues[kinds[index]];
+	}
+
+	/**
+	 * Returns text of token with given index.
+	 * 
+	 * @param index Token index.
+	 * @return Token text.
+	 */
+	public String getText(int index) {
+		return texts[index];
+	}
+
+	/**
+	 * Returns value of number token with given index.
+	 * 
+	 * @param index Token index.
+	 * @return Number value, 0 for other tokens.
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns position of token with given index in source string.
+	 * 
+	 * @param index Token index.
+	 * @return Position of first token character.
+	 */
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Returns texts of all tokens.
+	 * 
+	 * @return List of token strings.
+	 */
+	public List<String> toStrings() {
+		return new ArrayList<>(Arrays.asList(texts).subList(0, size));
+	}
+
+	/**
+	 * Parses number: digits, optionally followed by dot and digits, optionally
+	 * preceded by minus. Numbers with up to 15 digits are divided by exact
+	 * power of ten, which gives same, correctly rounded, result as
+	 * Double.parseDouble.
+	 * 
+	 * @param text Text to parse.
+	 * @return Value of number or NaN if text is not a number.
+	 */
+	private static double parseNumber(String text) {
+		int i = text.startsWith("-") ? 1 : 0;
+		int start = i;
+		long mantissa = 0;
+
+		while (i < text.length() && isAsciiDigit(text.charAt(i))) {
+			mantissa = mantissa * 10 + (text.charAt(i++) - '0');
+		}
+
+		int digits = i - start;
+
+		if (digits == 0) {
+			return Double.NaN;
+		}
+
+		int scale = 0;
+
+		if (i < text.length()) {
+			if (text.charAt(i++) != '.') {
+				return Double.NaN;
+			}
+
+			int fractionStart = i;
+
+			while (i < text.length() && isAsciiDigit(text.charAt(i))) {
+				mantissa = mantissa * 10 + (text.charAt(i++) - '0');
+			}
+
+			scale = i - fractionStart;
+
+			if (scale == 0 || i < text.length()) {
+				return Double.NaN;
+			}
+		}
+
+		if (digits + scale > maxExactDigits) {
+			return Double.parseDouble(text);
+		}
+
+		double value = mantissa / powersOfTen[scale];
+
+		return start == 1 ? -value : value;
+	}
+
+	/**
+	 * Checks if given text consists of letters only.
+	 * 
+	 * @param text Text to check.
+	 * @return True if text is a name.
+	 */
+	private static boolean isName(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isLetter(text.charAt(i))) {
+				return false;
+			}
+		}
+
+		return !text.isEmpty();
+	}
+
+	/**
+	 * Checks if character is one of 0-9.
+	 * 
+	 * @param c Character.
+	 * @return True if character is ASCII digit.
+	 */
+	private static boolean isAsciiDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
@@ -0,0 +1,549 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+/**
+ * Closed interval of real numbers used for interval arithmetic evaluation.
+ * 
+ * Evaluating expression for intervals of variables gives interval containing
+ * every value the expression takes for variables in these intervals. Bounds
+ * are rounded outwards, so the result is guaranteed despite rounding errors,
+ * it may only be wider than the exact range.
+ * 
+ * Besides bounds interval carries two flags about the evaluated expression:
+ * whether it is defined for all variable values and whether it is continuous,
+ * i.e. it has no poles nor jumps where it is defined. Empty interval means the
+ * expression is not defined anywhere. Flags of expressions using functions
+ * which can't be evaluated for intervals are unknown, such expressions are
+ * treated as neither defined nor continuous, but they may be both.
+ * 
+ * Operations on intervals are implemented as static methods for all built-in
+ * operators and functions.
+ * 
+ * @author Bazyli Cyran
+ */
+public final class Interval {
+
+	/** Interval without any values. */
+	public static final Interval EMPTY = new Interval(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, false,
+			true);
+
+	/** Full circle. */
+	private static final double twoPi = 2 * Math.PI;
+
+	/** Relative tolerance of finding extremes and poles of periodic functions. */
+	private static final double periodTolerance = 1e-9;
+
+	/** Lower bound. */
+	private final double low;
+
+	/** Upper bound. */
+	private final double high;
+
+	/** Whether expression is defined for all values. */
+	private final boolean defined;
+
+	/** Whether expression is continuous where it is defined. */
+	private final boolean continuous;
+
+	/** Whether bounds and flags are known, not just assumed. */
+	private final boolean known;
+
+	/**
+	 * Initializes interval of defined and continuous expression.
+	 * 
+	 * @param low Lower bound.
+	 * @param high Upper bound.
+	 */
+	public Interval(double low, double high) {
+		this(low, high, true, true);
+	}
+
+	/**
+	 * Initializes interval.
+	 * 
+	 * @param low Lower bound.
+	 * @param high Upper bound.
+	 * @param defined Whether expression is defined for all values.
+	 * @param continuous Whether expression is continuous where it is defined.
+	 */
+	public Interval(double low, double high, boolean defined, boolean continuous) {
+		this(low, high, defined, continuous, true);
+	}
+
+	/**
+	 * Initializes interval.
+	 * 
+	 * @param low Lower bound.
+	 * @param high Upper bound.
+	 * @param defined Whether expression is defined for all values.
+	 * @param continuous Whether expression is continuous where it is defined.
+	 * @param known Whether bounds and flags are known.
+	 */
+	private Interval(double low, double high, boolean defined, boolean continuous, boolean known) {
+		this.low = low;
+		this.high = high;
+		this.defined = defined;
+		this.continuous = continuous;
+		this.known = known;
+	}
+
+	/**
+	 * Returns interval containing single value.
+	 * 
+	 * @param value Value.
+	 * @return Interval or EMPTY if value is NaN.
+	 */
+	public static Interval of(double value) {
+		return Double.isNaN(value) ? EMPTY : new Interval(value, value);
+	}
+
+	/**
+	 * Returns lower bound.
+	 * 
+	 * @return Lower bound.
+	 */
+	public double getLow() {
+		return low;
+	}
+
+	/**
+	 * Returns upper bound.
+	 * 
+	 * @return Upper bound.
+	 */
+	public double getHigh() {
+		return high;
+	}
+
+	/**
+	 * Checks if interval has no values.
+	 * 
+	 * @return True if interval is empty.
+	 */
+	public boolean isEmpty() {
+		return low > high;
+	}
+
+	/**
+	 * Checks if expression is defined for all values.
+	 * 
+	 * @return True if expression is defined everywhere.
+	 */
+	public boolean isDefined() {
+		return defined;
+	}
+
+	/**
+	 * Checks if expression is continuous where it is defined.
+	 * 
+	 * @return True if expression has no poles nor jumps.
+	 */
+	public boolean isContinuous() {
+		return continuous;
+	}
+
+	/**
+	 * Checks if bounds and flags are known. They are unknown if expression
+	 * uses function which can't be evaluated for intervals, it may then
+	 * still be defined and continuous.
+	 * 
+	 * @return True if bounds and flags are known.
+	 */
+	public boolean isKnown() {
+		return known;
+	}
+
+	/**
+	 * Checks if interval contains given value.
+	 * 
+	 * @param value Value.
+	 * @return True if value lies between bounds.
+	 */
+	public boolean contains(double value) {
+		return low <= value && value <= high;
+	}
+
+	@Override
+	public String toString() {
+		return isEmpty() ? "[]" : "[" + low + ", " + high + "]";
+	}
+
+	/**
+	 * Returns interval with values unknown, used by operators and functions
+	 * which can't be evaluated for intervals.
+	 * 
+	 * @param args Arguments.
+	 * @return Unknown interval of all numbers or EMPTY if any argument is
+	 *         empty.
+	 */
+	public static Interval unknown(Interval... args) {
+		for (Interval arg : args) {
+			if (arg.isEmpty()) {
+				return EMPTY;
+			}
+		}
+
+		return new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false, false, false);
+	}
+
+	/**
+	 * Adds intervals.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Sum.
+	 */
+	public static Interval add(Interval left, Interval right) {
+		if (left.isEmpty() || right.isEmpty()) {
+			return EMPTY;
+		}
+
+		return result(left.low + right.low, left.high + right.high, left, right, true, true);
+	}
+
+	/**
+	 * Subtracts intervals.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Difference.
+	 */
+	public static Interval subtract(Interval left, Interval right) {
+		if (left.isEmpty() || right.isEmpty()) {
+			return EMPTY;
+		}
+
+		return result(left.low - right.high, left.high - right.low, left, right, true, true);
+	}
+
+	/**
+	 * Multiplies intervals.
+	 * 
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Product.
+	 */
+	public static Interval multiply(Interval left, Interval right) {
+		if (left.isEmpty() || right.isEmpty()) {
+			return EMPTY;
+		}
+
+		double a = product(left.low, right.low);
+		double b = product(left.low, right.high);
+		double c = product(left.high, right.low);
+		double d = product(left.high, right.high);
+
+		return result(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), left,
+				right, true, true);
+	}
+
+	/**
+	 * Divides intervals. Division by zero is undefined, so the result is not
+	 * defined if divisor contains zero and it is not continuous, because the
+	 * quotient has a pole there.
+	 * 
+	 * @param left Dividend.
+	 * @param right Divisor.
+	 * @return Quotient.
+	 */
+	public static Interval divide(Interval left, Interval right) {
+		if (left.isEmpty() || right.isEmpty() || (right.low == 0 && right.high == 0)) {
+			return EMPTY;
+		}
+
+		if (right.low > 0 || right.high < 0) {
+			double a = left.low / right.low;
+			double b = left.low / right.high;
+			double c = left.high / right.low;
+			double d = left.high / right.high;
+
+			return result(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)),
+					left, right, true, true);
+		}
+
+		double low = Double.NEGATIVE_INFINITY;
+		double high = Double.POSITIVE_INFINITY;
+
+		// divisor touches zero only at one end, so the quotient has one sign
+		if (right.low == 0 && left.low >= 0) {
+			low = left.low / right.high;
+		} else if (right.low == 0 && left.high <= 0) {
+			high = left.high / right.high;
+		} else if (right.high == 0 && left.low >= 0) {
+			high = left.low / right.low;
+		} else if (right.high == 0 && left.high <= 0) {
+			low = left.high / right.low;
+		}
+
+		return result(low, high, left, right, false, false);
+	}
+
+	/**
+	 * Raises left interval to the power of right interval, with the same
+	 * semantics as Math.pow: negative base with non-integer exponent is
+	 * undefined, zero to negative power is a pole.
+	 * 
+	 * @param left Base.
+	 * @param right Exponent.
+	 * @return Power.
+	 */
+	public static Interval power(Interval left, Interval right) {
+		if (left.isEmpty() || right.isEmpty()) {
+			return EMPTY;
+		}
+
+		if (right.low == right.high) {
+			return power(left, right.low, right);
+		}
+
+		if (left.low < 0) {
+			return unknown(left, right);
+		}
+
+		// positive base, power is monotonic in both arguments
+		double a = Math.pow(left.low, right.low);
+		double b = Math.pow(left.low, right.high);
+		double c = Math.pow(left.high, right.low);
+		double d = Math.pow(left.high, right.high);
+
+		// 0^y jumps at y = 0 and has a pole for y < 0
+		boolean continuous = left.low > 0 || right.low > 0;
+
+		return result(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), left,
+				right, true, continuous);
+	}
+
+	/**
+	 * Raises interval to constant power.
+	 * 
+	 * @param left Base.
+	 * @param n Exponent.
+	 * @param right Interval of exponent.
+	 * @return Power.
+	 */
+	private static Interval power(Interval left, double n, Interval right) {
+		if (n == 0) {
+			return result(1, 1, left, right, true, true);
+		}
+
+		double low = Math.pow(left.low, n);
+		double high = Math.pow(left.high, n);
+
+		if (n == Math.rint(n) && Math.abs(n) < 0x1p53) {
+			boolean even = n % 2 == 0;
+			boolean containsZero = left.low <= 0 && left.high >= 0;
+
+			if (n > 0 && even == true && containsZero == true) {
+				return result(0, Math.max(low, high), left, right, true, true);
+			} else if (n > 0 && even == true) {
+				return result(Math.min(low, high), Math.max(low, high), left, right, true, true);
+			} else if (n > 0) {
+				return result(low, high, left, right, true, true);
+			} else if (containsZero == true && even == true) {
+				return result(Math.pow(Math.max(-left.low, left.high), n), Double.POSITIVE_INFINITY, left, right,
+						true, false);
+			} else if (containsZero == true) {
+				return result(Double.NaN, Double.NaN, left, right, true, false);
+			} else if (even == true) {
+				return result(Math.min(low, high), Math.max(low, high), left, right, true, true);
+			} else {
+				return result(high, low, left, right, true, true);
+			}
+		}
+
+		// non-integer power of negative number is undefined
+		if (left.high < 0) {
+			return EMPTY;
+		}
+
+		boolean defined = left.low >= 0;
+		low = Math.pow(Math.max(left.low, 0), n);
+
+		if (n > 0) {
+			return result(low, high, left, right, defined, true);
+		}
+
+		return result(high, low, left, right, defined, left.low > 0);
+	}
+
+	/**
+	 * Calculates square root of interval. Negative numbers are undefined.
+	 * 
+	 * @param arg Argument.
+	 * @return Square root.
+	 */
+	public static Interval sqrt(Interval arg) {
+		if (arg.isEmpty() || arg.high < 0) {
+			return EMPTY;
+		}
+
+		Interval result = result(Math.sqrt(Math.max(arg.low, 0)), Math.sqrt(arg.high), arg, arg, arg.low >= 0, true);
+
+		return result.low < 0 ? new Interval(0, result.high, result.defined, result.continuous, result.known)
+				: result;
+	}
+
+	/**
+	 * Calculates natural logarithm of interval. Negative numbers are
+	 * undefined.
+	 * 
+	 * @param arg Argument.
+	 * @return Natural logarithm.
+	 */
+	public static Interval ln(Interval arg) {
+		if (arg.isEmpty() || arg.high < 0) {
+			return EMPTY;
+		}
+
+		return result(Math.log(Math.max(arg.low, 0)), Math.log(arg.high), arg, arg, arg.low >= 0, true);
+	}
+
+	/**
+	 * Calculates logarithm of interval with given base. Bases not greater
+	 * than one and negative numbers are undefined.
+	 * 
+	 * @param base Logarithm base.
+	 * @param arg Logarithmized number.
+	 * @return Logarithm.
+	 */
+	public static Interval log(Interval base, Interval arg) {
+		if (base.isEmpty() || arg.isEmpty() || base.high <= 1 || arg.high < 0) {
+			return EMPTY;
+		}
+
+		double low = base.low > 1 ? Math.nextDown(Math.log(base.low)) : 0;
+		Interval divisor = new Interval(Math.max(low, 0), Math.nextUp(Math.log(base.high)),
+				base.defined && base.low > 1, base.continuous, base.known);
+
+		return divide(ln(arg), divisor);
+	}
+
+	/**
+	 * Calculates sine of interval.
+	 * 
+	 * @param arg Argument.
+	 * @return Sine.
+	 */
+	public static Interval sin(Interval arg) {
+		return periodic(arg, Math.sin(arg.low), Math.sin(arg.high), Math.PI / 2, 3 * Math.PI / 2);
+	}
+
+	/**
+	 * Calculates cosine of interval.
+	 * 
+	 * @param arg Argument.
+	 * @return Cosine.
+	 */
+	public static Interval cos(Interval arg) {
+		return periodic(arg, Math.cos(arg.low), Math.cos(arg.high), 0, Math.PI);
+	}
+
+	/**
+	 * Calculates tangent of interval. Tangent has poles at pi / 2 + k * pi.
+	 * 
+	 * @param arg Argument.
+	 * @return Tangent.
+	 */
+	public static Interval tan(Interval arg) {
+		if (arg.isEmpty()) {
+			return EMPTY;
+		}
+
+		if (arg.high - arg.low >= Math.PI || containsPeriodic(arg, Math.PI / 2, Math.PI)) {
+			return new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, arg.defined, false, arg.known);
+		}
+
+		return result(Math.tan(arg.low), Math.tan(arg.high), arg, arg, true, true);
+	}
+
+	/**
+	 * Calculates absolute value of interval.
+	 * 
+	 * @param arg Argument.
+	 * @return Absolute value.
+	 */
+	public static Interval abs(Interval arg) {
+		if (arg.isEmpty() || arg.low >= 0) {
+			return arg;
+		} else if (arg.high <= 0) {
+			return new Interval(-arg.high, -arg.low, arg.defined, arg.continuous, arg.known);
+		}
+
+		return new Interval(0, Math.max(-arg.low, arg.high), arg.defined, arg.continuous, arg.known);
+	}
+
+	/**
+	 * Calculates range of sine or cosine from values at the ends of interval
+	 * and positions of maxima and minima.
+	 * 
+	 * @param arg Argument.
+	 * @param low Value at lower bound.
+	 * @param high Value at upper bound.
+	 * @param maximum First non-negative argument of maximum.
+	 * @param minimum First non-negative argument of minimum.
+	 * @return Value of function.
+	 */
+	private static Interval periodic(Interval arg, double low, double high, double maximum, double minimum) {
+		if (arg.isEmpty()) {
+			return EMPTY;
+		}
+
+		if (arg.high - arg.low >= twoPi || Double.isNaN(low) || Double.isNaN(high)) {
+			return new Interval(-1, 1, arg.defined, arg.continuous, arg.known);
+		}
+
+		double min = containsPeriodic(arg, minimum, twoPi) ? -1 : Math.max(-1, Math.nextDown(Math.min(low, high)));
+		double max = containsPeriodic(arg, maximum, twoPi) ? 1 : Math.min(1, Math.nextUp(Math.max(low, high)));
+
+		return new Interval(min, max, arg.defined, arg.continuous, arg.known);
+	}
+
+	/**
+	 * Checks if interval contains (or nearly contains) any point of given
+	 * offset plus multiple of period.
+	 * 
+	 * @param arg Interval.
+	 * @param offset First point.
+	 * @param period Distance between points.
+	 * @return True if interval contains any point.
+	 */
+	private static boolean containsPeriodic(Interval arg, double offset, double period) {
+		double tolerance = periodTolerance * Math.max(1, Math.max(Math.abs(arg.low), Math.abs(arg.high)));
+		double k = Math.ceil((arg.low - tolerance - offset) / period);
+
+		return offset + k * period <= arg.high + tolerance;
+	}
+
+	/**
+	 * Multiplies bounds, zero times infinity is zero.
+	 * 
+	 * @param left Left bound.
+	 * @param right Right bound.
+	 * @return Product.
+	 */
+	private static double product(double left, double right) {
+		return left == 0 || right == 0 ? 0 : left * right;
+	}
+
+	/**
+	 * Creates result of operation with bounds rounded outwards and flags
+	 * combined with flags of arguments. Result is known if both arguments
+	 * are.
+	 * 
+	 * @param low Computed lower bound, NaN if unknown.
+	 * @param high Computed upper bound, NaN if unknown.
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @param defined Whether operation is defined for all values.
+	 * @param continuous Whether operation is continuous.
+	 * @return Interval.
+	 */
+	private static Interval result(double low, double high, Interval left, Interval right, boolean defined,
+			boolean continuous) {
+		low = Double.isNaN(low) ? Double.NEGATIVE_INFINITY : Math.nextDown(low);
+		high = Double.isNaN(high) ? Double.POSITIVE_INFINITY : Math.nextUp(high);
+
+		return new Interval(low, high, defined && left.defined && right.defined,
+				continuous && left.continuous && right.continuous, left.known && right.known);
+	}
+
+}
@@ -0,0 +1,173 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that expressions evaluated in blocks give exactly the same values as
+ * evaluated point by point, and that derivatives evaluated with dual numbers
+ * match symbolic derivatives.
+ * 
+ * @author Bazyli Cyran
+ */
+public class EvaluationContextTest {
+
+	/** Relative tolerance of derivatives computed in different ways. */
+	private static final double derivativeTolerance = 1e-9;
+
+	/** Expressions covering all built-ins and undefined points. */
+	static final String[] expressions = { "x", "-x", "2x+1", "x^2-3x+2", "x^3/(x-1)", "1/x", "1/(x^2-4)",
+			"sqrt(x)", "sqrt(1-x^2)", "ln(x)", "ln(abs(x))", "log(2,x)", "log(x,8)", "sin(x)", "cos(x)/x",
+			"tan(x)", "abs(sin(x))", "x^0.5", "(-8)^(1/3)", "x^x", "2^x", "sin(1/x)", "sqrt(x)+sqrt(-x)",
+			"ln(sin(x))*cos(x)", "3", "-(x-2)*(x+2)" };
+
+	/**
+	 * Returns arguments: a fine grid with exact special points, infinities
+	 * and NaN.
+	 * 
+	 * @return Values of x.
+	 */
+	static double[] arguments() {
+		double[] special = { 0, -0.0, 1, -1, 2, -2, 4, Math.PI / 2, -Math.PI / 2, Math.PI, 1e-300, -1e-300, 1e300,
+				Double.MIN_VALUE, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN };
+		int grid = 2000;
+		double[] xs = new double[grid + special.length];
+
+		for (int i = 0; i < grid; i++) {
+			xs[i] = -10 + i * 0.01;
+		}
+
+		System.arraycopy(special, 0, xs, grid, special.length);
+
+		return xs;
+	}
+
+	/**
+	 * Evaluates expression point by point, undefined values are NaN.
+	 * 
+	 * @param context Evaluation context.
+	 * @param x Value of x.
+	 * @return Value of expression.
+	 */
+	private static double value(EvaluationContext context, double x) {
+		try {
+			return context.getValue(x);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Checks if argument is neither extremely small nor extremely big.
+	 * 
+	 * @param x Value of x.
+	 * @return True if x is zero or its magnitude is ordinary.
+	 */
+	private static boolean ordinary(double x) {
+		return x == 0 || (Math.abs(x) >= 1e-100 && Math.abs(x) <= 1e100);
+	}
+
+	/**
+	 * Compares values evaluated in blocks with values evaluated point by
+	 * point.
+	 * 
+	 * @param context Evaluation context.
+	 * @param from Index of first value.
+	 * @param to Index after last value.
+	 */
+	private static void assertBlocksMatch(EvaluationContext context, int from, int to) {
+		double[] xs = arguments();
+		double[] ys = new double[xs.length];
+		context.getValues(xs, ys, from, to);
+
+		for (int i = from; i < to; i++) {
+			String message = context.getExpression().getExpression() + " at " + xs[i];
+			double expected = value(context, xs[i]);
+			assertEquals(message, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(ys[i]));
+		}
+	}
+
+	@Test
+	public void blocksMatchPoints() {
+		for (String expression : expressions) {
+			EvaluationContext context = CompiledExpression.compile(expression).newContext();
+			assertBlocksMatch(context, 0, arguments().length);
+		}
+	}
+
+	@Test
+	public void blocksMatchPointsInPartialRanges() {
+		for (String expression : expressions) {
+			EvaluationContext context = CompiledExpression.compile(expression).newContext();
+			assertBlocksMatch(context, 7, 7 + 300);
+			assertBlocksMatch(context, 1001, 1001 + 33);
+			assertBlocksMatch(context, 3, 20);
+		}
+	}
+
+	@Test
+	public void dualsMatchSymbolicDerivatives() {
+		double[] xs = arguments();
+		double[] dual = new double[2];
+
+		for (String expression : expressions) {
+			CompiledExpression compiled = CompiledExpression.compile(expression);
+			EvaluationContext context = compiled.newContext();
+			EvaluationContext symbolic = compiled.derivative().newContext();
+			int compared = 0;
+
+			for (double x : xs) {
+				context.getDual(x, dual);
+				double expected = value(symbolic, x);
+				String message = expression + "' at " + x;
+
+				assertEquals(message, Double.doubleToRawLongBits(value(context, x)),
+						Double.doubleToRawLongBits(dual[0]));
+
+				// dual derivatives may be defined where symbolic ones divide by
+				// zero, and the two forms overflow differently for extreme x
+				if (Double.isFinite(expected) && Double.isFinite(dual[0]) && ordinary(x)) {
+					assertEquals(message, expected, dual[1], derivativeTolerance * Math.max(1, Math.abs(expected)));
+					compared++;
+				}
+			}
+
+			// only expressions which are nowhere differentiable have nothing to compare
+			assertTrue(expression, compared > 0 || expression.equals("(-8)^(1/3)")
+					|| expression.equals("sqrt(x)+sqrt(-x)"));
+		}
+	}
+
+	@Test
+	public void blockDualsMatchPointDuals() {
+		double[] xs = arguments();
+		double[] ys = new double[xs.length];
+		double[] derivatives = new double[xs.length];
+		double[] dual = new double[2];
+
+		for (String expression : expressions) {
+			EvaluationContext context = CompiledExpression.compile(expression).newContext();
+			context.getDuals(xs, ys, derivatives, 0, xs.length);
+
+			for (int i = 0; i < xs.length; i++) {
+				String message = expression + " at " + xs[i];
+				context.getDual(xs[i], dual);
+				assertEquals(message, Double.doubleToRawLongBits(dual[0]), Double.doubleToRawLongBits(ys[i]));
+				assertEquals(message, Double.doubleToRawLongBits(dual[1]), Double.doubleToRawLongBits(derivatives[i]));
+			}
+		}
+	}
+
+	@Test
+	public void blocksMatchPointsWithVariables() {
+		EvaluationContext context = CompiledExpression.compile("a*sin(x)+b/x", "a", "b").newContext();
+		assertBlocksMatch(context, 0, arguments().length);
+
+		context.setVar("a", 2.5);
+		context.setVar("b", -3);
+		assertBlocksMatch(context, 0, arguments().length);
+	}
+
+}
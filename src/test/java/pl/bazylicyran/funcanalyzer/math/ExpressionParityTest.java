@@ -0,0 +1,126 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that expressions give the same values evaluated as unoptimized tree,
+ * as optimized tree and as bytecode. Optimization may only change the sign of
+ * zero, as documented in ExpressionOptimizer.
+ * 
+ * @author Bazyli Cyran
+ */
+public class ExpressionParityTest {
+
+	/** Expressions simplified by the optimizer. */
+	private static final String[] optimized = { "x+0", "0+x", "x-0", "--x", "-(0-x)", "-(-x)", "x*1", "1*x", "x/1",
+			"x^1", "x^2", "abs(abs(x))", "abs(-x)", "2*pi*x", "sin(e*x)+2^3", "ln(0)+x", "1/0*x" };
+
+	/**
+	 * Creates expression evaluated in given way.
+	 * 
+	 * @param expression Function of x.
+	 * @param optimize Whether tree is simplified.
+	 * @param bytecode Whether expression is compiled to bytecode.
+	 * @return Function expression.
+	 */
+	private static FunctionExpression function(String expression, boolean optimize, boolean bytecode) {
+		FunctionExpression function = new FunctionExpression(expression);
+		function.setOptimize(optimize);
+		function.setBytecode(bytecode);
+
+		return function;
+	}
+
+	/**
+	 * Evaluates expression point by point, undefined values are NaN.
+	 * 
+	 * @param function Function expression.
+	 * @param x Value of x.
+	 * @return Value of expression.
+	 */
+	private static double value(FunctionExpression function, double x) {
+		try {
+			return function.getValue(x);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Compares values of expression evaluated in all ways with unoptimized
+	 * tree.
+	 * 
+	 * @param expression Function of x.
+	 */
+	private static void assertParity(String expression) {
+		FunctionExpression tree = function(expression, false, false);
+		FunctionExpression bytecode = function(expression, false, true);
+		FunctionExpression optimizedTree = function(expression, true, false);
+		FunctionExpression optimizedBytecode = function(expression, true, true);
+
+		for (double x : EvaluationContextTest.arguments()) {
+			String message = expression + " at " + x;
+			double expected = value(tree, x);
+			double optimizedValue = value(optimizedTree, x);
+
+			assertEquals(message, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value(bytecode, x)));
+			assertEquals(message, Double.doubleToRawLongBits(optimizedValue),
+					Double.doubleToRawLongBits(value(optimizedBytecode, x)));
+
+			// only the sign of zero may differ
+			if (expected == 0) {
+				assertTrue(message, optimizedValue == 0);
+			} else {
+				assertEquals(message, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(optimizedValue));
+			}
+		}
+
+		assertTrue(expression, bytecode.isBytecode() == true && optimizedBytecode.isBytecode() == true);
+	}
+
+	@Test
+	public void allWaysMatchTree() {
+		for (String expression : EvaluationContextTest.expressions) {
+			assertParity(expression);
+		}
+	}
+
+	@Test
+	public void optimizedExpressionsMatchTree() {
+		for (String expression : optimized) {
+			assertParity(expression);
+		}
+	}
+
+	@Test
+	public void optimizationChangesSignOfZero() {
+		for (String expression : new String[] { "--x", "0+x", "x+0", "-(0-x)", "-(-x)" }) {
+			for (boolean bytecode : new boolean[] { false, true }) {
+				String message = expression + (bytecode == true ? " as bytecode" : " as tree");
+
+				// -0 + 0, 0 + -0 and 0 - -0 are 0, removed operations leave x itself
+				assertEquals(message, Double.doubleToRawLongBits(0.0),
+						Double.doubleToRawLongBits(function(expression, false, bytecode).getValue(-0.0)));
+				assertEquals(message, Double.doubleToRawLongBits(-0.0),
+						Double.doubleToRawLongBits(function(expression, true, bytecode).getValue(-0.0)));
+			}
+		}
+	}
+
+	@Test
+	public void otherIdentitiesKeepSignOfZero() {
+		for (String expression : new String[] { "x-0", "x*1", "1*x", "x/1", "x^1" }) {
+			for (boolean optimize : new boolean[] { false, true }) {
+				for (boolean bytecode : new boolean[] { false, true }) {
+					String message = expression + " at -0";
+					assertEquals(message, Double.doubleToRawLongBits(-0.0),
+							Double.doubleToRawLongBits(function(expression, optimize, bytecode).getValue(-0.0)));
+				}
+			}
+		}
+	}
+
+}
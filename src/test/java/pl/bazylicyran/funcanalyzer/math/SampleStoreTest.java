@@ -0,0 +1,148 @@
+package pl.bazylicyran.funcanalyzer.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that binary files written by SampleExporter are read back by
+ * SampleStore with the same grid and exactly the same values.
+ * 
+ * @author Bazyli Cyran
+ */
+public class SampleStoreTest {
+
+	/** Folder of written files, deleted after every test. */
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	/** Function with undefined points and a pole. */
+	private static final String function = "sqrt(x+2)/x";
+
+	/** Start of interval, not a grid point. */
+	private static final double intervalStart = -3.0005;
+
+	/** End of interval, a grid point. */
+	private static final double intervalEnd = 7;
+
+	/** Distance between points. */
+	private static final double resolution = 0.001;
+
+	/**
+	 * Evaluates function point by point, undefined values are NaN.
+	 * 
+	 * @param context Evaluation context.
+	 * @param x Value of x.
+	 * @return Value of function.
+	 */
+	private static double value(EvaluationContext context, double x) {
+		try {
+			return context.getValue(x);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Compares header and values of store with exported grid and evaluated
+	 * values.
+	 * 
+	 * @param store Store to check.
+	 * @param exporter Exporter of the same function and interval.
+	 */
+	private static void assertStoreMatches(SampleStore store, SampleExporter exporter) {
+		EvaluationContext context = CompiledExpression.compile(function).newContext();
+
+		assertEquals(function, store.getFunction());
+		assertEquals(resolution, store.getResolution(), 0);
+		assertEquals(exporter.getCount(), store.getCount());
+		assertEquals(-3000, store.getFirst());
+		assertEquals(10001, store.getCount());
+
+		for (long i = 0; i < store.getCount(); i++) {
+			double x = (store.getFirst() + i) * resolution;
+			assertEquals(x, store.getX(i), 0);
+			assertEquals("value at " + x, Double.doubleToLongBits(value(context, x)),
+					Double.doubleToLongBits(store.get(i)));
+		}
+	}
+
+	@Test
+	public void exportedFilesOpenAsStores() throws IOException {
+		Path path = folder.newFile("samples.bin").toPath();
+		SampleExporter exporter = new SampleExporter(function, intervalStart, intervalEnd, resolution);
+		exporter.exportBinary(path);
+
+		try (SampleStore store = SampleStore.open(path)) {
+			assertStoreMatches(store, exporter);
+		}
+	}
+
+	@Test
+	public void createdStoresMatchExportedFiles() throws IOException {
+		Path exported = folder.newFile("exported.bin").toPath();
+		Path created = folder.newFile("created.bin").toPath();
+		SampleExporter exporter = new SampleExporter(function, intervalStart, intervalEnd, resolution);
+		exporter.exportBinary(exported);
+
+		try (SampleStore store = SampleStore.create(created, function, intervalStart, intervalEnd, resolution)) {
+			assertStoreMatches(store, exporter);
+		}
+
+		assertEquals(Files.size(exported), Files.size(created));
+
+		try (SampleStore store = SampleStore.open(created)) {
+			assertStoreMatches(store, exporter);
+		}
+	}
+
+	@Test
+	public void strideReadsMatchSingleValues() throws IOException {
+		Path path = folder.newFile("samples.bin").toPath();
+		new SampleExporter(function, intervalStart, intervalEnd, resolution).exportBinary(path);
+
+		try (SampleStore store = SampleStore.open(path)) {
+			assertEquals(7, store.getStride(function, 7 * resolution));
+			assertEquals(0, store.getStride(function, 1.5 * resolution));
+			assertEquals(0, store.getStride("x", resolution));
+			assertEquals(1, store.getStride(" sqrt(x + 2) / x", resolution));
+
+			double[] values = new double[1000];
+			store.read(5, 7, values, 0, values.length);
+
+			for (int i = 0; i < values.length; i++) {
+				assertEquals(Double.doubleToLongBits(store.get(5 + 7 * i)), Double.doubleToLongBits(values[i]));
+			}
+		}
+	}
+
+	@Test
+	public void equivalentTextsShareStores() throws IOException {
+		Path path = folder.newFile("linear.bin").toPath();
+
+		try (SampleStore store = SampleStore.create(path, "2x", 0, 1, resolution)) {
+			assertEquals(1, store.getStride("2*x", resolution));
+			assertEquals(3, store.getStride("2 * x", 3 * resolution));
+		}
+	}
+
+	@Test
+	public void otherFilesAreRejected() throws IOException {
+		Path path = folder.newFile("other.bin").toPath();
+		Files.write(path, "x,y\n0,0\n".getBytes("UTF-8"));
+
+		try (SampleStore store = SampleStore.open(path)) {
+			fail("Opened file which is not a sample file.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,373 @@
+package pl.bazylicyran.funcanalyzer.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that intervals computed by built-in operators and functions enclose
+ * their values in sampled points, and checks flags of undefined values and
+ * poles.
+ * 
+ * @author Bazyli Cyran
+ */
+public class IntervalTest {
+
+	/** Bounds likely to hit special cases of operations. */
+	private static final double[] bounds = { -10, -4, -Math.PI, -2, -1, -0.5, -0.1, 0, 0.1, 0.5, 1, Math.PI / 2,
+			2, Math.E, Math.PI, 4, 10 };
+
+	/** Fewer bounds for functions of two arguments. */
+	private static final double[] pairBounds = { -1, 0, 0.5, 1, 2, Math.E, 10 };
+
+	/** Number of points sampled in argument of function of one argument. */
+	private static final int samples = 40;
+
+	/** Number of points sampled in every argument of binary operation. */
+	private static final int binarySamples = 12;
+
+	/**
+	 * Returns intervals built of special bounds, point intervals and random
+	 * intervals.
+	 * 
+	 * @param bounds Special bounds.
+	 * @param randoms Number of random intervals.
+	 * @return Intervals.
+	 */
+	private static List<Interval> intervals(double[] bounds, int randoms) {
+		List<Interval> result = new ArrayList<>();
+
+		for (int i = 0; i < bounds.length; i++) {
+			for (int j = i; j < bounds.length; j++) {
+				result.add(new Interval(bounds[i], bounds[j]));
+			}
+		}
+
+		Random random = new Random(17);
+
+		for (int i = 0; i < randoms; i++) {
+			double a = (random.nextDouble() - 0.5) * 20;
+			double b = a + random.nextDouble() * (i % 2 == 0 ? 1 : 10);
+			result.add(new Interval(a, b));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns points sampled in interval, including its bounds and zero.
+	 * 
+	 * @param interval Interval.
+	 * @param samples Number of evenly spaced points.
+	 * @return Points.
+	 */
+	private static double[] points(Interval interval, int samples) {
+		double[] result = new double[samples + 1];
+
+		for (int i = 0; i < samples; i++) {
+			double x = interval.getLow() + (interval.getHigh() - interval.getLow()) * i / (samples - 1);
+
+			// rounding could move the point out of interval
+			result[i] = Math.min(x, interval.getHigh());
+		}
+
+		result[samples] = interval.contains(0) ? 0 : interval.getLow();
+
+		return result;
+	}
+
+	/**
+	 * Checks if result encloses value of operation in a point, or if result
+	 * is not defined when operation is undefined there.
+	 * 
+	 * @param result Interval computed for arguments.
+	 * @param value Value in the point, NaN if undefined.
+	 * @return True if result is valid.
+	 */
+	private static boolean encloses(Interval result, double value) {
+		return Double.isNaN(value) ? result.isDefined() == false : result.contains(value);
+	}
+
+	/**
+	 * Fails test with description of invalid result.
+	 * 
+	 * @param name Name of operation.
+	 * @param args Intervals of arguments.
+	 * @param point Arguments in the point.
+	 * @param result Interval computed for arguments.
+	 * @param value Value in the point, NaN if undefined.
+	 */
+	private static void fail(String name, Interval[] args, double[] point, Interval result, double value) {
+		Assert.fail(name + Arrays.toString(args) + " at " + Arrays.toString(point) + " = " + value + ", result "
+				+ result + (result.isDefined() ? " defined" : " undefined"));
+	}
+
+	/**
+	 * Evaluates function of one argument, undefined values are NaN.
+	 * 
+	 * @param function Function.
+	 * @param arg Argument.
+	 * @return Value.
+	 */
+	private static double value(ExpFunction function, double arg) {
+		try {
+			return function.eval(arg);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Evaluates function of two arguments, undefined values are NaN.
+	 * 
+	 * @param function Function.
+	 * @param left First argument.
+	 * @param right Second argument.
+	 * @return Value.
+	 */
+	private static double value(ExpFunction function, double left, double right) {
+		try {
+			return function.eval(left, right);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Evaluates operator, undefined values are NaN.
+	 * 
+	 * @param operator Operator.
+	 * @param left Left argument.
+	 * @param right Right argument.
+	 * @return Value.
+	 */
+	private static double value(ExpOperator operator, double left, double right) {
+		try {
+			return operator.eval(left, right);
+		} catch (ArithmeticException e) {
+			return Double.NaN;
+		}
+	}
+
+	@Test
+	public void operatorsEncloseSampledValues() {
+		List<Interval> intervals = intervals(bounds, 20);
+
+		for (ExpOperator operator : ExpBuiltIns.OPERATORS) {
+			for (Interval left : intervals) {
+				for (Interval right : intervals) {
+					Interval result = operator.eval(left, right);
+
+					for (double l : points(left, binarySamples)) {
+						for (double r : points(right, binarySamples)) {
+							double value = value(operator, l, r);
+
+							if (encloses(result, value) == false) {
+								fail(operator.getOperator(), new Interval[] { left, right }, new double[] { l, r },
+										result, value);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void functionsEncloseSampledValues() {
+		List<Interval> intervals = intervals(bounds, 100);
+		List<Interval> pairs = intervals(pairBounds, 10);
+
+		for (ExpFunction function : ExpBuiltIns.FUNCTIONS) {
+			if (function.getArgNum() == 1) {
+				for (Interval arg : intervals) {
+					Interval result = function.eval(arg);
+
+					for (double x : points(arg, samples)) {
+						double value = value(function, x);
+
+						if (encloses(result, value) == false) {
+							fail(function.getFunction(), new Interval[] { arg }, new double[] { x }, result, value);
+						}
+					}
+				}
+			} else {
+				for (Interval left : pairs) {
+					for (Interval right : pairs) {
+						Interval result = function.eval(left, right);
+
+						for (double l : points(left, binarySamples)) {
+							for (double r : points(right, binarySamples)) {
+								double value = value(function, l, r);
+
+								if (encloses(result, value) == false) {
+									fail(function.getFunction(), new Interval[] { left, right },
+											new double[] { l, r }, result, value);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void boundsAreRoundedOutwards() {
+		Interval a = Interval.of(0.1);
+		Interval b = Interval.of(0.2);
+		BigDecimal left = new BigDecimal(0.1);
+		BigDecimal right = new BigDecimal(0.2);
+
+		assertEnclosesExactly(Interval.add(a, b), left.add(right));
+		assertEnclosesExactly(Interval.subtract(a, b), left.subtract(right));
+		assertEnclosesExactly(Interval.multiply(a, b), left.multiply(right));
+
+		// quotient q is enclosed if low * divisor <= dividend <= high * divisor
+		Interval quotient = Interval.divide(a, b);
+		assertTrue(new BigDecimal(quotient.getLow()).multiply(right).compareTo(left) <= 0);
+		assertTrue(new BigDecimal(quotient.getHigh()).multiply(right).compareTo(left) >= 0);
+		assertTrue(quotient.getLow() < quotient.getHigh());
+	}
+
+	/**
+	 * Checks that interval contains exact value.
+	 * 
+	 * @param interval Interval.
+	 * @param exact Exact value.
+	 */
+	private static void assertEnclosesExactly(Interval interval, BigDecimal exact) {
+		assertTrue(interval + " below " + exact, new BigDecimal(interval.getLow()).compareTo(exact) <= 0);
+		assertTrue(interval + " above " + exact, new BigDecimal(interval.getHigh()).compareTo(exact) >= 0);
+	}
+
+	@Test
+	public void tangentHasPoles() {
+		Interval pole = Interval.tan(new Interval(1, 2));
+		assertFalse(pole.isContinuous());
+		assertEquals(Double.NEGATIVE_INFINITY, pole.getLow(), 0);
+		assertEquals(Double.POSITIVE_INFINITY, pole.getHigh(), 0);
+
+		Interval wide = Interval.tan(new Interval(-10, -6));
+		assertFalse(wide.isContinuous());
+
+		Interval branch = Interval.tan(new Interval(-1, 1));
+		assertTrue(branch.isContinuous());
+		assertTrue(branch.isDefined());
+		assertTrue(branch.contains(Math.tan(-1)) && branch.contains(Math.tan(1)));
+
+		Interval nearPole = Interval.tan(new Interval(Math.PI / 2 - 1e-3, Math.PI / 2 - 1e-6));
+		assertTrue(nearPole.isContinuous());
+		assertTrue(nearPole.contains(Math.tan(Math.PI / 2 - 1e-6)));
+	}
+
+	@Test
+	public void divisionByIntervalContainingZeroHasPole() {
+		Interval one = Interval.of(1);
+
+		Interval both = Interval.divide(one, new Interval(-1, 1));
+		assertFalse(both.isDefined());
+		assertFalse(both.isContinuous());
+		assertEquals(Double.NEGATIVE_INFINITY, both.getLow(), 0);
+		assertEquals(Double.POSITIVE_INFINITY, both.getHigh(), 0);
+
+		Interval positive = Interval.divide(one, new Interval(0, 2));
+		assertFalse(positive.isDefined());
+		assertFalse(positive.isContinuous());
+		assertTrue(positive.getLow() <= 0.5 && positive.getLow() > 0);
+		assertEquals(Double.POSITIVE_INFINITY, positive.getHigh(), 0);
+
+		Interval negative = Interval.divide(one, new Interval(-2, 0));
+		assertTrue(negative.getHigh() >= -0.5 && negative.getHigh() < 0);
+		assertEquals(Double.NEGATIVE_INFINITY, negative.getLow(), 0);
+
+		assertTrue(Interval.divide(one, Interval.of(0)).isEmpty());
+
+		Interval away = Interval.divide(one, new Interval(1, 2));
+		assertTrue(away.isDefined());
+		assertTrue(away.isContinuous());
+	}
+
+	@Test
+	public void negativePowersHavePoles() {
+		Interval square = Interval.power(new Interval(-1, 2), Interval.of(-2));
+		assertFalse(square.isContinuous());
+		assertTrue(square.getLow() <= 0.25);
+		assertEquals(Double.POSITIVE_INFINITY, square.getHigh(), 0);
+
+		Interval reciprocal = Interval.power(new Interval(-1, 2), Interval.of(-1));
+		assertFalse(reciprocal.isContinuous());
+		assertEquals(Double.NEGATIVE_INFINITY, reciprocal.getLow(), 0);
+		assertEquals(Double.POSITIVE_INFINITY, reciprocal.getHigh(), 0);
+		assertTrue(reciprocal.isKnown());
+
+		Interval root = Interval.power(new Interval(0, 4), Interval.of(-0.5));
+		assertFalse(root.isContinuous());
+		assertTrue(root.isDefined());
+
+		Interval away = Interval.power(new Interval(1, 2), Interval.of(-1));
+		assertTrue(away.isContinuous());
+		assertTrue(away.contains(0.5) && away.contains(1));
+
+		Interval base = Interval.power(new Interval(0, 1), new Interval(-1, 1));
+		assertFalse(base.isContinuous());
+	}
+
+	@Test
+	public void undefinedValuesClearDefinedFlag() {
+		assertFalse(Interval.sqrt(new Interval(-1, 4)).isDefined());
+		assertTrue(Interval.sqrt(new Interval(-2, -1)).isEmpty());
+		assertFalse(Interval.ln(new Interval(-1, 1)).isDefined());
+		assertFalse(Interval.power(new Interval(-1, 4), Interval.of(0.5)).isDefined());
+		assertTrue(Interval.power(new Interval(-4, -1), Interval.of(0.5)).isEmpty());
+		assertFalse(Interval.log(new Interval(0.5, 2), Interval.of(4)).isDefined());
+		assertTrue(Interval.log(Interval.of(1), Interval.of(4)).isEmpty());
+
+		// undefined argument makes the whole expression undefined
+		assertFalse(Interval.add(Interval.sqrt(new Interval(-1, 1)), Interval.of(1)).isDefined());
+	}
+
+	@Test
+	public void unknownValuesPropagate() {
+		Interval unknown = Interval.unknown(Interval.of(1));
+		assertFalse(unknown.isKnown());
+		assertFalse(unknown.isDefined());
+		assertFalse(unknown.isContinuous());
+
+		assertFalse(Interval.add(unknown, Interval.of(1)).isKnown());
+		assertFalse(Interval.sin(unknown).isKnown());
+		assertFalse(Interval.abs(unknown).isKnown());
+		assertFalse(Interval.tan(unknown).isKnown());
+		assertTrue(Interval.unknown(Interval.EMPTY).isEmpty());
+
+		// known poles stay known
+		assertTrue(Interval.tan(new Interval(1, 2)).isKnown());
+		assertTrue(Interval.divide(Interval.of(1), new Interval(-1, 1)).isKnown());
+	}
+
+	@Test
+	public void emptyIntervalsPropagate() {
+		assertTrue(Interval.of(Double.NaN).isEmpty());
+
+		for (ExpOperator operator : ExpBuiltIns.OPERATORS) {
+			assertTrue(operator.eval(Interval.EMPTY, Interval.of(1)).isEmpty());
+			assertTrue(operator.eval(Interval.of(1), Interval.EMPTY).isEmpty());
+		}
+
+		for (ExpFunction function : ExpBuiltIns.FUNCTIONS) {
+			Interval result = function.getArgNum() == 1 ? function.eval(Interval.EMPTY)
+					: function.eval(Interval.of(2), Interval.EMPTY);
+			assertTrue(function.getFunction(), result.isEmpty());
+		}
+	}
+
+}